@@ -3,6 +3,7 @@ package frodez.config.aop.exception.advisor;
 import frodez.config.aop.exception.ExceptionProperties;
 import frodez.config.aop.exception.annotation.CatchAndReturn;
 import frodez.config.aop.exception.annotation.Error;
+import frodez.config.aop.metric.MetricRegistry;
 import frodez.config.aop.util.AOPUtil;
 import frodez.util.beans.result.Result;
 import frodez.util.common.StrUtil;
@@ -15,6 +16,8 @@ import org.springframework.aop.ClassFilter;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.PointcutAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -25,6 +28,13 @@ import org.springframework.transaction.annotation.Transactional;
 @Order(Integer.MIN_VALUE)
 public class CatchAndReturnAdvisor implements PointcutAdvisor {
 
+	/**
+	 * 性能统计
+	 */
+	@Autowired
+	@Qualifier("metricRegistry")
+	private MetricRegistry registry;
+
 	@Override
 	public Advice getAdvice() {
 		return (MethodInterceptor) invocation -> {
@@ -32,6 +42,7 @@ public class CatchAndReturnAdvisor implements PointcutAdvisor {
 				return invocation.proceed();
 			} catch (Exception e) {
 				log.error(StrUtil.concat("[", ReflectUtil.getFullMethodName(invocation.getMethod()), "]"), e);
+				registry.register(invocation.getMethod()).error();
 				return Result.errorService();
 			}
 		};
@@ -73,6 +84,10 @@ public class CatchAndReturnAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
+						//控制器方法由EndpointPipelineAdvisor处理
+						if (AOPUtil.isPipelined(method, targetClass)) {
+							return false;
+						}
 						if (ExceptionProperties.autoConfig) {
 							if (AnnotationUtils.findAnnotation(targetClass, Error.class) == null) {
 								return false;
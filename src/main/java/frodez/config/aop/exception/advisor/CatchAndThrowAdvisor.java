@@ -3,9 +3,11 @@ package frodez.config.aop.exception.advisor;
 import frodez.config.aop.exception.ExceptionProperties;
 import frodez.config.aop.exception.annotation.CatchAndThrow;
 import frodez.config.aop.exception.annotation.Error;
+import frodez.config.aop.exception.annotation.Error.ErrorHelper;
+import frodez.config.aop.metric.MetricRegistry;
+import frodez.config.aop.util.AOPUtil;
 import frodez.constant.errors.code.ErrorCode;
 import frodez.constant.errors.code.ServiceException;
-import frodez.constant.errors.exception.CodeCheckException;
 import frodez.util.common.StrUtil;
 import frodez.util.reflect.ReflectUtil;
 import java.lang.reflect.Method;
@@ -18,6 +20,8 @@ import org.springframework.aop.ClassFilter;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.PointcutAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -28,6 +32,13 @@ import org.springframework.transaction.annotation.Transactional;
 @Order(Integer.MIN_VALUE)
 public class CatchAndThrowAdvisor implements PointcutAdvisor {
 
+	/**
+	 * 性能统计
+	 */
+	@Autowired
+	@Qualifier("metricRegistry")
+	private MetricRegistry registry;
+
 	private Map<String, ErrorCode> errorCodeCache = new HashMap<>();
 
 	@Override
@@ -38,6 +49,7 @@ public class CatchAndThrowAdvisor implements PointcutAdvisor {
 			} catch (Exception e) {
 				String methodName = ReflectUtil.getFullMethodName(invocation.getMethod());
 				log.error(StrUtil.concat("[", methodName, "]"), e);
+				registry.register(invocation.getMethod()).error();
 				throw new ServiceException(errorCodeCache.get(methodName));
 			}
 		};
@@ -79,13 +91,17 @@ public class CatchAndThrowAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
+						//控制器方法由EndpointPipelineAdvisor处理
+						if (AOPUtil.isPipelined(method, targetClass)) {
+							return false;
+						}
 						if (ExceptionProperties.autoConfig) {
 							if (AnnotationUtils.findAnnotation(targetClass, Error.class) == null) {
 								return false;
 							}
 							if (AnnotationUtils.findAnnotation(method, Transactional.class) != null) {
 								String methodName = ReflectUtil.getFullMethodName(method);
-								errorCodeCache.put(methodName, resolveErrorCode(method, targetClass));
+								errorCodeCache.put(methodName, ErrorHelper.resolve(method, targetClass));
 								return true;
 							} else {
 								return false;
@@ -97,23 +113,10 @@ public class CatchAndThrowAdvisor implements PointcutAdvisor {
 							return false;
 						}
 						String methodName = ReflectUtil.getFullMethodName(method);
-						errorCodeCache.put(methodName, resolveErrorCode(method, targetClass));
+						errorCodeCache.put(methodName, ErrorHelper.resolve(method, targetClass));
 						return true;
 					}
 
-					private ErrorCode resolveErrorCode(Method method, Class<?> targetClass) {
-						Error error = AnnotationUtils.findAnnotation(method, Error.class);
-						if (error != null) {
-							return error.value();
-						}
-						error = AnnotationUtils.findAnnotation(targetClass, Error.class);
-						if (error != null) {
-							return error.value();
-						}
-						String string = StrUtil.concat("方法", ReflectUtil.getFullMethodName(method), "或者类", targetClass.getName(), "上必须存在@Error注解!");
-						throw new CodeCheckException(string);
-					}
-
 					/**
 					 * 默认true
 					 * @author Frodez
@@ -1,11 +1,17 @@
 package frodez.config.aop.exception.annotation;
 
 import frodez.constant.errors.code.ErrorCode;
+import frodez.constant.errors.exception.CodeCheckException;
+import frodez.util.common.StrUtil;
+import frodez.util.reflect.ReflectUtil;
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import lombok.experimental.UtilityClass;
+import org.springframework.core.annotation.AnnotationUtils;
 
 /**
  * 错误码,与@CatchAndThrow配合使用<br>
@@ -20,4 +26,27 @@ public @interface Error {
 
 	ErrorCode value();
 
+	@UtilityClass
+	public static class ErrorHelper {
+
+		/**
+		 * 获取方法对应的错误码,优先采用方法上的配置
+		 * @author Frodez
+		 * @date 2020-01-12
+		 */
+		public static ErrorCode resolve(Method method, Class<?> targetClass) {
+			Error error = AnnotationUtils.findAnnotation(method, Error.class);
+			if (error != null) {
+				return error.value();
+			}
+			error = AnnotationUtils.findAnnotation(targetClass, Error.class);
+			if (error != null) {
+				return error.value();
+			}
+			String string = StrUtil.concat("方法", ReflectUtil.getFullMethodName(method), "或者类", targetClass.getName(), "上必须存在@Error注解!");
+			throw new CodeCheckException(string);
+		}
+
+	}
+
 }
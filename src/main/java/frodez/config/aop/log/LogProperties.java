@@ -0,0 +1,34 @@
+package frodez.config.aop.log;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 方法日志配置
+ * @author Frodez
+ * @date 2020-01-12
+ */
+@Data
+@Component
+@PropertySource(value = { "classpath:settings/global/log.properties" })
+@ConfigurationProperties(prefix = "log")
+public class LogProperties {
+
+	/**
+	 * 是否在后台线程中序列化参数和返回值,为false时在请求线程中序列化
+	 */
+	private Boolean async = true;
+
+	/**
+	 * 后台队列长度,必须为2的幂。队列已满时丢弃新的日志。
+	 */
+	private Integer bufferSize = 4096;
+
+	/**
+	 * 参数和返回值序列化后的默认最大长度,超出部分截断。小于等于0时不限制。
+	 */
+	private Integer maxLength = 4096;
+
+}
@@ -1,11 +1,14 @@
 package frodez.config.aop.log.advisor;
 
 import frodez.config.aop.log.annotation.ResultLog;
+import frodez.config.aop.log.writer.LogPoint;
+import frodez.config.aop.log.writer.LogWriter;
 import frodez.constant.errors.exception.CodeCheckException;
 import frodez.util.beans.result.Result;
-import frodez.util.json.JSONUtil;
 import frodez.util.reflect.ReflectUtil;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.aopalliance.aop.Advice;
 import org.springframework.aop.AfterReturningAdvice;
@@ -13,6 +16,8 @@ import org.springframework.aop.ClassFilter;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.PointcutAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -28,6 +33,18 @@ import org.springframework.util.concurrent.ListenableFuture;
 @Order(Integer.MIN_VALUE)
 public class AsyncResultLogAdvisor implements PointcutAdvisor {
 
+	/**
+	 * 日志输出
+	 */
+	@Autowired
+	@Qualifier("logWriter")
+	private LogWriter writer;
+
+	/**
+	 * 日志配置
+	 */
+	private Map<Method, LogPoint> points = new HashMap<>();
+
 	/**
 	 * AOP切点
 	 * @author Frodez
@@ -42,8 +59,12 @@ public class AsyncResultLogAdvisor implements PointcutAdvisor {
 		 * @author Frodez
 		 * @date 2019-01-12
 		 */
-		return (AfterReturningAdvice) (returnValue, method, args, target) -> log.info("{} 返回值:{}", ReflectUtil.getFullMethodName(method), JSONUtil
-			.string(((ListenableFuture<Result>) returnValue).get()));
+		return (AfterReturningAdvice) (returnValue, method, args, target) -> {
+			LogPoint point = points.get(method);
+			if (writer.sample(point)) {
+				writer.asyncResult(point, (ListenableFuture<Result>) returnValue);
+			}
+		};
 	}
 
 	/**
@@ -92,7 +113,8 @@ public class AsyncResultLogAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
-						if (AnnotationUtils.findAnnotation(method, ResultLog.class) == null) {
+						ResultLog annotation = AnnotationUtils.findAnnotation(method, ResultLog.class);
+						if (annotation == null) {
 							return false;
 						}
 						Class<?> returnType = method.getReturnType();
@@ -103,6 +125,7 @@ public class AsyncResultLogAdvisor implements PointcutAdvisor {
 							throw new CodeCheckException("不能对void返回类型的方法", ReflectUtil.getFullMethodName(method), "使用@", ResultLog.class
 								.getCanonicalName(), "注解!");
 						}
+						points.put(method, writer.point(log, method, annotation.rate(), annotation.maxLength()));
 						return true;
 					}
 
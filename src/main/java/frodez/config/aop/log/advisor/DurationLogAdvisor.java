@@ -1,6 +1,9 @@
 package frodez.config.aop.log.advisor;
 
 import frodez.config.aop.log.annotation.DurationLog;
+import frodez.config.aop.metric.EndpointMetrics;
+import frodez.config.aop.metric.MetricRegistry;
+import frodez.config.aop.util.AOPUtil;
 import frodez.constant.errors.exception.CodeCheckException;
 import frodez.util.reflect.ReflectUtil;
 import java.lang.reflect.Method;
@@ -13,6 +16,8 @@ import org.springframework.aop.ClassFilter;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.PointcutAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -32,6 +37,15 @@ public class DurationLogAdvisor implements PointcutAdvisor {
 	 */
 	private Map<String, Long> thresholdCache = new HashMap<>();
 
+	/**
+	 * 性能统计
+	 */
+	@Autowired
+	@Qualifier("metricRegistry")
+	private MetricRegistry registry;
+
+	private Map<Method, EndpointMetrics> metricsCache = new HashMap<>();
+
 	private long times = 1000 * 1000;
 
 	/**
@@ -49,11 +63,13 @@ public class DurationLogAdvisor implements PointcutAdvisor {
 		 * @date 2018-12-21
 		 */
 		return (MethodInterceptor) invocation -> {
-			String name = ReflectUtil.getFullMethodName(invocation.getMethod());
+			Method method = invocation.getMethod();
+			String name = ReflectUtil.getFullMethodName(method);
 			long threshold = thresholdCache.get(name);
 			long count = System.nanoTime();
 			Object result = invocation.proceed();
 			count = System.nanoTime() - count;
+			metricsCache.get(method).record(count);
 			if (count > threshold) {
 				log.warn("{}方法耗时{}毫秒,触发超时警告!", name, count / times);
 			}
@@ -107,6 +123,10 @@ public class DurationLogAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
+						//控制器方法由EndpointPipelineAdvisor处理
+						if (AOPUtil.isPipelined(method, targetClass)) {
+							return false;
+						}
 						DurationLog annotation = AnnotationUtils.findAnnotation(method, DurationLog.class);
 						if (annotation == null) {
 							return false;
@@ -115,6 +135,7 @@ public class DurationLogAdvisor implements PointcutAdvisor {
 							throw new CodeCheckException("方法", ReflectUtil.getFullMethodName(method), "的阈值必须大于0!");
 						}
 						thresholdCache.put(ReflectUtil.getFullMethodName(method), annotation.threshold() * times);
+						metricsCache.put(method, registry.register(method));
 						return true;
 					}
 
@@ -1,11 +1,12 @@
 package frodez.config.aop.log.advisor;
 
 import frodez.config.aop.log.annotation.MethodLog;
+import frodez.config.aop.log.writer.LogPoint;
+import frodez.config.aop.log.writer.LogWriter;
+import frodez.config.aop.util.AOPUtil;
 import frodez.constant.errors.exception.CodeCheckException;
-import frodez.util.json.JSONUtil;
 import frodez.util.reflect.ReflectUtil;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.HashMap;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +16,8 @@ import org.springframework.aop.ClassFilter;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.PointcutAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -30,6 +33,18 @@ import org.springframework.util.concurrent.ListenableFuture;
 @Order(Integer.MIN_VALUE)
 public class MethodLogAdvisor implements PointcutAdvisor {
 
+	/**
+	 * 日志输出
+	 */
+	@Autowired
+	@Qualifier("logWriter")
+	private LogWriter writer;
+
+	/**
+	 * 日志配置
+	 */
+	private Map<Method, LogPoint> points = new HashMap<>();
+
 	/**
 	 * AOP切点
 	 * @author Frodez
@@ -39,23 +54,18 @@ public class MethodLogAdvisor implements PointcutAdvisor {
 	public Advice getAdvice() {
 		return (MethodInterceptor) invocation -> {
 			Method method = invocation.getMethod();
-			String name = ReflectUtil.getFullMethodName(method);
-			if (method.getParameterCount() != 0) {
-				Parameter[] parameters = method.getParameters();
-				Object[] args = invocation.getArguments();
-				Map<String, Object> paramMap = new HashMap<>(parameters.length);
-				for (int i = 0; i < parameters.length; ++i) {
-					paramMap.put(parameters[i].getName(), args[i]);
-				}
-				log.info("{} 请求参数:{}", name, JSONUtil.string(paramMap));
-			} else {
-				log.info("{} 本方法无入参", name);
+			LogPoint point = points.get(method);
+			boolean sampled = writer.sample(point);
+			if (sampled) {
+				writer.param(point, invocation.getArguments());
 			}
 			Object result = invocation.proceed();
-			if (method.getReturnType() != Void.class) {
-				log.info("{} 返回值:{}", name, JSONUtil.string(result));
-			} else {
-				log.info("{} 本方法返回值类型为void", name);
+			if (sampled) {
+				if (method.getReturnType() != Void.class) {
+					writer.result(point, result);
+				} else {
+					log.info("{} 本方法返回值类型为void", point.getName());
+				}
 			}
 			return result;
 		};
@@ -107,7 +117,12 @@ public class MethodLogAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
-						if (AnnotationUtils.findAnnotation(method, MethodLog.class) == null) {
+						//控制器方法由EndpointPipelineAdvisor处理
+						if (AOPUtil.isPipelined(method, targetClass)) {
+							return false;
+						}
+						MethodLog annotation = AnnotationUtils.findAnnotation(method, MethodLog.class);
+						if (annotation == null) {
 							return false;
 						}
 						Class<?> returnType = method.getReturnType();
@@ -118,6 +133,7 @@ public class MethodLogAdvisor implements PointcutAdvisor {
 							throw new CodeCheckException("不能对void返回类型且无参数的方法", ReflectUtil.getFullMethodName(method), "使用@", MethodLog.class
 								.getCanonicalName(), "注解!");
 						}
+						points.put(method, writer.point(log, method, annotation.rate(), annotation.maxLength()));
 						return true;
 					}
 
@@ -1,11 +1,11 @@
 package frodez.config.aop.log.advisor;
 
 import frodez.config.aop.log.annotation.ParamLog;
+import frodez.config.aop.log.writer.LogPoint;
+import frodez.config.aop.log.writer.LogWriter;
 import frodez.constant.errors.exception.CodeCheckException;
-import frodez.util.json.JSONUtil;
 import frodez.util.reflect.ReflectUtil;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.HashMap;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +15,8 @@ import org.springframework.aop.MethodBeforeAdvice;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.PointcutAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -29,6 +31,18 @@ import org.springframework.stereotype.Component;
 @Order(Integer.MIN_VALUE)
 public class ParamLogAdvisor implements PointcutAdvisor {
 
+	/**
+	 * 日志输出
+	 */
+	@Autowired
+	@Qualifier("logWriter")
+	private LogWriter writer;
+
+	/**
+	 * 日志配置
+	 */
+	private Map<Method, LogPoint> points = new HashMap<>();
+
 	/**
 	 * AOP切点
 	 * @author Frodez
@@ -43,12 +57,10 @@ public class ParamLogAdvisor implements PointcutAdvisor {
 		 * @date 2019-01-12
 		 */
 		return (MethodBeforeAdvice) (method, args, target) -> {
-			Parameter[] parameters = method.getParameters();
-			Map<String, Object> paramMap = new HashMap<>(parameters.length);
-			for (int i = 0; i < parameters.length; ++i) {
-				paramMap.put(parameters[i].getName(), args[i]);
+			LogPoint point = points.get(method);
+			if (writer.sample(point)) {
+				writer.param(point, args);
 			}
-			log.info("{} 请求参数:{}", ReflectUtil.getFullMethodName(method), JSONUtil.string(paramMap));
 		};
 	}
 
@@ -98,13 +110,15 @@ public class ParamLogAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
-						if (AnnotationUtils.findAnnotation(method, ParamLog.class) == null) {
+						ParamLog annotation = AnnotationUtils.findAnnotation(method, ParamLog.class);
+						if (annotation == null) {
 							return false;
 						}
 						if (method.getParameterCount() == 0) {
 							throw new CodeCheckException("不能对无参数的方法", ReflectUtil.getFullMethodName(method), "使用@", ParamLog.class.getCanonicalName(),
 								"注解!");
 						}
+						points.put(method, writer.point(log, method, annotation.rate(), annotation.maxLength()));
 						return true;
 					}
 
@@ -1,10 +1,13 @@
 package frodez.config.aop.log.advisor;
 
 import frodez.config.aop.log.annotation.ResultLog;
+import frodez.config.aop.log.writer.LogPoint;
+import frodez.config.aop.log.writer.LogWriter;
 import frodez.constant.errors.exception.CodeCheckException;
-import frodez.util.json.JSONUtil;
 import frodez.util.reflect.ReflectUtil;
 import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.aopalliance.aop.Advice;
 import org.springframework.aop.AfterReturningAdvice;
@@ -12,6 +15,8 @@ import org.springframework.aop.ClassFilter;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.PointcutAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -27,6 +32,18 @@ import org.springframework.util.concurrent.ListenableFuture;
 @Order(Integer.MIN_VALUE)
 public class ResultLogAdvisor implements PointcutAdvisor {
 
+	/**
+	 * 日志输出
+	 */
+	@Autowired
+	@Qualifier("logWriter")
+	private LogWriter writer;
+
+	/**
+	 * 日志配置
+	 */
+	private Map<Method, LogPoint> points = new HashMap<>();
+
 	/**
 	 * AOP切点
 	 * @author Frodez
@@ -40,8 +57,12 @@ public class ResultLogAdvisor implements PointcutAdvisor {
 		 * @author Frodez
 		 * @date 2019-01-12
 		 */
-		return (AfterReturningAdvice) (returnValue, method, args, target) -> log.info("{} 返回值:{}", ReflectUtil.getFullMethodName(method), JSONUtil
-			.string(returnValue));
+		return (AfterReturningAdvice) (returnValue, method, args, target) -> {
+			LogPoint point = points.get(method);
+			if (writer.sample(point)) {
+				writer.result(point, returnValue);
+			}
+		};
 	}
 
 	/**
@@ -90,7 +111,8 @@ public class ResultLogAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
-						if (AnnotationUtils.findAnnotation(method, ResultLog.class) == null) {
+						ResultLog annotation = AnnotationUtils.findAnnotation(method, ResultLog.class);
+						if (annotation == null) {
 							return false;
 						}
 						Class<?> returnType = method.getReturnType();
@@ -101,6 +123,7 @@ public class ResultLogAdvisor implements PointcutAdvisor {
 							throw new CodeCheckException("不能对void返回类型的方法", ReflectUtil.getFullMethodName(method), "使用@", ResultLog.class
 								.getCanonicalName(), "注解!");
 						}
+						points.put(method, writer.point(log, method, annotation.rate(), annotation.maxLength()));
 						return true;
 					}
 
@@ -16,4 +16,18 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ResultLog {
 
+	/**
+	 * 采样率,取值范围(0, 1],默认值1.0,即每次调用都记录
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	double rate() default 1.0;
+
+	/**
+	 * 序列化后的最大长度,超出部分截断。小于等于0时使用log.properties中的配置,默认值0
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	int maxLength() default 0;
+
 }
@@ -0,0 +1,55 @@
+package frodez.config.aop.log.writer;
+
+import org.slf4j.Logger;
+
+/**
+ * 方法日志配置,切点匹配时由LogWriter生成,之后不再修改
+ * @see frodez.config.aop.log.writer.LogWriter#point(Logger, java.lang.reflect.Method, double, int)
+ * @author Frodez
+ * @date 2020-01-12
+ */
+public class LogPoint {
+
+	/**
+	 * 日志记录器
+	 */
+	final Logger logger;
+
+	/**
+	 * 方法全限定名
+	 */
+	final String name;
+
+	/**
+	 * 参数名
+	 */
+	final String[] params;
+
+	/**
+	 * 采样率
+	 */
+	final double rate;
+
+	/**
+	 * 序列化后的最大长度,小于等于0时不限制
+	 */
+	final int maxLength;
+
+	LogPoint(Logger logger, String name, String[] params, double rate, int maxLength) {
+		this.logger = logger;
+		this.name = name;
+		this.params = params;
+		this.rate = rate;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * 方法全限定名
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public String getName() {
+		return name;
+	}
+
+}
@@ -0,0 +1,294 @@
+package frodez.config.aop.log.writer;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorThreeArg;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.TimeoutBlockingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import frodez.config.aop.log.LogProperties;
+import frodez.constant.errors.exception.CodeCheckException;
+import frodez.util.beans.result.Result;
+import frodez.util.common.StrUtil;
+import frodez.util.json.JSONUtil;
+import frodez.util.reflect.ReflectUtil;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * 方法日志输出<br>
+ * 请求线程中只检查日志级别和采样率,并保存参数和返回值的引用,序列化在后台线程中进行。<br>
+ * 后台队列使用disruptor的环形队列,队列已满时丢弃新的日志,不阻塞请求线程。<br>
+ * 序列化结果超过最大长度时提前停止序列化并截断。<br>
+ * <strong>参数和返回值在序列化之前被修改时,日志中记录的是修改后的值。</strong><br>
+ * @author Frodez
+ * @date 2020-01-12
+ */
+@Slf4j
+@Component("logWriter")
+public class LogWriter {
+
+	private static final int PARAM = 0;
+
+	private static final int RESULT = 1;
+
+	private static final EventTranslatorThreeArg<LogEvent, LogPoint, Integer, Object> TRANSLATOR = (event, sequence, point, type,
+		payload) -> {
+		event.point = point;
+		event.type = type;
+		event.payload = payload;
+	};
+
+	/**
+	 * 默认最大长度
+	 */
+	private int maxLength;
+
+	private Disruptor<LogEvent> disruptor;
+
+	/**
+	 * 为null时在请求线程中序列化
+	 */
+	private RingBuffer<LogEvent> ringBuffer;
+
+	/**
+	 * 因队列已满而丢弃的日志数量
+	 */
+	private LongAdder dropped = new LongAdder();
+
+	@Autowired
+	public LogWriter(LogProperties properties) {
+		maxLength = properties.getMaxLength();
+		if (properties.getAsync()) {
+			disruptor = new Disruptor<>(LogEvent::new, properties.getBufferSize(), (runnable) -> {
+				Thread thread = new Thread(runnable, "method-log-writer");
+				thread.setDaemon(true);
+				return thread;
+			}, ProducerType.MULTI, new TimeoutBlockingWaitStrategy(10, TimeUnit.MILLISECONDS));
+			disruptor.handleEventsWith((EventHandler<LogEvent>) (event, sequence, endOfBatch) -> {
+				try {
+					write(event.point, event.type, event.payload);
+				} finally {
+					event.clear();
+				}
+			});
+			ringBuffer = disruptor.start();
+		}
+	}
+
+	@PreDestroy
+	private void destroy() {
+		if (disruptor != null) {
+			try {
+				disruptor.shutdown(3, TimeUnit.SECONDS);
+			} catch (Exception e) {
+				disruptor.halt();
+			}
+		}
+	}
+
+	/**
+	 * 生成方法日志配置,应在切点匹配时调用
+	 * @param logger 日志记录器
+	 * @param rate 采样率,取值范围(0, 1]
+	 * @param maxLength 序列化后的最大长度,小于等于0时使用默认配置
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public LogPoint point(Logger logger, Method method, double rate, int maxLength) {
+		String name = ReflectUtil.getFullMethodName(method);
+		if (!(rate > 0 && rate <= 1)) {
+			throw new CodeCheckException("方法", name, "的日志采样率必须大于0且小于等于1!");
+		}
+		Parameter[] parameters = method.getParameters();
+		String[] params = new String[parameters.length];
+		for (int i = 0; i < parameters.length; ++i) {
+			params[i] = parameters[i].getName();
+		}
+		return new LogPoint(logger, name, params, rate, maxLength > 0 ? maxLength : this.maxLength);
+	}
+
+	/**
+	 * 判断本次调用是否需要记录日志,同一次调用的参数和返回值应使用同一个判断结果
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public boolean sample(LogPoint point) {
+		if (!point.logger.isInfoEnabled()) {
+			return false;
+		}
+		return point.rate >= 1 || ThreadLocalRandom.current().nextDouble() < point.rate;
+	}
+
+	/**
+	 * 记录参数
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public void param(LogPoint point, Object[] args) {
+		if (point.params.length == 0) {
+			point.logger.info("{} 本方法无入参", point.name);
+			return;
+		}
+		publish(point, PARAM, args.clone());
+	}
+
+	/**
+	 * 记录返回值
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public void result(LogPoint point, Object result) {
+		publish(point, RESULT, result);
+	}
+
+	/**
+	 * 记录AsyncResult的返回值,在执行完成后记录,不阻塞当前线程
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public void asyncResult(LogPoint point, ListenableFuture<Result> future) {
+		if (future == null) {
+			publish(point, RESULT, null);
+			return;
+		}
+		future.addCallback((result) -> publish(point, RESULT, result), (e) -> {
+		});
+	}
+
+	/**
+	 * 因队列已满而丢弃的日志数量
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public long dropped() {
+		return dropped.sum();
+	}
+
+	private void publish(LogPoint point, int type, Object payload) {
+		if (ringBuffer == null) {
+			write(point, type, payload);
+			return;
+		}
+		if (!ringBuffer.tryPublishEvent(TRANSLATOR, point, type, payload)) {
+			dropped.increment();
+		}
+	}
+
+	private void write(LogPoint point, int type, Object payload) {
+		try {
+			if (type == PARAM) {
+				Object[] args = (Object[]) payload;
+				Map<String, Object> paramMap = new HashMap<>(point.params.length);
+				for (int i = 0; i < point.params.length; ++i) {
+					paramMap.put(point.params[i], args[i]);
+				}
+				point.logger.info("{} 请求参数:{}", point.name, serialize(paramMap, point.maxLength));
+			} else {
+				point.logger.info("{} 返回值:{}", point.name, serialize(payload, point.maxLength));
+			}
+		} catch (Exception e) {
+			log.error(StrUtil.concat("[", point.name, "]日志序列化失败"), e);
+		}
+	}
+
+	private String serialize(Object object, int maxLength) throws IOException {
+		if (object == null) {
+			return "null";
+		}
+		if (maxLength <= 0) {
+			return JSONUtil.string(object);
+		}
+		BoundedWriter writer = new BoundedWriter(maxLength);
+		try {
+			JSONUtil.writer(object).writeValue(writer, object);
+		} catch (IOException e) {
+			if (!writer.overflow) {
+				throw e;
+			}
+		}
+		if (writer.overflow) {
+			return StrUtil.concat(writer.builder.toString(), "...(超过", String.valueOf(maxLength), "字符,已截断)");
+		}
+		return writer.builder.toString();
+	}
+
+	/**
+	 * 超过最大长度时抛出异常,以停止序列化
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	private static class BoundedWriter extends Writer {
+
+		private final StringBuilder builder;
+
+		private final int maxLength;
+
+		private boolean overflow;
+
+		BoundedWriter(int maxLength) {
+			this.builder = new StringBuilder(Math.min(maxLength, 256));
+			this.maxLength = maxLength;
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			int remain = maxLength - builder.length();
+			if (len > remain) {
+				builder.append(cbuf, off, remain);
+				overflow = true;
+				throw new IOException("overflow");
+			}
+			builder.append(cbuf, off, len);
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			int remain = maxLength - builder.length();
+			if (len > remain) {
+				builder.append(str, off, off + remain);
+				overflow = true;
+				throw new IOException("overflow");
+			}
+			builder.append(str, off, off + len);
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+	private static class LogEvent {
+
+		LogPoint point;
+
+		int type;
+
+		Object payload;
+
+		void clear() {
+			point = null;
+			payload = null;
+		}
+
+	}
+
+}
@@ -0,0 +1,115 @@
+package frodez.config.aop.metric;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个方法的性能统计
+ * @author Frodez
+ * @date 2020-01-12
+ */
+public class EndpointMetrics {
+
+	/**
+	 * 方法全限定名
+	 */
+	private final String name;
+
+	/**
+	 * 开始统计的时间,单位毫秒
+	 */
+	private final long start = System.currentTimeMillis();
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	/**
+	 * 总耗时,单位微秒
+	 */
+	private final LongAdder totalTime = new LongAdder();
+
+	private final LongAdder errors = new LongAdder();
+
+	private final LongAdder limited = new LongAdder();
+
+	private final LongAdder repeated = new LongAdder();
+
+	/**
+	 * 上次输出日志时的调用次数,只由输出日志的线程读写
+	 */
+	long lastCount;
+
+	/**
+	 * 上次输出日志时的调用,异常和拒绝次数之和,只由输出日志的线程读写
+	 */
+	long lastActivity;
+
+	EndpointMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * 记录一次调用的耗时,单位纳秒
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public void record(long nanos) {
+		long micros = nanos / 1000;
+		histogram.record(micros);
+		totalTime.add(micros);
+	}
+
+	/**
+	 * 记录一次异常
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public void error() {
+		errors.increment();
+	}
+
+	/**
+	 * 记录一次被限流拒绝的请求
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public void limited() {
+		limited.increment();
+	}
+
+	/**
+	 * 记录一次被拒绝的重复请求
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public void repeated() {
+		repeated.increment();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long[] snapshot() {
+		return histogram.snapshot();
+	}
+
+	public long getTotalTime() {
+		return totalTime.sum();
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	public long getLimited() {
+		return limited.sum();
+	}
+
+	public long getRepeated() {
+		return repeated.sum();
+	}
+
+}
@@ -0,0 +1,138 @@
+package frodez.config.aop.metric;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 耗时直方图,单位微秒<br>
+ * 采用与HdrHistogram相同的对数线性分桶:小于32的值每个值一个桶,之后每个2的幂区间分为16个桶,相对误差不超过1/16。<br>
+ * 超过约19小时的值记入最后一个桶。<br>
+ * 按线程分段计数,不同线程通常写入不同的分段,读取时合并所有分段。<br>
+ * @author Frodez
+ * @date 2020-01-12
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BITS = 5;
+
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	private static final int HALF_COUNT = SUB_COUNT >> 1;
+
+	private static final int HALF_BITS = SUB_BITS - 1;
+
+	private static final long MAX_VALUE = (1L << 36) - 1;
+
+	private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+	private static final int MAX_STRIPES = 16;
+
+	private final AtomicLongArray[] stripes;
+
+	private final int mask;
+
+	public LatencyHistogram() {
+		int count = 1;
+		while (count < MAX_STRIPES && count < Runtime.getRuntime().availableProcessors()) {
+			count <<= 1;
+		}
+		stripes = new AtomicLongArray[count];
+		for (int i = 0; i < count; ++i) {
+			stripes[i] = new AtomicLongArray(BUCKETS);
+		}
+		mask = count - 1;
+	}
+
+	/**
+	 * 记录一次耗时,单位微秒
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public void record(long micros) {
+		int index = index(micros < 0 ? 0 : Math.min(micros, MAX_VALUE));
+		stripes[(int) Thread.currentThread().getId() & mask].incrementAndGet(index);
+	}
+
+	/**
+	 * 合并所有分段,返回各桶的计数
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public long[] snapshot() {
+		long[] counts = new long[BUCKETS];
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < BUCKETS; ++i) {
+				counts[i] += stripe.get(i);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * 计算百分位数,返回对应桶的上界,单位微秒
+	 * @param counts snapshot()的返回值
+	 * @param total counts中的计数之和
+	 * @param percentile 百分位,取值范围[0, 100]
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public static long percentile(long[] counts, long total, double percentile) {
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < counts.length; ++i) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return upper(i);
+			}
+		}
+		return upper(counts.length - 1);
+	}
+
+	/**
+	 * 最大值所在桶的上界,单位微秒
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public static long max(long[] counts) {
+		for (int i = counts.length - 1; i >= 0; --i) {
+			if (counts[i] != 0) {
+				return upper(i);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * 计数之和
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public static long total(long[] counts) {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	private static int index(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		//value位于[2^exp, 2^(exp+1)),右移shift位后位于[16, 32)
+		int shift = 63 - Long.numberOfLeadingZeros(value) - HALF_BITS;
+		return (shift << HALF_BITS) + (int) (value >>> shift);
+	}
+
+	private static long upper(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int shift = (index >>> HALF_BITS) - 1;
+		long sub = HALF_COUNT + (index & (HALF_COUNT - 1));
+		return ((sub + 1) << shift) - 1;
+	}
+
+}
@@ -0,0 +1,29 @@
+package frodez.config.aop.metric;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 性能统计配置
+ * @author Frodez
+ * @date 2020-01-12
+ */
+@Data
+@Component
+@PropertySource(value = { "classpath:settings/global/metric.properties" })
+@ConfigurationProperties(prefix = "metric")
+public class MetricProperties {
+
+	/**
+	 * 是否统计所有控制器方法,为false时只统计含有@DurationLog注解的方法
+	 */
+	private Boolean endpoints = true;
+
+	/**
+	 * 定时输出统计日志的间隔,单位秒。小于等于0时不输出。
+	 */
+	private Long dumpInterval = 300L;
+
+}
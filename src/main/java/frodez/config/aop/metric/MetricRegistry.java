@@ -0,0 +1,151 @@
+package frodez.config.aop.metric;
+
+import frodez.dao.model.result.config.EndpointMetricInfo;
+import frodez.util.reflect.ReflectUtil;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 方法性能统计<br>
+ * 切面在切点匹配时通过register获取统计对象,请求时直接写入,不再查找。<br>
+ * 统计结果可通过report获取,也会按配置的间隔输出到日志。<br>
+ * @author Frodez
+ * @date 2020-01-12
+ */
+@Slf4j
+@Component("metricRegistry")
+public class MetricRegistry {
+
+	private Map<Method, EndpointMetrics> metrics = new ConcurrentHashMap<>();
+
+	/**
+	 * 同名方法(重载)共用一个统计对象
+	 */
+	private Map<String, EndpointMetrics> names = new ConcurrentHashMap<>();
+
+	private boolean endpoints;
+
+	private ScheduledExecutorService dumper;
+
+	@Autowired
+	public MetricRegistry(MetricProperties properties) {
+		endpoints = properties.getEndpoints();
+		long interval = properties.getDumpInterval();
+		if (interval > 0) {
+			dumper = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+				Thread thread = new Thread(runnable, "metric-dumper");
+				thread.setDaemon(true);
+				return thread;
+			});
+			dumper.scheduleAtFixedRate(this::dump, interval, interval, TimeUnit.SECONDS);
+		}
+	}
+
+	@PreDestroy
+	private void destroy() {
+		if (dumper != null) {
+			dumper.shutdownNow();
+		}
+	}
+
+	/**
+	 * 是否统计所有控制器方法
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public boolean isEndpoints() {
+		return endpoints;
+	}
+
+	/**
+	 * 获取方法对应的统计对象,不存在时创建
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public EndpointMetrics register(Method method) {
+		EndpointMetrics result = metrics.get(method);
+		if (result != null) {
+			return result;
+		}
+		return metrics.computeIfAbsent(method, (key) -> {
+			String name = ReflectUtil.getFullMethodName(key);
+			return names.computeIfAbsent(name, EndpointMetrics::new);
+		});
+	}
+
+	/**
+	 * 获取所有方法的统计信息,按调用次数从多到少排列
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public List<EndpointMetricInfo> report() {
+		long now = System.currentTimeMillis();
+		List<EndpointMetricInfo> result = new ArrayList<>(names.size());
+		for (EndpointMetrics item : names.values()) {
+			result.add(info(item, item.snapshot(), now));
+		}
+		result.sort(Comparator.comparing(EndpointMetricInfo::getCount).reversed());
+		return result;
+	}
+
+	private EndpointMetricInfo info(EndpointMetrics item, long[] counts, long now) {
+		long count = LatencyHistogram.total(counts);
+		EndpointMetricInfo info = new EndpointMetricInfo();
+		info.setName(item.getName());
+		info.setCount(count);
+		info.setThroughput(count * 1000.0 / Math.max(1, now - item.getStart()));
+		info.setErrors(item.getErrors());
+		info.setLimited(item.getLimited());
+		info.setRepeated(item.getRepeated());
+		info.setMean(count == 0 ? 0 : millis(item.getTotalTime()) / count);
+		info.setP50(millis(LatencyHistogram.percentile(counts, count, 50)));
+		info.setP99(millis(LatencyHistogram.percentile(counts, count, 99)));
+		info.setP999(millis(LatencyHistogram.percentile(counts, count, 99.9)));
+		info.setMax(millis(LatencyHistogram.max(counts)));
+		return info;
+	}
+
+	/**
+	 * 输出上次输出后有调用的方法的统计信息
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	private void dump() {
+		try {
+			long now = System.currentTimeMillis();
+			for (EndpointMetrics item : names.values()) {
+				long[] counts = item.snapshot();
+				long count = LatencyHistogram.total(counts);
+				EndpointMetricInfo info = info(item, counts, now);
+				long activity = count + info.getErrors() + info.getLimited() + info.getRepeated();
+				if (activity == item.lastActivity) {
+					continue;
+				}
+				long delta = count - item.lastCount;
+				item.lastCount = count;
+				item.lastActivity = activity;
+				log.info("{} 新增调用{}次,累计调用{}次,异常{}次,限流{}次,重复请求{}次,耗时(毫秒) 平均:{} p50:{} p99:{} p999:{} 最大:{}", info.getName(), delta, count,
+					info.getErrors(), info.getLimited(), info.getRepeated(), info.getMean(), info.getP50(), info.getP99(), info.getP999(), info
+						.getMax());
+			}
+		} catch (Exception e) {
+			log.error("[metric-dumper]", e);
+		}
+	}
+
+	private static double millis(long micros) {
+		return micros / 1000.0;
+	}
+
+}
@@ -0,0 +1,6 @@
+/**
+ * 本包用于统计方法性能,包括耗时分布、吞吐量、异常次数以及被限流和被拒绝的重复请求次数。
+ * @author Frodez
+ * @date 2020-01-12
+ */
+package frodez.config.aop.metric;
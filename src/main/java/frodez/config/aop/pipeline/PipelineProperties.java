@@ -0,0 +1,15 @@
+package frodez.config.aop.pipeline;
+
+/**
+ * 端点合并切面配置
+ * @author Frodez
+ * @date 2020-01-12
+ */
+public class PipelineProperties {
+
+	/**
+	 * 启用合并切面,关闭后控制器方法仍由各个独立的切面处理
+	 */
+	public static final boolean enabled = true;
+
+}
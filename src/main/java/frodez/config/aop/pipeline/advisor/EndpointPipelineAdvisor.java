@@ -0,0 +1,465 @@
+package frodez.config.aop.pipeline.advisor;
+
+import frodez.config.aop.exception.ExceptionProperties;
+import frodez.config.aop.exception.annotation.CatchAndReturn;
+import frodez.config.aop.exception.annotation.CatchAndThrow;
+import frodez.config.aop.exception.annotation.Error;
+import frodez.config.aop.exception.annotation.Error.ErrorHelper;
+import frodez.config.aop.log.annotation.DurationLog;
+import frodez.config.aop.log.annotation.MethodLog;
+import frodez.config.aop.log.writer.LogPoint;
+import frodez.config.aop.log.writer.LogWriter;
+import frodez.config.aop.metric.EndpointMetrics;
+import frodez.config.aop.metric.MetricRegistry;
+import frodez.config.aop.request.annotation.Limit;
+import frodez.config.aop.request.annotation.Limit.LimitHelper;
+import frodez.config.aop.request.annotation.RepeatLock;
+import frodez.config.aop.request.annotation.RepeatLock.RepeatLockHelper;
+import frodez.config.aop.request.annotation.TimeoutLock;
+import frodez.config.aop.request.annotation.TimeoutLock.TimeoutLockHelper;
+import frodez.config.aop.request.checker.facade.AutoChecker;
+import frodez.config.aop.request.checker.facade.ManualChecker;
+import frodez.config.aop.request.checker.facade.ManualChecker.Handle;
+import frodez.config.aop.request.checker.impl.KeyGenerator;
+import frodez.config.aop.request.checker.impl.RequestKey;
+import frodez.config.aop.request.limiter.facade.Limiter;
+import frodez.config.aop.util.AOPUtil;
+import frodez.config.aop.validation.annotation.Check;
+import frodez.config.code.checker.CodeChecker;
+import frodez.config.validator.ValidationUtil;
+import frodez.constant.errors.code.ErrorCode;
+import frodez.constant.errors.code.ServiceException;
+import frodez.constant.errors.exception.CodeCheckException;
+import frodez.util.beans.result.Result;
+import frodez.util.common.StrUtil;
+import frodez.util.http.ServletUtil;
+import frodez.util.reflect.ReflectUtil;
+import frodez.util.spring.MVCUtil;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.MethodMatcher;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.PointcutAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.concurrent.ListenableFuture;
+
+/**
+ * 控制器端点合并切面<br>
+ * 将MethodLog,DurationLog,CatchAndThrow,CatchAndReturn,Limit,TimeoutLock,RepeatLock和Check对应的切面合并为一个切面。<br>
+ * <strong>原理:</strong><br>
+ * 切点匹配时读取方法和类上的注解,预先计算出该方法的执行计划(方法名,参数名,阈值,错误码,限流配置等)。<br>
+ * 请求时只需根据方法查找一次执行计划,然后依次执行计划中启用的步骤,不再经过多层代理,也不再拼接方法名。<br>
+ * 执行顺序与原有切面一致:日志,耗时,异常处理,限流,重复请求,参数验证。限流和重复请求共用同一个请求key。<br>
+ * 耗时,异常和被拒绝的请求同时记录到MetricRegistry中。<br>
+ * @see frodez.config.aop.pipeline.PipelineProperties
+ * @author Frodez
+ * @date 2020-01-12
+ */
+@Slf4j
+@Component
+@Order(Integer.MIN_VALUE)
+public class EndpointPipelineAdvisor implements PointcutAdvisor {
+
+	private static final long times = 1000 * 1000;
+
+	@Autowired
+	@Qualifier("limiter")
+	private Limiter limiter;
+
+	@Autowired
+	@Qualifier("repeatLocalChecker")
+	private ManualChecker manualChecker;
+
+	@Autowired
+	@Qualifier("timeoutWheelChecker")
+	private AutoChecker autoChecker;
+
+	@Autowired
+	@Qualifier("hibernateValidatorCodeChecker")
+	private CodeChecker codeChecker;
+
+	@Autowired
+	@Qualifier("logWriter")
+	private LogWriter writer;
+
+	@Autowired
+	@Qualifier("metricRegistry")
+	private MetricRegistry registry;
+
+	/**
+	 * 执行计划
+	 */
+	private Map<Method, Plan> plans = new HashMap<>();
+
+	/**
+	 * AOP切点
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	@Override
+	public Advice getAdvice() {
+		return (MethodInterceptor) invocation -> {
+			Plan plan = plans.get(invocation.getMethod());
+			boolean sampled = plan.logPoint != null && writer.sample(plan.logPoint);
+			if (sampled) {
+				writer.param(plan.logPoint, invocation.getArguments());
+			}
+			long count = plan.timed ? System.nanoTime() : 0;
+			Object result;
+			try {
+				result = guard(plan, invocation);
+			} catch (Exception e) {
+				if (plan.metrics != null) {
+					plan.metrics.error();
+				}
+				if (plan.errorCode != null) {
+					log.error(plan.label, e);
+					throw new ServiceException(plan.errorCode);
+				}
+				if (!plan.catching) {
+					throw e;
+				}
+				log.error(plan.label, e);
+				result = plan.of(Result.errorService());
+			}
+			if (plan.timed) {
+				count = System.nanoTime() - count;
+				if (plan.metrics != null) {
+					plan.metrics.record(count);
+				}
+				if (plan.threshold != 0 && count > plan.threshold) {
+					log.warn("{}方法耗时{}毫秒,触发超时警告!", plan.name, count / times);
+				}
+			}
+			if (sampled) {
+				logResult(plan, result);
+			}
+			return result;
+		};
+	}
+
+	/**
+	 * 限流和重复请求检查,通过后进行参数验证
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	private Object guard(Plan plan, MethodInvocation invocation) throws Throwable {
+		if (!plan.keyed) {
+			return validate(plan, invocation);
+		}
+		HttpServletRequest request = MVCUtil.request();
+		RequestKey key = KeyGenerator.servletKey(plan.id, request);
+		if (plan.limit && !limiter.tryAcquire(key, plan.permits, plan.limitTimeout)) {
+			if (plan.metrics != null) {
+				plan.metrics.limited();
+			}
+			return plan.of(Result.busy());
+		}
+		if (plan.timeout != 0) {
+			if (autoChecker.check(key)) {
+				log.info("重复请求:IP地址{}", ServletUtil.getAddr(request));
+				if (plan.metrics != null) {
+					plan.metrics.repeated();
+				}
+				return plan.of(Result.repeatRequest());
+			}
+			autoChecker.lock(key, plan.timeout);
+		}
+		if (!plan.repeat) {
+			return validate(plan, invocation);
+		}
+		//检查与加锁为原子操作,只有加锁成功的请求才会解锁
+		try (Handle handle = manualChecker.tryLock(key)) {
+			if (handle == null) {
+				log.info("重复请求:IP地址{}", ServletUtil.getAddr(request));
+				if (plan.metrics != null) {
+					plan.metrics.repeated();
+				}
+				return plan.of(Result.repeatRequest());
+			}
+			return validate(plan, invocation);
+		}
+	}
+
+	private Object validate(Plan plan, MethodInvocation invocation) throws Throwable {
+		if (plan.validate) {
+			String msg = ValidationUtil.validateParam(invocation.getThis(), invocation.getMethod(), invocation.getArguments());
+			if (msg != null) {
+				return plan.of(Result.errorRequest(msg));
+			}
+		}
+		return invocation.proceed();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void logResult(Plan plan, Object result) {
+		if (plan.async) {
+			writer.asyncResult(plan.logPoint, (ListenableFuture<Result>) result);
+		} else {
+			writer.result(plan.logPoint, result);
+		}
+	}
+
+	/**
+	 * 根据注解生成执行计划,如果没有需要执行的步骤,返回null
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	private Plan compile(Method method, Class<?> targetClass) {
+		Plan plan = new Plan();
+		plan.name = ReflectUtil.getFullMethodName(method);
+		plan.label = StrUtil.concat("[", plan.name, "]");
+		plan.async = AOPUtil.isAsyncResultAsReturn(method);
+		MethodLog methodLog = AnnotationUtils.findAnnotation(method, MethodLog.class);
+		if (methodLog != null) {
+			plan.logPoint = writer.point(log, method, methodLog.rate(), methodLog.maxLength());
+		}
+		DurationLog durationLog = AnnotationUtils.findAnnotation(method, DurationLog.class);
+		if (durationLog != null) {
+			if (durationLog.threshold() <= 0) {
+				throw new CodeCheckException("方法", plan.name, "的阈值必须大于0!");
+			}
+			plan.threshold = durationLog.threshold() * times;
+		}
+		if (durationLog != null || registry.isEndpoints()) {
+			plan.metrics = registry.register(method);
+		}
+		plan.timed = plan.threshold != 0 || plan.metrics != null;
+		if (ExceptionProperties.autoConfig) {
+			if (AnnotationUtils.findAnnotation(targetClass, Error.class) != null) {
+				if (AnnotationUtils.findAnnotation(method, Transactional.class) != null) {
+					plan.errorCode = ErrorHelper.resolve(method, targetClass);
+				} else {
+					plan.catching = true;
+				}
+			}
+		} else {
+			if (AnnotationUtils.findAnnotation(method, CatchAndThrow.class) != null) {
+				plan.errorCode = ErrorHelper.resolve(method, targetClass);
+			}
+			plan.catching = AnnotationUtils.findAnnotation(method, CatchAndReturn.class) != null;
+		}
+		//异步方法上存在RepeatLock时,让给RepeatLock
+		boolean yieldToRepeat = plan.async && AnnotationUtils.findAnnotation(method, RepeatLock.class) != null;
+		Limit limit = LimitHelper.get(method, targetClass);
+		if (limit != null && !yieldToRepeat) {
+			LimitHelper.check(method, limit);
+			plan.limit = true;
+			plan.permits = limit.value();
+			plan.limitTimeout = limit.timeout();
+		}
+		TimeoutLock timeoutLock = TimeoutLockHelper.get(method, targetClass);
+		if (timeoutLock != null && !yieldToRepeat) {
+			TimeoutLockHelper.check(method, timeoutLock);
+			plan.timeout = timeoutLock.value();
+		}
+		//方法上存在TimeoutLock时,让给TimeoutLock
+		plan.repeat = RepeatLockHelper.get(method, targetClass) != null && AnnotationUtils.findAnnotation(method, TimeoutLock.class) == null;
+		if (AnnotationUtils.findAnnotation(method, Check.class) != null) {
+			codeChecker.checkMethod(method);
+			ValidationUtil.compile(method, targetClass);
+			plan.validate = true;
+		}
+		plan.keyed = plan.limit || plan.timeout != 0 || plan.repeat;
+		if (plan.keyed) {
+			plan.id = KeyGenerator.register(method);
+		}
+		if (!plan.keyed && plan.logPoint == null && !plan.timed && plan.errorCode == null && !plan.catching && !plan.validate) {
+			return null;
+		}
+		return plan;
+	}
+
+	/**
+	 * 默认true
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	@Override
+	public boolean isPerInstance() {
+		return true;
+	}
+
+	/**
+	 * 切入点配置
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	@Override
+	public Pointcut getPointcut() {
+		return new Pointcut() {
+
+			/**
+			 * 根据方法判断
+			 * @author Frodez
+			 * @date 2020-01-12
+			 */
+			@Override
+			public MethodMatcher getMethodMatcher() {
+				return new MethodMatcher() {
+
+					/**
+					 * 对方法进行判断(运行时)
+					 * @author Frodez
+					 * @date 2020-01-12
+					 */
+					@Override
+					public boolean matches(Method method, Class<?> targetClass, Object... args) {
+						//isRuntime()方法返回值为false时,不会进行运行时判断
+						return false;
+					}
+
+					/**
+					 * 对方法进行判断
+					 * @author Frodez
+					 * @date 2020-01-12
+					 */
+					@Override
+					public boolean matches(Method method, Class<?> targetClass) {
+						if (!AOPUtil.isPipelined(method, targetClass)) {
+							return false;
+						}
+						Plan plan = compile(method, targetClass);
+						if (plan == null) {
+							return false;
+						}
+						plans.put(method, plan);
+						return true;
+					}
+
+					/**
+					 * 默认true
+					 * @author Frodez
+					 * @date 2020-01-12
+					 */
+					@Override
+					public boolean isRuntime() {
+						return false;
+					}
+				};
+			}
+
+			/**
+			 * 根据类型判断
+			 * @author Frodez
+			 * @date 2020-01-12
+			 */
+			@Override
+			public ClassFilter getClassFilter() {
+				return clazz -> true;
+			}
+
+		};
+	}
+
+	/**
+	 * 执行计划,切点匹配时生成,之后不再修改
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	private static class Plan {
+
+		/**
+		 * 方法全限定名
+		 */
+		String name;
+
+		/**
+		 * 异常日志标签
+		 */
+		String label;
+
+		/**
+		 * 返回值是否为AsyncResult
+		 */
+		boolean async;
+
+		/**
+		 * 参数和返回值日志配置,为null时不记录
+		 */
+		LogPoint logPoint;
+
+		/**
+		 * 耗时告警阈值,单位纳秒,为0时不检测
+		 */
+		long threshold;
+
+		/**
+		 * 性能统计,为null时不统计
+		 */
+		EndpointMetrics metrics;
+
+		/**
+		 * 是否需要计时
+		 */
+		boolean timed;
+
+		/**
+		 * 抛出异常时使用的错误码,为null时不转换异常
+		 */
+		ErrorCode errorCode;
+
+		/**
+		 * 是否捕获异常并返回Result.errorService()
+		 */
+		boolean catching;
+
+		/**
+		 * 是否需要请求key
+		 */
+		boolean keyed;
+
+		/**
+		 * 方法id
+		 */
+		int id;
+
+		/**
+		 * 是否限流
+		 */
+		boolean limit;
+
+		/**
+		 * 每秒每token限制请求数
+		 */
+		double permits;
+
+		/**
+		 * 限流超时时间,单位毫秒
+		 */
+		long limitTimeout;
+
+		/**
+		 * 重复请求过期时间,单位毫秒,为0时不检测
+		 */
+		long timeout;
+
+		/**
+		 * 是否阻塞重复请求
+		 */
+		boolean repeat;
+
+		/**
+		 * 是否验证参数
+		 */
+		boolean validate;
+
+		Object of(Result result) {
+			return async ? result.async() : result;
+		}
+
+	}
+
+}
@@ -0,0 +1,8 @@
+/**
+ * 本包用于配置控制器端点的合并切面。<br>
+ * 控制器中返回Result或者ListenableFuture&lt;Result&gt;的方法,其日志、耗时、异常、限流、重复请求和参数验证切面合并为一个切面执行。<br>
+ * 各项配置在切点匹配时预先计算,请求时只需要一次查找。<br>
+ * @author Frodez
+ * @date 2020-01-12
+ */
+package frodez.config.aop.pipeline;
@@ -1,14 +1,16 @@
 package frodez.config.aop.request.advisor;
 
+import frodez.config.aop.metric.MetricRegistry;
 import frodez.config.aop.request.annotation.RepeatLock;
 import frodez.config.aop.request.annotation.RepeatLock.RepeatLockHelper;
 import frodez.config.aop.request.annotation.TimeoutLock;
 import frodez.config.aop.request.checker.facade.ManualChecker;
+import frodez.config.aop.request.checker.facade.ManualChecker.Handle;
 import frodez.config.aop.request.checker.impl.KeyGenerator;
+import frodez.config.aop.request.checker.impl.RequestKey;
 import frodez.config.aop.util.AOPUtil;
 import frodez.util.beans.result.Result;
 import frodez.util.http.ServletUtil;
-import frodez.util.reflect.ReflectUtil;
 import frodez.util.spring.MVCUtil;
 import java.lang.reflect.Method;
 import javax.servlet.http.HttpServletRequest;
@@ -39,11 +41,18 @@ import org.springframework.stereotype.Component;
 @Component
 public class AsyncRepeatAdvisor implements PointcutAdvisor {
 
+	/**
+	 * 性能统计
+	 */
+	@Autowired
+	@Qualifier("metricRegistry")
+	private MetricRegistry registry;
+
 	/**
 	 * 阻塞型重复请求检查
 	 */
 	@Autowired
-	@Qualifier("repeatGuavaChecker")
+	@Qualifier("repeatLocalChecker")
 	private ManualChecker checker;
 
 	/**
@@ -62,16 +71,15 @@ public class AsyncRepeatAdvisor implements PointcutAdvisor {
 		 */
 		return (MethodInterceptor) invocation -> {
 			HttpServletRequest request = MVCUtil.request();
-			String key = KeyGenerator.servletKey(ReflectUtil.getFullMethodName(invocation.getMethod()), request);
-			try {
-				if (checker.check(key)) {
+			RequestKey key = KeyGenerator.servletKey(invocation.getMethod(), request);
+			//检查与加锁为原子操作,只有加锁成功的请求才会解锁
+			try (Handle handle = checker.tryLock(key)) {
+				if (handle == null) {
 					log.info("重复请求:IP地址{}", ServletUtil.getAddr(request));
+					registry.register(invocation.getMethod()).repeated();
 					return Result.repeatRequest().async();
 				}
-				checker.lock(key);
 				return invocation.proceed();
-			} finally {
-				checker.free(key);
 			}
 		};
 	}
@@ -122,6 +130,10 @@ public class AsyncRepeatAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
+						//控制器方法由EndpointPipelineAdvisor处理
+						if (AOPUtil.isPipelined(method, targetClass)) {
+							return false;
+						}
 						if (!AOPUtil.isController(targetClass)) {
 							return false;
 						}
@@ -136,6 +148,7 @@ public class AsyncRepeatAdvisor implements PointcutAdvisor {
 						if (!AOPUtil.isAsyncResultAsReturn(method)) {
 							return false;
 						}
+						KeyGenerator.register(method);
 						return true;
 					}
 
@@ -1,13 +1,13 @@
 package frodez.config.aop.request.advisor;
 
-import com.google.common.util.concurrent.RateLimiter;
+import frodez.config.aop.metric.MetricRegistry;
 import frodez.config.aop.request.annotation.Limit;
 import frodez.config.aop.request.annotation.Limit.LimitHelper;
+import frodez.config.aop.request.checker.impl.KeyGenerator;
+import frodez.config.aop.request.limiter.facade.Limiter;
 import frodez.config.aop.util.AOPUtil;
-import frodez.constant.settings.DefTime;
-import frodez.util.beans.pair.Pair;
 import frodez.util.beans.result.Result;
-import frodez.util.reflect.ReflectUtil;
+import frodez.util.spring.MVCUtil;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,20 +17,37 @@ import org.springframework.aop.ClassFilter;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.PointcutAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 /**
- * 请求限流AOP
+ * 请求限流AOP<br>
+ * 令牌桶按端点和用户区分,需验证接口按token区分,免验证接口按IP区分。<br>
  * @author Frodez
  * @date 2019-03-06
  */
 @Component
 public class LimitUserAdvisor implements PointcutAdvisor {
 
+	/**
+	 * 性能统计
+	 */
+	@Autowired
+	@Qualifier("metricRegistry")
+	private MetricRegistry registry;
+
 	/**
 	 * 限流器
 	 */
-	private Map<String, Pair<RateLimiter, Long>> limitCache = new HashMap<>();
+	@Autowired
+	@Qualifier("limiter")
+	private Limiter limiter;
+
+	/**
+	 * 限流配置
+	 */
+	private Map<Method, Limit> limitCache = new HashMap<>();
 
 	/**
 	 * AOP切点
@@ -46,8 +63,10 @@ public class LimitUserAdvisor implements PointcutAdvisor {
 		 * @date 2018-12-21
 		 */
 		return (MethodInterceptor) invocation -> {
-			Pair<RateLimiter, Long> pair = limitCache.get(ReflectUtil.getFullMethodName(invocation.getMethod()));
-			if (!pair.getKey().tryAcquire(pair.getValue(), DefTime.UNIT)) {
+			Method method = invocation.getMethod();
+			Limit limit = limitCache.get(method);
+			if (!limiter.tryAcquire(KeyGenerator.servletKey(method, MVCUtil.request()), limit.value(), limit.timeout())) {
+				registry.register(invocation.getMethod()).limited();
 				return Result.busy();
 			}
 			return invocation.proceed();
@@ -100,6 +119,10 @@ public class LimitUserAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
+						//控制器方法由EndpointPipelineAdvisor处理
+						if (AOPUtil.isPipelined(method, targetClass)) {
+							return false;
+						}
 						if (!AOPUtil.isController(targetClass)) {
 							return false;
 						}
@@ -112,8 +135,8 @@ public class LimitUserAdvisor implements PointcutAdvisor {
 						if (!AOPUtil.isResultAsReturn(method)) {
 							return false;
 						}
-						Pair<RateLimiter, Long> pair = new Pair<>(RateLimiter.create(annotation.value()), annotation.timeout());
-						limitCache.put(ReflectUtil.getFullMethodName(method), pair);
+						limitCache.put(method, annotation);
+						KeyGenerator.register(method);
 						return true;
 					}
 
@@ -1,13 +1,14 @@
 package frodez.config.aop.request.advisor;
 
+import frodez.config.aop.metric.MetricRegistry;
 import frodez.config.aop.request.annotation.TimeoutLock;
 import frodez.config.aop.request.annotation.TimeoutLock.TimeoutLockHelper;
 import frodez.config.aop.request.checker.facade.AutoChecker;
 import frodez.config.aop.request.checker.impl.KeyGenerator;
+import frodez.config.aop.request.checker.impl.RequestKey;
 import frodez.config.aop.util.AOPUtil;
 import frodez.util.beans.result.Result;
 import frodez.util.http.ServletUtil;
-import frodez.util.reflect.ReflectUtil;
 import frodez.util.spring.MVCUtil;
 import java.lang.reflect.Method;
 import java.util.HashMap;
@@ -39,17 +40,24 @@ import org.springframework.stereotype.Component;
 @Component
 public class TimeoutAdvisor implements PointcutAdvisor {
 
+	/**
+	 * 性能统计
+	 */
+	@Autowired
+	@Qualifier("metricRegistry")
+	private MetricRegistry registry;
+
 	/**
 	 * 自动超时型重复请求检查
 	 */
 	@Autowired
-	@Qualifier("timeoutGuavaChecker")
+	@Qualifier("timeoutWheelChecker")
 	private AutoChecker checker;
 
 	/**
 	 * 注解配置缓存
 	 */
-	private Map<String, Long> timeoutCache = new HashMap<>();
+	private Map<Method, Long> timeoutCache = new HashMap<>();
 
 	/**
 	 * AOP切点
@@ -66,13 +74,14 @@ public class TimeoutAdvisor implements PointcutAdvisor {
 		 */
 		return (MethodInterceptor) invocation -> {
 			HttpServletRequest request = MVCUtil.request();
-			String name = ReflectUtil.getFullMethodName(invocation.getMethod());
-			String key = KeyGenerator.servletKey(name, request);
+			Method method = invocation.getMethod();
+			RequestKey key = KeyGenerator.servletKey(method, request);
 			if (checker.check(key)) {
 				log.info("重复请求:IP地址{}", ServletUtil.getAddr(request));
+				registry.register(invocation.getMethod()).repeated();
 				return Result.repeatRequest();
 			}
-			checker.lock(key, timeoutCache.get(name));
+			checker.lock(key, timeoutCache.get(method));
 			return invocation.proceed();
 		};
 	}
@@ -123,6 +132,10 @@ public class TimeoutAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
+						//控制器方法由EndpointPipelineAdvisor处理
+						if (AOPUtil.isPipelined(method, targetClass)) {
+							return false;
+						}
 						if (!AOPUtil.isController(targetClass)) {
 							return false;
 						}
@@ -135,7 +148,8 @@ public class TimeoutAdvisor implements PointcutAdvisor {
 						if (!AOPUtil.isResultAsReturn(method)) {
 							return false;
 						}
-						timeoutCache.put(ReflectUtil.getFullMethodName(method), annotation.value());
+						timeoutCache.put(method, annotation.value());
+						KeyGenerator.register(method);
 						return true;
 					}
 
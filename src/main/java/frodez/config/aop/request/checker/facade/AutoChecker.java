@@ -1,5 +1,7 @@
 package frodez.config.aop.request.checker.facade;
 
+import frodez.config.aop.request.checker.impl.RequestKey;
+
 /**
  * 自动超时型重复请求检查接口
  * @author Frodez
@@ -14,6 +16,6 @@ public interface AutoChecker extends Checker {
 	 * @author Frodez
 	 * @date 2019-01-21
 	 */
-	void lock(String key, long timeout);
+	void lock(RequestKey key, long timeout);
 
 }
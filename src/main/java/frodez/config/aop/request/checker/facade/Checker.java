@@ -1,5 +1,7 @@
 package frodez.config.aop.request.checker.facade;
 
+import frodez.config.aop.request.checker.impl.RequestKey;
+
 public interface Checker {
 
 	/**
@@ -8,6 +10,6 @@ public interface Checker {
 	 * @author Frodez
 	 * @date 2019-01-21
 	 */
-	boolean check(String key);
+	boolean check(RequestKey key);
 
 }
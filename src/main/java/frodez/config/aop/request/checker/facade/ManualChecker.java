@@ -1,5 +1,7 @@
 package frodez.config.aop.request.checker.facade;
 
+import frodez.config.aop.request.checker.impl.RequestKey;
+
 /**
  * 阻塞型重复请求检查接口
  * @author Frodez
@@ -8,19 +10,31 @@ package frodez.config.aop.request.checker.facade;
 public interface ManualChecker extends Checker {
 
 	/**
-	 * 加锁
+	 * 尝试加锁<br>
+	 * 检查与加锁是一个原子操作,同一key同一时间只有一个调用者可以成功。<br>
+	 * 成功时返回锁凭证,已被其他调用者锁定时返回null。<br>
 	 * @param key 对应key
 	 * @author Frodez
-	 * @date 2019-01-21
+	 * @date 2020-01-09
 	 */
-	void lock(String key);
+	Handle tryLock(RequestKey key);
 
 	/**
-	 * 解锁
-	 * @param key 对应key
+	 * 锁凭证<br>
+	 * 只有持有凭证的调用者可以解锁,凭证失效(例如锁已超时被他人获取)后解锁不产生任何影响。<br>
 	 * @author Frodez
-	 * @date 2019-01-21
+	 * @date 2020-01-09
 	 */
-	void free(String key);
+	interface Handle extends AutoCloseable {
+
+		/**
+		 * 解锁
+		 * @author Frodez
+		 * @date 2020-01-09
+		 */
+		@Override
+		void close();
+
+	}
 
 }
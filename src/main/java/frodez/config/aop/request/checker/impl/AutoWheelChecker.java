@@ -0,0 +1,236 @@
+package frodez.config.aop.request.checker.impl;
+
+import frodez.config.aop.request.checker.facade.AutoChecker;
+import frodez.config.cache.CacheProperties;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+/**
+ * 自动超时型重复请求检查时间轮实现<br>
+ * 每个key按自己的超时时间过期,过期由分层时间轮驱动,到期即删除,不会残留到统一的超时时间。<br>
+ * 时间轮只由一个后台线程操作,加锁时只把记录放入队列,由后台线程在下一次tick时放入时间轮。<br>
+ * 后台线程每次tick时同时更新粗粒度时钟,check和lock读取该时钟而不是每次调用System.currentTimeMillis(),精度为一个tick。<br>
+ * @author Frodez
+ * @date 2020-01-09
+ */
+@Component("timeoutWheelChecker")
+@DependsOn("contextUtil")
+public class AutoWheelChecker implements AutoChecker {
+
+	/**
+	 * 每层时间轮的槽数为2^WHEEL_BITS
+	 */
+	private static final int WHEEL_BITS = 8;
+
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	/**
+	 * 时间轮层数,tick为10毫秒时可以覆盖约497天
+	 */
+	private static final int LEVELS = 4;
+
+	private final Map<RequestKey, Entry> locks = new ConcurrentHashMap<>();
+
+	/**
+	 * 等待放入时间轮的记录
+	 */
+	private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * 时间轮,每个槽为单链表,只由后台线程访问
+	 */
+	private final Entry[][] wheels = new Entry[LEVELS][WHEEL_SIZE];
+
+	/**
+	 * 超出所有层范围的记录,只由后台线程访问
+	 */
+	private Entry overflow;
+
+	private final long tick;
+
+	private final long start;
+
+	/**
+	 * 当前已推进到的tick数,只由后台线程访问
+	 */
+	private long currentTick;
+
+	/**
+	 * 粗粒度时钟
+	 */
+	private volatile long clock;
+
+	private final LongAdder lockCount = new LongAdder();
+
+	private final LongAdder expiredCount = new LongAdder();
+
+	private final ScheduledExecutorService ticker;
+
+	@Autowired
+	public AutoWheelChecker(CacheProperties properties) {
+		tick = properties.getAutoWheelChecker().getTick();
+		start = System.currentTimeMillis();
+		clock = start;
+		ticker = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "timeout-wheel-checker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ticker.scheduleAtFixedRate(this::advance, tick, tick, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	private void destroy() {
+		ticker.shutdownNow();
+	}
+
+	@Override
+	public boolean check(RequestKey key) {
+		Entry entry = locks.get(key);
+		return entry != null && entry.deadline > clock;
+	}
+
+	@Override
+	public void lock(RequestKey key, long timeout) {
+		Entry entry = new Entry(key, clock + timeout);
+		locks.put(key, entry);
+		pending.offer(entry);
+		lockCount.increment();
+	}
+
+	/**
+	 * 当前未过期的key数量
+	 * @author Frodez
+	 * @date 2020-01-09
+	 */
+	public int size() {
+		return locks.size();
+	}
+
+	/**
+	 * 累计加锁次数
+	 * @author Frodez
+	 * @date 2020-01-09
+	 */
+	public long lockCount() {
+		return lockCount.sum();
+	}
+
+	/**
+	 * 累计过期删除的key数量
+	 * @author Frodez
+	 * @date 2020-01-09
+	 */
+	public long expiredCount() {
+		return expiredCount.sum();
+	}
+
+	/**
+	 * 后台线程每个tick执行一次:更新时钟,放入新记录,推进时间轮
+	 * @author Frodez
+	 * @date 2020-01-09
+	 */
+	private void advance() {
+		long now = System.currentTimeMillis();
+		clock = now;
+		for (Entry entry = pending.poll(); entry != null; entry = pending.poll()) {
+			schedule(entry);
+		}
+		long targetTick = (now - start) / tick;
+		while (currentTick < targetTick) {
+			++currentTick;
+			//先从高层向低层降级,再处理最底层当前槽
+			int level = 1;
+			while (level < LEVELS && (currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+				++level;
+			}
+			if (level == LEVELS) {
+				Entry entries = overflow;
+				overflow = null;
+				reschedule(entries);
+			}
+			for (int i = level - 1; i > 0; --i) {
+				reschedule(take(i, (int) (currentTick >>> (WHEEL_BITS * i)) & WHEEL_MASK));
+			}
+			Entry entry = take(0, (int) currentTick & WHEEL_MASK);
+			while (entry != null) {
+				Entry next = entry.next;
+				expire(entry);
+				entry = next;
+			}
+		}
+	}
+
+	private void schedule(Entry entry) {
+		long deadlineTick = (entry.deadline - start + tick - 1) / tick;
+		if (deadlineTick <= currentTick) {
+			expire(entry);
+			return;
+		}
+		//放入与当前tick处于同一上层区间的最低层
+		for (int level = 0; level < LEVELS; ++level) {
+			int shift = WHEEL_BITS * (level + 1);
+			if ((deadlineTick >>> shift) == (currentTick >>> shift)) {
+				int slot = (int) (deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+				entry.next = wheels[level][slot];
+				wheels[level][slot] = entry;
+				return;
+			}
+		}
+		entry.next = overflow;
+		overflow = entry;
+	}
+
+	private void reschedule(Entry entry) {
+		while (entry != null) {
+			Entry next = entry.next;
+			schedule(entry);
+			entry = next;
+		}
+	}
+
+	private Entry take(int level, int slot) {
+		Entry entry = wheels[level][slot];
+		wheels[level][slot] = null;
+		return entry;
+	}
+
+	private void expire(Entry entry) {
+		entry.next = null;
+		//key可能已被重新加锁,此时只删除旧记录
+		if (locks.remove(entry.key, entry)) {
+			expiredCount.increment();
+		}
+	}
+
+	private static class Entry {
+
+		final RequestKey key;
+
+		final long deadline;
+
+		/**
+		 * 时间轮槽内的下一条记录
+		 */
+		Entry next;
+
+		Entry(RequestKey key, long deadline) {
+			this.key = key;
+			this.deadline = deadline;
+		}
+
+	}
+
+}
@@ -2,29 +2,126 @@ package frodez.config.aop.request.checker.impl;
 
 import frodez.config.security.util.Matcher;
 import frodez.config.security.util.TokenUtil;
-import frodez.constant.settings.DefStr;
-import frodez.util.common.StrUtil;
+import frodez.constant.errors.exception.CodeCheckException;
 import frodez.util.http.ServletUtil;
+import frodez.util.reflect.ReflectUtil;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.servlet.http.HttpServletRequest;
 import org.springframework.stereotype.Component;
 
+/**
+ * 请求key生成器<br>
+ * 方法id在切点匹配时通过register预先计算,请求时只需计算路径和token(或IP)的哈希,不拼接字符串。<br>
+ * @author Frodez
+ * @date 2020-01-10
+ */
 @Component
 public class KeyGenerator {
 
-	public static String servletKey(String sault, HttpServletRequest request) {
-		String key = StrUtil.concat(sault, DefStr.SEPERATOR, request.getRequestURI());
+	/**
+	 * 以下常量用于区分哈希内容的不同部分,均不在char的取值范围内
+	 */
+	private static final int URI_END = 0x10000;
+
+	private static final int TOKEN = 0x10001;
+
+	private static final int ADDRESS = 0x10002;
+
+	private static final long SEED_HIGH = 0x9E3779B97F4A7C15L;
+
+	private static final long SEED_LOW = 0xCBF29CE484222325L;
+
+	private static final long PRIME_HIGH = 0xC2B2AE3D27D4EB4FL;
+
+	private static final long PRIME_LOW = 0x100000001B3L;
+
+	private static final Map<Method, Integer> methodIds = new ConcurrentHashMap<>();
+
+	private static final Map<Integer, String> methodNames = new ConcurrentHashMap<>();
+
+	/**
+	 * 注册方法并返回方法id,应在切点匹配时调用<br>
+	 * 方法id由方法全限定名计算,各节点之间保持一致。同名方法(重载)共用一个id。<br>
+	 * @author Frodez
+	 * @date 2020-01-10
+	 */
+	public static int register(Method method) {
+		return methodIds.computeIfAbsent(method, (key) -> {
+			String name = ReflectUtil.getFullMethodName(key);
+			int id = name.hashCode();
+			String existed = methodNames.putIfAbsent(id, name);
+			if (existed != null && !existed.equals(name)) {
+				throw new CodeCheckException("方法", name, "与方法", existed, "的id冲突!");
+			}
+			return id;
+		});
+	}
+
+	/**
+	 * 生成请求key,方法必须已经通过register注册
+	 * @author Frodez
+	 * @date 2020-01-10
+	 */
+	public static RequestKey servletKey(Method method, HttpServletRequest request) {
+		Integer id = methodIds.get(method);
+		if (id == null) {
+			id = register(method);
+		}
+		return servletKey(id.intValue(), request);
+	}
+
+	/**
+	 * 根据register返回的方法id生成请求key
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public static RequestKey servletKey(int id, HttpServletRequest request) {
+		String uri = request.getRequestURI();
 		if (Matcher.needVerify(request)) {
 			// 需验证接口使用token判断,同一token不能重复请求
-			String fullToken = TokenUtil.getFullToken(request);
-			if (fullToken == null) {
-				return key;
-			} else {
-				return StrUtil.concat(key, DefStr.SEPERATOR, fullToken);
-			}
+			return hash(id, uri, TOKEN, TokenUtil.getFullToken(request));
 		} else {
 			// 验证接口使用IP判断,同一IP不能重复请求
-			return StrUtil.concat(key, DefStr.SEPERATOR, ServletUtil.getAddr(request));
+			return hash(id, uri, ADDRESS, ServletUtil.getAddr(request));
 		}
 	}
 
+	private static RequestKey hash(int id, String uri, int type, String subject) {
+		long high = SEED_HIGH;
+		long low = SEED_LOW;
+		for (int i = 0, length = uri.length(); i < length; ++i) {
+			char c = uri.charAt(i);
+			high = Long.rotateLeft(high ^ c, 31) * PRIME_HIGH;
+			low = (low ^ c) * PRIME_LOW;
+		}
+		high = Long.rotateLeft(high ^ URI_END, 31) * PRIME_HIGH;
+		low = (low ^ URI_END) * PRIME_LOW;
+		high = Long.rotateLeft(high ^ type, 31) * PRIME_HIGH;
+		low = (low ^ type) * PRIME_LOW;
+		if (subject != null) {
+			for (int i = 0, length = subject.length(); i < length; ++i) {
+				char c = subject.charAt(i);
+				high = Long.rotateLeft(high ^ c, 31) * PRIME_HIGH;
+				low = (low ^ c) * PRIME_LOW;
+			}
+		}
+		return new RequestKey(id, mix(high), mix(low));
+	}
+
+	/**
+	 * murmur3的64位最终混合函数
+	 * @author Frodez
+	 * @date 2020-01-10
+	 */
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
 }
@@ -0,0 +1,108 @@
+package frodez.config.aop.request.checker.impl;
+
+import frodez.config.aop.request.checker.facade.ManualChecker;
+import frodez.config.cache.CacheProperties;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+/**
+ * 阻塞型重复请求检查CONCURRENTHASHMAP实现<br>
+ * 加锁通过ConcurrentHashMap.putIfAbsent完成,检查与加锁是一个原子操作。<br>
+ * 每个锁有超时时间,用于兜底未能正常解锁的情况。超时的锁可以被直接替换,并且定时清理,清理间隔与超时时间相同。<br>
+ * @author Frodez
+ * @date 2020-01-09
+ */
+@Component("repeatLocalChecker")
+@DependsOn("contextUtil")
+public class ManualLocalChecker implements ManualChecker {
+
+	private final Map<RequestKey, Holder> locks = new ConcurrentHashMap<>();
+
+	private final AtomicBoolean sweeping = new AtomicBoolean();
+
+	private final long timeout;
+
+	private volatile long nextSweep;
+
+	@Autowired
+	public ManualLocalChecker(CacheProperties properties) {
+		timeout = properties.getManualLocalChecker().getTimeout();
+		nextSweep = System.currentTimeMillis() + timeout;
+	}
+
+	@Override
+	public boolean check(RequestKey key) {
+		Holder holder = locks.get(key);
+		return holder != null && !holder.expired(System.currentTimeMillis());
+	}
+
+	@Override
+	public Handle tryLock(RequestKey key) {
+		long now = System.currentTimeMillis();
+		sweep(now);
+		Holder holder = new Holder(key, now + timeout);
+		Holder previous = locks.putIfAbsent(key, holder);
+		if (previous == null) {
+			return holder;
+		}
+		//已超时的锁可以直接替换,替换失败说明被其他调用者抢先
+		if (previous.expired(now) && locks.replace(key, previous, holder)) {
+			return holder;
+		}
+		return null;
+	}
+
+	/**
+	 * 当前锁数量
+	 * @author Frodez
+	 * @date 2020-01-09
+	 */
+	public int size() {
+		return locks.size();
+	}
+
+	/**
+	 * 清理已超时的锁,同一时间只有一个线程执行,其他线程直接跳过
+	 * @author Frodez
+	 * @date 2020-01-09
+	 */
+	private void sweep(long now) {
+		if (now < nextSweep || !sweeping.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			nextSweep = now + timeout;
+			locks.values().removeIf((holder) -> holder.expired(now));
+		} finally {
+			sweeping.set(false);
+		}
+	}
+
+	private class Holder implements Handle {
+
+		final RequestKey key;
+
+		final long expiresAt;
+
+		Holder(RequestKey key, long expiresAt) {
+			this.key = key;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean expired(long now) {
+			return expiresAt <= now;
+		}
+
+		@Override
+		public void close() {
+			//只删除自己持有的锁
+			locks.remove(key, this);
+		}
+
+	}
+
+}
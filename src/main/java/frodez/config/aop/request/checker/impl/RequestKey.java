@@ -0,0 +1,58 @@
+package frodez.config.aop.request.checker.impl;
+
+/**
+ * 请求key<br>
+ * 由方法id和128位哈希组成,哈希的内容为请求路径以及token(免验证接口为IP)。<br>
+ * 相比于拼接而成的字符串,不需要保存完整的token,占用内存固定。<br>
+ * 方法id和哈希算法在各节点之间保持一致,因此toString()的结果可以作为分布式缓存的key。<br>
+ * @author Frodez
+ * @date 2020-01-10
+ */
+public final class RequestKey {
+
+	private final int method;
+
+	private final long high;
+
+	private final long low;
+
+	public RequestKey(int method, long high, long low) {
+		this.method = method;
+		this.high = high;
+		this.low = low;
+	}
+
+	@Override
+	public int hashCode() {
+		//low已经过充分混合,可以直接使用
+		return (int) (low ^ (low >>> 32)) ^ method;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof RequestKey)) {
+			return false;
+		}
+		RequestKey other = (RequestKey) obj;
+		return method == other.method && high == other.high && low == other.low;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(40);
+		appendHex(builder, method, 8);
+		appendHex(builder, high, 16);
+		appendHex(builder, low, 16);
+		return builder.toString();
+	}
+
+	private static void appendHex(StringBuilder builder, long value, int digits) {
+		for (int i = digits - 1; i >= 0; --i) {
+			builder.append(Character.forDigit((int) (value >>> (i << 2)) & 0xF, 16));
+		}
+	}
+
+}
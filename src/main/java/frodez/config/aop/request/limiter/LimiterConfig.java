@@ -0,0 +1,36 @@
+package frodez.config.aop.request.limiter;
+
+import frodez.config.aop.request.limiter.facade.Limiter;
+import frodez.config.cache.CacheProperties;
+import frodez.constant.errors.exception.CodeCheckException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 限流器配置类<br>
+ * 根据cache.limiter.backend选择限流器实现,local为本地限流,redis为分布式限流。<br>
+ * @author Frodez
+ * @date 2020-01-09
+ */
+@Configuration
+public class LimiterConfig {
+
+	public static final String LOCAL = "local";
+
+	public static final String REDIS = "redis";
+
+	@Bean("limiter")
+	public Limiter limiter(CacheProperties properties, @Qualifier("localLimiter") Limiter localLimiter,
+		@Qualifier("redisLimiter") Limiter redisLimiter) {
+		String backend = properties.getLimiter().getBackend();
+		if (LOCAL.equals(backend)) {
+			return localLimiter;
+		}
+		if (REDIS.equals(backend)) {
+			return redisLimiter;
+		}
+		throw new CodeCheckException("不支持的限流器类型:", backend);
+	}
+
+}
@@ -0,0 +1,23 @@
+package frodez.config.aop.request.limiter.facade;
+
+import frodez.config.aop.request.checker.impl.RequestKey;
+
+/**
+ * 限流器接口<br>
+ * 每个key对应一个独立的令牌桶。<br>
+ * @author Frodez
+ * @date 2020-01-08
+ */
+public interface Limiter {
+
+	/**
+	 * 尝试获取一个许可,如果在超时时间内可以获取则等待至获取成功并返回true,否则立即返回false
+	 * @param key 对应key
+	 * @param permitsPerSecond 每秒许可数
+	 * @param timeout 最长等待时间,单位毫秒
+	 * @author Frodez
+	 * @date 2020-01-08
+	 */
+	boolean tryAcquire(RequestKey key, double permitsPerSecond, long timeout);
+
+}
@@ -0,0 +1,199 @@
+package frodez.config.aop.request.limiter.impl;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import frodez.config.aop.request.checker.impl.RequestKey;
+import frodez.config.aop.request.limiter.facade.Limiter;
+import frodez.config.cache.CacheProperties;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地限流器<br>
+ * 令牌桶使用GCRA算法实现,每个桶只有一个原子变量(理论到达时间),获取许可时只需一次CAS,不需要加锁。<br>
+ * 桶按key的哈希分布在多个分段中,每个分段有数量上限。<br>
+ * 理论到达时间早于当前时间的桶已经是满的,与新建的桶完全等价,因此可以随时删除,不影响限流结果。<br>
+ * 分段达到上限时删除这些空闲桶。正在限流的桶不会被删除,否则轮换新key即可让被限流的key重新获得满桶。<br>
+ * 删除空闲桶后仍然没有空间时,新key不再单独建桶,而是共用分段内按速率区分的溢出桶,即新key整体受到限流。<br>
+ * @author Frodez
+ * @date 2020-01-08
+ */
+@Component("localLimiter")
+public class LocalLimiter implements Limiter {
+
+	/**
+	 * 最多可以积累1秒的许可,与guava的RateLimiter保持一致
+	 */
+	private static final long MAX_BURST = TimeUnit.SECONDS.toNanos(1);
+
+	private static final int MAX_STRIPES = 64;
+
+	/**
+	 * 分段已满时两次清理的最小间隔,避免大量新key时每次请求都遍历分段
+	 */
+	private static final long SWEEP_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final Stripe[] stripes;
+
+	private final int mask;
+
+	@Autowired
+	public LocalLimiter(CacheProperties properties) {
+		int maxSize = properties.getLocalLimiter().getMaxSize();
+		int count = 1;
+		while (count < MAX_STRIPES && count < Runtime.getRuntime().availableProcessors() * 4) {
+			count <<= 1;
+		}
+		stripes = new Stripe[count];
+		int capacity = Math.max(1, maxSize / count);
+		for (int i = 0; i < count; ++i) {
+			stripes[i] = new Stripe(capacity);
+		}
+		mask = count - 1;
+	}
+
+	@Override
+	public boolean tryAcquire(RequestKey key, double permitsPerSecond, long timeout) {
+		long now = System.nanoTime();
+		Bucket bucket = stripe(key).get(key, permitsPerSecond, now);
+		long wait = bucket.reserve(now, TimeUnit.MILLISECONDS.toNanos(timeout));
+		if (wait < 0) {
+			return false;
+		}
+		if (wait > 0) {
+			Uninterruptibles.sleepUninterruptibly(wait, TimeUnit.NANOSECONDS);
+		}
+		return true;
+	}
+
+	/**
+	 * 当前桶数量
+	 * @author Frodez
+	 * @date 2020-01-08
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.map.size();
+		}
+		return size;
+	}
+
+	private Stripe stripe(RequestKey key) {
+		int hash = key.hashCode();
+		return stripes[(hash ^ (hash >>> 16)) & mask];
+	}
+
+	private static class Stripe {
+
+		final Map<RequestKey, Bucket> map = new ConcurrentHashMap<>();
+
+		/**
+		 * 分段已满时新key共用的溢出桶,按每秒许可数区分
+		 */
+		final Map<Double, Bucket> overflows = new ConcurrentHashMap<>();
+
+		final AtomicBoolean sweeping = new AtomicBoolean();
+
+		final AtomicLong lastSweep;
+
+		final int capacity;
+
+		Stripe(int capacity) {
+			this.capacity = capacity;
+			this.lastSweep = new AtomicLong(System.nanoTime() - SWEEP_INTERVAL);
+		}
+
+		Bucket get(RequestKey key, double permitsPerSecond, long now) {
+			Bucket bucket = map.get(key);
+			if (bucket != null) {
+				return bucket;
+			}
+			if (map.size() >= capacity) {
+				sweep(now);
+				if (map.size() >= capacity) {
+					return overflows.computeIfAbsent(permitsPerSecond, (rate) -> new Bucket(rate, now));
+				}
+			}
+			bucket = new Bucket(permitsPerSecond, now);
+			Bucket previous = map.putIfAbsent(key, bucket);
+			return previous == null ? bucket : previous;
+		}
+
+		/**
+		 * 删除分段中的空闲桶,同一时间只有一个线程执行,其他线程直接跳过。距上次清理不足SWEEP_INTERVAL时也直接跳过。
+		 * @author Frodez
+		 * @date 2020-01-08
+		 */
+		void sweep(long now) {
+			long last = lastSweep.get();
+			if (now - last < SWEEP_INTERVAL || !sweeping.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				lastSweep.set(now);
+				map.values().removeIf((bucket) -> bucket.idle(now));
+				overflows.values().removeIf((bucket) -> bucket.idle(now));
+			} finally {
+				sweeping.set(false);
+			}
+		}
+
+	}
+
+	/**
+	 * 令牌桶,值为理论到达时间(纳秒)
+	 * @author Frodez
+	 * @date 2020-01-08
+	 */
+	private static class Bucket extends AtomicLong {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * 每个许可的间隔时间(纳秒)
+		 */
+		final long interval;
+
+		/**
+		 * 允许提前的时间(纳秒),即可积累的许可
+		 */
+		final long tolerance;
+
+		Bucket(double permitsPerSecond, long now) {
+			super(now);
+			interval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+			tolerance = Math.max(0L, MAX_BURST - interval);
+		}
+
+		/**
+		 * 预约一个许可,返回需要等待的时间(纳秒),超过最长等待时间时返回-1
+		 * @author Frodez
+		 * @date 2020-01-08
+		 */
+		long reserve(long now, long timeout) {
+			while (true) {
+				long tat = get();
+				long wait = Math.max(0L, tat - tolerance - now);
+				if (wait > timeout) {
+					return -1;
+				}
+				//nanoTime可能溢出,因此使用差值比较
+				long start = tat - now < 0 ? now : tat;
+				if (compareAndSet(tat, start + interval)) {
+					return wait;
+				}
+			}
+		}
+
+		boolean idle(long now) {
+			return get() - now <= 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,149 @@
+package frodez.config.aop.request.limiter.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import frodez.config.aop.request.checker.impl.RequestKey;
+import frodez.config.aop.request.limiter.facade.Limiter;
+import frodez.config.cache.CacheProperties;
+import frodez.config.cache.CacheProperties.RedisLimiterProperties;
+import frodez.constant.keys.cache.CacheKey;
+import frodez.constant.settings.DefTime;
+import frodez.util.common.StrUtil;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * 分布式限流器REDIS实现<br>
+ * 令牌桶保存在redis中,通过lua脚本原子地补充和获取许可,所有节点共享同一个令牌桶。<br>
+ * 为减少redis访问次数,每次从redis借出一批许可(数量为每秒许可数乘以lease-ratio),在本地消耗完或者超过lease-timeout后再重新借出。<br>
+ * 借出的许可已在redis中扣除,因此不会超出总限额,只是各节点之间的分配不完全均匀。<br>
+ * redis不可用时,在fallback-timeout时间内改用本地限流器(localLimiter)。<br>
+ * @author Frodez
+ * @date 2020-01-09
+ */
+@Slf4j
+@Component("redisLimiter")
+public class RedisLimiter implements Limiter {
+
+	/**
+	 * 令牌桶脚本<br>
+	 * 参数依次为:每毫秒许可数,桶容量,希望借出的许可数,最长等待时间(毫秒)。<br>
+	 * 当前时间取自redis的TIME命令,避免各节点时钟不一致导致令牌桶被提前补充或者长时间不补充。<br>
+	 * TIME的结果不确定,因此需要先调用replicate_commands,按命令而不是按脚本复制到从节点和AOF。<br>
+	 * 返回值为{借出的许可数,需要等待的时间(毫秒)},等待时间为-1时说明超时时间内无法获取许可。<br>
+	 */
+	private static final String SCRIPT_TEXT = String.join("\n",
+		"local rate = tonumber(ARGV[1])",
+		"local capacity = tonumber(ARGV[2])",
+		"local requested = tonumber(ARGV[3])",
+		"local timeout = tonumber(ARGV[4])",
+		"redis.replicate_commands()",
+		"local time = redis.call('TIME')",
+		"local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)",
+		"local data = redis.call('HMGET', KEYS[1], 'tokens', 'time')",
+		"local tokens = tonumber(data[1]) or capacity",
+		"local last = tonumber(data[2]) or now",
+		"if now > last then",
+		"  tokens = math.min(capacity, tokens + (now - last) * rate)",
+		"  last = now",
+		"end",
+		"local granted = 1",
+		"local wait = 0",
+		"if tokens >= 1 then",
+		"  granted = math.min(requested, math.floor(tokens))",
+		"else",
+		"  wait = math.ceil((1 - tokens) / rate)",
+		"  if wait > timeout then",
+		"    return {0, -1}",
+		"  end",
+		"end",
+		"tokens = tokens - granted",
+		"redis.call('HMSET', KEYS[1], 'tokens', tostring(tokens), 'time', tostring(last))",
+		"redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + wait + 1000)",
+		"return {granted, wait}");
+
+	@SuppressWarnings("rawtypes")
+	private static final RedisScript<List> SCRIPT = new DefaultRedisScript<>(SCRIPT_TEXT, List.class);
+
+	private StringRedisTemplate template;
+
+	private Limiter fallback;
+
+	/**
+	 * 本地借出的许可
+	 */
+	private Cache<RequestKey, AtomicInteger> leases;
+
+	private double leaseRatio;
+
+	private long fallbackTimeout;
+
+	/**
+	 * 在此时间之前直接使用本地限流器
+	 */
+	private volatile long fallbackUntil;
+
+	@Autowired
+	public RedisLimiter(CacheProperties properties, StringRedisTemplate template, @Qualifier("localLimiter") Limiter fallback) {
+		RedisLimiterProperties config = properties.getRedisLimiter();
+		this.template = template;
+		this.fallback = fallback;
+		this.leaseRatio = config.getLeaseRatio();
+		this.fallbackTimeout = config.getFallbackTimeout();
+		leases = CacheBuilder.newBuilder().maximumSize(config.getMaxSize()).expireAfterWrite(config.getLeaseTimeout(), DefTime.UNIT)
+			.build();
+	}
+
+	@Override
+	public boolean tryAcquire(RequestKey key, double permitsPerSecond, long timeout) {
+		AtomicInteger lease = leases.getIfPresent(key);
+		if (lease != null && lease.getAndDecrement() > 0) {
+			return true;
+		}
+		long now = System.currentTimeMillis();
+		//fallbackUntil只在本节点使用,因此使用本地时间
+		if (now < fallbackUntil) {
+			return fallback.tryAcquire(key, permitsPerSecond, timeout);
+		}
+		List<?> result;
+		try {
+			result = template.execute(SCRIPT, List.of(StrUtil.concat(CacheKey.Limiter.BUCKET, key.toString())), String.valueOf(permitsPerSecond / 1000),
+				String.valueOf(Math.max(1.0, permitsPerSecond)), String.valueOf(leaseSize(permitsPerSecond)), String.valueOf(timeout));
+		} catch (DataAccessException e) {
+			log.warn("[RedisLimiter]redis不可用,{}毫秒内改用本地限流:{}", fallbackTimeout, e.getMessage());
+			fallbackUntil = now + fallbackTimeout;
+			return fallback.tryAcquire(key, permitsPerSecond, timeout);
+		}
+		if (result == null || result.size() < 2) {
+			//处于redis事务中时脚本不会立即执行,此时使用本地限流器
+			return fallback.tryAcquire(key, permitsPerSecond, timeout);
+		}
+		long granted = ((Number) result.get(0)).longValue();
+		long wait = ((Number) result.get(1)).longValue();
+		if (wait < 0) {
+			return false;
+		}
+		if (granted > 1) {
+			leases.put(key, new AtomicInteger((int) granted - 1));
+		}
+		if (wait > 0) {
+			Uninterruptibles.sleepUninterruptibly(wait, TimeUnit.MILLISECONDS);
+		}
+		return true;
+	}
+
+	private int leaseSize(double permitsPerSecond) {
+		return Math.max(1, (int) (permitsPerSecond * leaseRatio));
+	}
+
+}
@@ -0,0 +1,9 @@
+/**
+ * 本包用于支持Limit限流策略的实现。<br>
+ * facade是接口。<br>
+ * impl是实现，包括本地实现和redis实现，令牌桶按端点和用户(未登录时按IP)区分。<br>
+ * LimiterConfig根据配置选择实现，redis实现在redis不可用时自动改用本地实现。<br>
+ * @author Frodez
+ * @date 2020-01-08
+ */
+package frodez.config.aop.request.limiter;
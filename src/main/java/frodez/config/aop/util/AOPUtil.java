@@ -1,5 +1,6 @@
 package frodez.config.aop.util;
 
+import frodez.config.aop.pipeline.PipelineProperties;
 import frodez.config.aop.validation.annotation.Check;
 import frodez.constant.errors.exception.CodeCheckException;
 import frodez.util.beans.result.Result;
@@ -38,6 +39,21 @@ public class AOPUtil {
 		return false;
 	}
 
+	/**
+	 * 判断该方法是否由合并切面EndpointPipelineAdvisor处理<br>
+	 * 控制器中返回Result或者AsyncResult的方法由合并切面处理,其他方法仍由各个独立的切面处理。<br>
+	 * @see frodez.config.aop.pipeline.advisor.EndpointPipelineAdvisor
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	public static boolean isPipelined(Method method, Class<?> targetClass) {
+		if (!PipelineProperties.enabled || !isController(targetClass)) {
+			return false;
+		}
+		Type type = method.getAnnotatedReturnType().getType();
+		return isResult(type) || isAsyncResult(type);
+	}
+
 	/**
 	 * 判断方法返回类型是否为AsyncResult-即ListenableFuture(类型参数T为Result)<br>
 	 * 如果是AsyncResult,返回true.如果是Result,返回false.<br>
@@ -96,11 +96,16 @@ public class AsyncValidationAdvisor implements PointcutAdvisor {
 					 */
 					@Override
 					public boolean matches(Method method, Class<?> targetClass) {
+						//控制器方法由EndpointPipelineAdvisor处理
+						if (AOPUtil.isPipelined(method, targetClass)) {
+							return false;
+						}
 						//这里可以进行运行前检查
 						if (AnnotationUtils.findAnnotation(method, Check.class) == null || !AOPUtil.isAsyncResultAsReturn(method)) {
 							return false;
 						}
 						codeChecker.checkMethod(method);
+						ValidationUtil.compile(method, targetClass);
 						return true;
 					}
 
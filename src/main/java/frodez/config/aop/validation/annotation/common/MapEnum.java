@@ -13,7 +13,12 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import javax.validation.Constraint;
 import javax.validation.ConstraintValidator;
 import javax.validation.ConstraintValidatorContext;
@@ -123,7 +128,9 @@ public @interface MapEnum {
 	}
 
 	/**
-	 * 枚举验证器
+	 * 枚举验证器<br>
+	 * initialize时通过验证方法生成枚举值查找表,并预先生成验证失败时的信息,验证时不再反射调用。<br>
+	 * 无法生成查找表时(验证方法参数类型不是整数类型,且枚举类不存在getVals方法),仍然使用验证方法验证。<br>
 	 * @author Frodez
 	 * @date 2018-12-17
 	 */
@@ -140,14 +147,19 @@ public @interface MapEnum {
 		private String method;
 
 		/**
-		 * 获取所有枚举描述的方法名,默认为getDescs。
+		 * 验证方法参数类型,默认值为Byte.class
 		 */
-		private String descMethod;
+		private Class<?> paramType;
 
 		/**
-		 * 验证方法参数类型,默认值为Byte.class
+		 * 枚举值查找表,为null时使用验证方法验证
 		 */
-		private Class<?> paramType;
+		private EnumTable table;
+
+		/**
+		 * 验证失败时的信息,不包括非法值
+		 */
+		private String failMessage;
 
 		/**
 		 * 根据注解信息初始化验证器
@@ -155,11 +167,14 @@ public @interface MapEnum {
 		 * @date 2018-12-17
 		 */
 		@Override
+		@SneakyThrows
 		public void initialize(MapEnum enumValue) {
 			method = enumValue.method();
 			klass = enumValue.value();
 			paramType = enumValue.paramType();
-			descMethod = enumValue.descMethod();
+			table = EnumTable.build(klass, method, paramType);
+			Object valids = ReflectUtil.getFastMethod(klass, enumValue.descMethod()).invoke(null, ReflectUtil.EMPTY_ARRAY);
+			failMessage = StrUtil.concat("不符合要求,有效值为", valids.toString());
 		}
 
 		/**
@@ -174,15 +189,181 @@ public @interface MapEnum {
 				//对于非空检查的情况,请继续使用@NotNull注解
 				return true;
 			}
-			Object[] params = new Object[] { PrimitiveUtil.cast(value, paramType) };
-			if (ReflectUtil.getFastMethod(klass, method, paramType).invoke(null, params) != null) {
+			Object param = PrimitiveUtil.cast(value, paramType);
+			boolean valid;
+			if (table != null) {
+				valid = table.contains(param);
+			} else {
+				valid = ReflectUtil.getFastMethod(klass, method, paramType).invoke(null, new Object[] { param }) != null;
+			}
+			if (valid) {
 				return true;
+			}
+			ValidationUtil.changeMessage(context, StrUtil.concat(value.toString(), failMessage));
+			return false;
+		}
+
+	}
+
+	/**
+	 * 枚举值查找表<br>
+	 * 整数类型的枚举值范围较小时使用数组直接索引,否则使用无冲突的开放地址哈希表(完美哈希),非整数类型使用HashSet。<br>
+	 * byte类型直接用验证方法检查所有可能的值,其他类型用验证方法检查getVals方法返回的所有值。<br>
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	class EnumTable {
+
+		/**
+		 * 使用数组直接索引的最大范围
+		 */
+		private static final int DENSE_RANGE = 1 << 8;
+
+		/**
+		 * 完美哈希表的最大容量
+		 */
+		private static final int MAX_HASH_SIZE = 1 << 12;
+
+		private static final long HASH_SEED = 0x9E3779B97F4A7C15L;
+
+		/**
+		 * 数组索引的最小值
+		 */
+		private long min;
+
+		/**
+		 * 数组索引表
+		 */
+		private boolean[] dense;
+
+		/**
+		 * 完美哈希表的键
+		 */
+		private long[] keys;
+
+		/**
+		 * 完美哈希表中键是否存在
+		 */
+		private boolean[] used;
+
+		/**
+		 * 完美哈希表的掩码
+		 */
+		private int mask;
+
+		/**
+		 * 非整数类型使用的集合
+		 */
+		private Set<Object> others;
+
+		private EnumTable() {
+		}
+
+		/**
+		 * 是否为合法值
+		 * @param param 已转换为验证方法参数类型的值
+		 * @author Frodez
+		 * @date 2020-01-13
+		 */
+		public boolean contains(Object param) {
+			if (others != null) {
+				return others.contains(param);
+			}
+			long key = ((Number) param).longValue();
+			if (dense != null) {
+				long index = key - min;
+				return index >= 0 && index < dense.length && dense[(int) index];
+			}
+			int index = hash(key, mask);
+			return used[index] && keys[index] == key;
+		}
+
+		/**
+		 * 生成查找表,无法生成时返回null
+		 * @author Frodez
+		 * @date 2020-01-13
+		 */
+		@SneakyThrows
+		public static EnumTable build(Class<?> klass, String method, Class<?> paramType) {
+			FastMethod validator = ReflectUtil.getFastMethod(klass, method, paramType);
+			List<Object> candidates = new ArrayList<>();
+			if (paramType == Byte.class || paramType == byte.class) {
+				for (int i = Byte.MIN_VALUE; i <= Byte.MAX_VALUE; ++i) {
+					candidates.add((byte) i);
+				}
 			} else {
-				Object valids = ReflectUtil.getFastMethod(klass, descMethod).invoke(null, ReflectUtil.EMPTY_ARRAY);
-				String message = StrUtil.concat(value.toString(), "不符合要求,有效值为", valids.toString());
-				ValidationUtil.changeMessage(context, message);
-				return false;
+				Method valsMethod;
+				try {
+					valsMethod = klass.getMethod(DefEnum.VALS_METHOD_NAME);
+				} catch (NoSuchMethodException e) {
+					return null;
+				}
+				for (Object item : (List<?>) valsMethod.invoke(null)) {
+					candidates.add(PrimitiveUtil.cast(item, paramType));
+				}
+			}
+			List<Object> valids = new ArrayList<>();
+			for (Object item : candidates) {
+				if (validator.invoke(null, new Object[] { item }) != null) {
+					valids.add(item);
+				}
+			}
+			EnumTable table = new EnumTable();
+			if (!isIntegral(paramType)) {
+				table.others = new HashSet<>(valids);
+				return table;
 			}
+			long[] values = valids.stream().mapToLong((item) -> ((Number) item).longValue()).distinct().toArray();
+			if (values.length == 0) {
+				table.dense = new boolean[0];
+				return table;
+			}
+			long min = Arrays.stream(values).min().getAsLong();
+			long max = Arrays.stream(values).max().getAsLong();
+			if (max - min < DENSE_RANGE) {
+				table.min = min;
+				table.dense = new boolean[(int) (max - min + 1)];
+				for (long value : values) {
+					table.dense[(int) (value - min)] = true;
+				}
+				return table;
+			}
+			for (int size = Integer.highestOneBit(values.length) << 1; size <= MAX_HASH_SIZE; size <<= 1) {
+				if (table.perfect(values, size)) {
+					return table;
+				}
+			}
+			table.others = new HashSet<>(valids);
+			return table;
+		}
+
+		/**
+		 * 尝试生成指定容量的完美哈希表,存在冲突时返回false
+		 */
+		private boolean perfect(long[] values, int size) {
+			long[] keys = new long[size];
+			boolean[] used = new boolean[size];
+			for (long value : values) {
+				int index = hash(value, size - 1);
+				if (used[index]) {
+					return false;
+				}
+				keys[index] = value;
+				used[index] = true;
+			}
+			this.keys = keys;
+			this.used = used;
+			this.mask = size - 1;
+			return true;
+		}
+
+		private static int hash(long key, int mask) {
+			return (int) ((key * HASH_SEED) >>> 32) & mask;
+		}
+
+		private static boolean isIntegral(Class<?> type) {
+			return type == Byte.class || type == byte.class || type == Short.class || type == short.class || type == Integer.class
+				|| type == int.class || type == Long.class || type == long.class;
 		}
 
 	}
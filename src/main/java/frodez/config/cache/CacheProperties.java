@@ -22,20 +22,70 @@ public class CacheProperties {
 	private StandardProperties standard = new StandardProperties();
 
 	/**
-	 * AutoGuavaChecker配置
+	 * AutoWheelChecker配置
 	 */
-	private AutoGuavaCheckerProperties autoGuavaChecker = new AutoGuavaCheckerProperties();
+	private AutoWheelCheckerProperties autoWheelChecker = new AutoWheelCheckerProperties();
 
 	/**
-	 * ManualGuavaChecker配置
+	 * ManualLocalChecker配置
 	 */
-	private ManualGuavaCheckerProperties manualGuavaChecker = new ManualGuavaCheckerProperties();
+	private ManualLocalCheckerProperties manualLocalChecker = new ManualLocalCheckerProperties();
 
 	/**
 	 * LimitUserGuavaChecker配置
 	 */
 	private LimitUserGuavaCheckerProperties limitUserGuavaChecker = new LimitUserGuavaCheckerProperties();
 
+	/**
+	 * 限流器配置
+	 */
+	private LimiterProperties limiter = new LimiterProperties();
+
+	/**
+	 * LocalLimiter配置
+	 */
+	private LocalLimiterProperties localLimiter = new LocalLimiterProperties();
+
+	/**
+	 * RedisLimiter配置
+	 */
+	private RedisLimiterProperties redisLimiter = new RedisLimiterProperties();
+
+	/**
+	 * TokenGuavaCache配置
+	 */
+	private TokenGuavaCacheProperties tokenGuavaCache = new TokenGuavaCacheProperties();
+
+	/**
+	 * IdTokenNearCache配置
+	 */
+	private IdTokenNearCacheProperties idTokenNearCache = new IdTokenNearCacheProperties();
+
+	/**
+	 * PermissionNearCache配置
+	 */
+	private PermissionNearCacheProperties permissionNearCache = new PermissionNearCacheProperties();
+
+	/**
+	 * EndpointGuavaCache配置
+	 */
+	private EndpointGuavaCacheProperties endpointGuavaCache = new EndpointGuavaCacheProperties();
+
+	/**
+	 * 缓存变更总线配置
+	 */
+	private BusProperties bus = new BusProperties();
+
+	/**
+	 * UserGuavaCache配置
+	 */
+	private UserGuavaCacheProperties userGuavaCache = new UserGuavaCacheProperties();
+
+	/**
+	 * RoleIndexCache配置
+	 */
+	private RoleIndexCacheProperties roleIndexCache = new RoleIndexCacheProperties();
+
 	/**
 	 * redis配置
 	 */
@@ -52,7 +102,17 @@ public class CacheProperties {
 	}
 
 	@Data
-	public static class AutoGuavaCheckerProperties {
+	public static class AutoWheelCheckerProperties {
+
+		/**
+		 * 时间轮每个tick的时长,同时也是时钟精度,单位毫秒
+		 */
+		private Integer tick = 10;
+
+	}
+
+	@Data
+	public static class ManualLocalCheckerProperties {
 
 		/**
 		 * 超时时间,单位毫秒
@@ -62,7 +122,7 @@ public class CacheProperties {
 	}
 
 	@Data
-	public static class ManualGuavaCheckerProperties {
+	public static class LimitUserGuavaCheckerProperties {
 
 		/**
 		 * 超时时间,单位毫秒
@@ -72,23 +132,164 @@ public class CacheProperties {
 	}
 
 	@Data
-	public static class LimitUserGuavaCheckerProperties {
+	public static class LimiterProperties {
+
+		/**
+		 * 限流器类型,local为本地限流,redis为分布式限流
+		 */
+		private String backend = "local";
+
+	}
+
+	@Data
+	public static class LocalLimiterProperties {
+
+		/**
+		 * 最大令牌桶数量
+		 */
+		private Integer maxSize = 100000;
+
+	}
+
+	@Data
+	public static class RedisLimiterProperties {
+
+		/**
+		 * 每次借出的许可数占每秒许可数的比例,为0时每次请求都访问redis
+		 */
+		private Double leaseRatio = 0.1;
+
+		/**
+		 * 借出许可的有效时间,单位毫秒
+		 */
+		private Integer leaseTimeout = 1000;
+
+		/**
+		 * 最大借出记录数量
+		 */
+		private Integer maxSize = 100000;
+
+		/**
+		 * redis不可用时改用本地限流的时间,单位毫秒
+		 */
+		private Integer fallbackTimeout = 5000;
+
+	}
+
+	@Data
+	public static class TokenGuavaCacheProperties {
+
+		/**
+		 * 超时时间,单位毫秒
+		 */
+		private Integer timeout = 600000;
+
+		/**
+		 * 最大缓存数量
+		 */
+		private Integer maxSize = 100000;
+
+	}
+
+	@Data
+	public static class IdTokenNearCacheProperties {
+
+		/**
+		 * 超时时间,单位毫秒
+		 */
+		private Integer timeout = 60000;
+
+		/**
+		 * 最大缓存数量
+		 */
+		private Integer maxSize = 100000;
+
+	}
+
+	@Data
+	public static class PermissionNearCacheProperties {
 
 		/**
 		 * 超时时间,单位毫秒
 		 */
 		private Integer timeout = 60000;
 
+		/**
+		 * 最大缓存数量
+		 */
+		private Integer maxSize = 10000;
+
+	}
+
+	@Data
+	public static class UserGuavaCacheProperties {
+
+		/**
+		 * 未访问超时时间,单位毫秒
+		 */
+		private Integer timeout = 1800000;
+
+		/**
+		 * 最大缓存数量
+		 */
+		private Integer maxSize = 100000;
+
+	}
+
+	@Data
+	public static class RoleIndexCacheProperties {
+
+		/**
+		 * 最大缓存用户数量
+		 */
+		private Integer maxSize = 1000000;
+
+	}
+
+	@Data
+	public static class EndpointGuavaCacheProperties {
+
+		/**
+		 * 最大缓存角色数量
+		 */
+		private Integer maxSize = 1000;
+
+	}
+
+	@Data
+	public static class BusProperties {
+
+		/**
+		 * 是否向其他节点广播缓存变更
+		 */
+		private Boolean enabled = true;
+
 	}
 
 	@Data
 	public static class RedisProperties {
 
 		/**
-		 * 超时时间,单位分钟
+		 * token过期后仍可刷新的时间,单位分钟<br>
+		 * id-token记录的存活时间为jwt过期时间加上本时间。<br>
 		 */
 		private Integer timeout = 7 * 1440;
 
+		/**
+		 * id-token记录的分片数量
+		 */
+		private Integer shards = 16;
+
+		/**
+		 * 清理过期id-token记录的间隔,单位毫秒
+		 */
+		private Long cleanInterval = 60000L;
+
+		/**
+		 * 每次清理单个分片的最大记录数
+		 */
+		private Integer cleanBatch = 1000;
+
 	}
 
 }
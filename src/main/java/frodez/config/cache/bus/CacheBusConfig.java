@@ -0,0 +1,38 @@
+package frodez.config.cache.bus;
+
+import frodez.config.cache.CacheProperties;
+import javax.jms.ConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.core.JmsTemplate;
+
+/**
+ * 缓存变更总线配置类<br>
+ * 事件通过JMS topic广播到所有节点。未配置spring.activemq.broker-url时使用内嵌的ActiveMQ,此时只有本节点自身。<br>
+ * @author Frodez
+ * @date 2020-01-11
+ */
+@Configuration
+public class CacheBusConfig {
+
+	@Bean("cacheEventContainerFactory")
+	public DefaultJmsListenerContainerFactory cacheEventContainerFactory(ConnectionFactory connectionFactory,
+		CacheProperties properties) {
+		DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+		factory.setConnectionFactory(connectionFactory);
+		factory.setPubSubDomain(true);
+		//单线程消费,保证同一节点的事件按顺序处理
+		factory.setConcurrency("1");
+		factory.setAutoStartup(properties.getBus().getEnabled());
+		return factory;
+	}
+
+	@Bean("cacheEventTemplate")
+	public JmsTemplate cacheEventTemplate(ConnectionFactory connectionFactory) {
+		JmsTemplate template = new JmsTemplate(connectionFactory);
+		template.setPubSubDomain(true);
+		return template;
+	}
+
+}
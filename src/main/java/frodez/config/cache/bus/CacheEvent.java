@@ -0,0 +1,79 @@
+package frodez.config.cache.bus;
+
+import java.util.List;
+import lombok.Data;
+
+/**
+ * 缓存变更事件<br>
+ * 同一节点发出的事件版本号连续递增,接收方据此发现丢失的事件。<br>
+ * @author Frodez
+ * @date 2020-01-11
+ */
+@Data
+public class CacheEvent {
+
+	/**
+	 * 事件类型
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public enum Type {
+
+		/**
+		 * 角色设置变更,id为角色id
+		 */
+		SETTING,
+
+		/**
+		 * 全局配置变更,id为配置id
+		 */
+		GLOBAL_DATA,
+
+		/**
+		 * 角色信息变更,id为角色id
+		 */
+		ROLE,
+
+		/**
+		 * 用户信息或用户所属角色变更,id为用户id
+		 */
+		USER,
+
+		/**
+		 * 角色权限变更,id为角色id
+		 */
+		PERMISSION,
+
+		/**
+		 * 接口变更,没有id
+		 */
+		ENDPOINT;
+
+	}
+
+	/**
+	 * 发出事件的节点
+	 */
+	private String node;
+
+	/**
+	 * 版本号
+	 */
+	private long version;
+
+	/**
+	 * 事件类型
+	 */
+	private Type type;
+
+	/**
+	 * 发生变更的id,为null时代表全部变更
+	 */
+	private List<Long> ids;
+
+	/**
+	 * 发出时间,单位毫秒
+	 */
+	private long time;
+
+}
@@ -0,0 +1,268 @@
+package frodez.config.cache.bus;
+
+import frodez.config.cache.CacheProperties;
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.dao.model.result.config.CacheBusStatsInfo;
+import frodez.util.json.JSONUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 缓存变更总线<br>
+ * 本地缓存在修改数据的节点上直接更新,再通过本总线通知其他节点,其他节点只刷新发生变更的记录。<br>
+ * 处于事务中时,事件在事务提交后才发出。<br>
+ * 接收方按发出节点记录版本号,发现版本号不连续(事件丢失)时,对所有订阅者执行全量刷新。<br>
+ * @author Frodez
+ * @date 2020-01-11
+ */
+@Slf4j
+@Component
+public class CacheEventBus {
+
+	public static final String TOPIC = "cache.invalidation";
+
+	/**
+	 * 本节点标识
+	 */
+	private final String node = UUID.randomUUID().toString();
+
+	private final AtomicLong version = new AtomicLong();
+
+	private final Map<Type, List<Consumer<List<Long>>>> handlers = new ConcurrentHashMap<>();
+
+	/**
+	 * 发出节点-接收统计
+	 */
+	private final Map<String, NodeStats> stats = new ConcurrentHashMap<>();
+
+	private JmsTemplate template;
+
+	private boolean enabled;
+
+	@Autowired
+	public CacheEventBus(@Qualifier("cacheEventTemplate") JmsTemplate template, CacheProperties properties) {
+		this.template = template;
+		this.enabled = properties.getBus().getEnabled();
+	}
+
+	/**
+	 * 订阅事件,handler的参数为发生变更的id,为null时代表需要全量刷新
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public void subscribe(Type type, Consumer<List<Long>> handler) {
+		handlers.computeIfAbsent(type, (key) -> new CopyOnWriteArrayList<>()).add(handler);
+	}
+
+	/**
+	 * 通知其他节点某条记录发生变更
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public void publish(Type type, Long id) {
+		publish(type, List.of(id));
+	}
+
+	/**
+	 * 通知其他节点某些记录发生变更,ids为null时代表全部变更
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public void publish(Type type, List<Long> ids) {
+		if (!enabled) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCommit() {
+					send(type, ids);
+				}
+
+			});
+		} else {
+			send(type, ids);
+		}
+	}
+
+	/**
+	 * 分配版本号和发送在同一把锁内完成,保证版本号按发送顺序递增
+	 */
+	private synchronized void send(Type type, List<Long> ids) {
+		CacheEvent event = new CacheEvent();
+		event.setNode(node);
+		event.setVersion(version.incrementAndGet());
+		event.setType(type);
+		event.setIds(ids);
+		event.setTime(System.currentTimeMillis());
+		try {
+			template.convertAndSend(TOPIC, JSONUtil.string(event));
+		} catch (JmsException e) {
+			//发送失败会造成版本号不连续,其他节点收到下一条事件时会全量刷新
+			log.error("[CacheEventBus]事件发送失败:{}", event, e);
+		}
+	}
+
+	@JmsListener(destination = TOPIC, containerFactory = "cacheEventContainerFactory")
+	public void receive(String message) {
+		CacheEvent event = null;
+		try {
+			//无法解析的消息同样只记录日志,不能抛出到监听容器中
+			event = JSONUtil.as(message, CacheEvent.class);
+			if (node.equals(event.getNode())) {
+				return;
+			}
+			NodeStats stat = stats.computeIfAbsent(event.getNode(), (key) -> new NodeStats());
+			long last = stat.lastVersion;
+			if (last != 0 && event.getVersion() <= last) {
+				//重复或过期的事件
+				return;
+			}
+			//首次收到某节点的事件时,更早的变更已包含在本节点启动时的加载中
+			boolean lost = last != 0 && event.getVersion() > last + 1;
+			stat.accept(event, System.currentTimeMillis(), lost);
+			if (lost) {
+				log.warn("[CacheEventBus]节点{}的事件丢失,期望版本{},实际版本{},执行全量刷新", event.getNode(), last + 1, event.getVersion());
+				refreshAll();
+			} else {
+				dispatch(event.getType(), event.getIds());
+			}
+		} catch (Exception e) {
+			log.error("[CacheEventBus]事件处理失败:{}", event == null ? message : event, e);
+		}
+	}
+
+	private void dispatch(Type type, List<Long> ids) {
+		for (Consumer<List<Long>> handler : handlers.getOrDefault(type, Collections.emptyList())) {
+			handler.accept(ids);
+		}
+	}
+
+	private void refreshAll() {
+		for (Type type : Type.values()) {
+			dispatch(type, null);
+		}
+	}
+
+	/**
+	 * 获取本节点标识
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public String node() {
+		return node;
+	}
+
+	/**
+	 * 获取各发出节点的接收统计
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public Map<String, NodeStats> stats() {
+		return Collections.unmodifiableMap(stats);
+	}
+
+	/**
+	 * 获取各发出节点的接收统计信息,按节点排列
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	public List<CacheBusStatsInfo> report() {
+		List<CacheBusStatsInfo> result = new ArrayList<>(stats.size());
+		for (Entry<String, NodeStats> entry : stats.entrySet()) {
+			NodeStats stat = entry.getValue();
+			CacheBusStatsInfo info = new CacheBusStatsInfo();
+			info.setNode(entry.getKey());
+			info.setLastVersion(stat.getLastVersion());
+			info.setReceived(stat.getReceived());
+			info.setGaps(stat.getGaps());
+			info.setLastLag(stat.getLastLag());
+			info.setMaxLag(stat.getMaxLag());
+			info.setAverageLag(stat.getAverageLag());
+			result.add(info);
+		}
+		result.sort(Comparator.comparing(CacheBusStatsInfo::getNode));
+		return result;
+	}
+
+	/**
+	 * 某一发出节点的接收统计,只在监听线程中修改
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public static class NodeStats {
+
+		volatile long lastVersion;
+
+		volatile long received;
+
+		volatile long gaps;
+
+		/**
+		 * 最近一次事件从发出到接收的延迟,单位毫秒
+		 */
+		volatile long lastLag;
+
+		volatile long maxLag;
+
+		volatile long totalLag;
+
+		void accept(CacheEvent event, long now, boolean lost) {
+			long lag = Math.max(0, now - event.getTime());
+			lastVersion = event.getVersion();
+			++received;
+			if (lost) {
+				++gaps;
+			}
+			lastLag = lag;
+			maxLag = Math.max(maxLag, lag);
+			totalLag += lag;
+		}
+
+		public long getLastVersion() {
+			return lastVersion;
+		}
+
+		public long getReceived() {
+			return received;
+		}
+
+		public long getGaps() {
+			return gaps;
+		}
+
+		public long getLastLag() {
+			return lastLag;
+		}
+
+		public long getMaxLag() {
+			return maxLag;
+		}
+
+		public double getAverageLag() {
+			long count = received;
+			return count == 0 ? 0 : (double) totalLag / count;
+		}
+
+	}
+
+}
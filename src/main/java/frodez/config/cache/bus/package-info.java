@@ -0,0 +1,6 @@
+/**
+ * 本包用于在多个节点之间同步本地缓存的变更。
+ * @author Frodez
+ * @date 2020-01-11
+ */
+package frodez.config.cache.bus;
@@ -4,6 +4,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -19,9 +20,20 @@ public class RedisConfig {
 		StringRedisTemplate template = new StringRedisTemplate(connectionFactory);
 		// 使用StringRedisSerializer来序列化和反序列化redis的key值
 		template.setStringSerializer(StringRedisSerializer.UTF_8);
-		template.setEnableTransactionSupport(true);
 		template.afterPropertiesSet();
 		return template;
 	}
 
+	/**
+	 * redis消息监听容器,用于订阅缓存失效等消息
+	 * @author Frodez
+	 * @date 2020-01-06
+	 */
+	@Bean
+	public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+		RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(connectionFactory);
+		return container;
+	}
+
 }
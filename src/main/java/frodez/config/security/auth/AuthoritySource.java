@@ -1,18 +1,23 @@
 package frodez.config.security.auth;
 
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
 import frodez.config.security.settings.SecurityProperties;
 import frodez.constant.converters.HttpMethodReverter;
 import frodez.dao.mapper.permission.EndpointMapper;
 import frodez.dao.model.table.permission.Endpoint;
 import frodez.util.spring.ContextUtil;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.access.ConfigAttribute;
@@ -32,22 +37,16 @@ import org.springframework.util.Assert;
 public class AuthoritySource implements FilterInvocationSecurityMetadataSource {
 
 	/**
-	 * 默认无权限角色
+	 * 权限索引<br>
+	 * 索引为不可变对象,更新时先在旁边构建完整的新索引,再通过一次volatile写入发布,读取时无需加锁。<br>
 	 */
-	private Collection<ConfigAttribute> defaultDeniedRoles;
+	private volatile Index index;
 
-	/**
-	 * 权限缓存
-	 */
-	private Collection<ConfigAttribute> allCache;
-
-	/**
-	 * 权限缓存(按url和请求方式区分)
-	 */
-	private Map<String, Map<HttpMethod, Collection<ConfigAttribute>>> urlTypeCache;
+	private CacheEventBus bus;
 
 	/**
-	 * 更新权限信息,仅在对接口修改时会使用
+	 * 更新权限信息,仅在对接口修改时会使用<br>
+	 * 更新期间正在进行的请求继续使用旧索引,不会被阻塞。更新后通知其他节点同样更新。<br>
 	 * @author Frodez
 	 * @date 2019-03-17
 	 */
@@ -55,12 +54,17 @@ public class AuthoritySource implements FilterInvocationSecurityMetadataSource {
 		synchronized (this) {
 			init();
 		}
+		bus.publish(Type.ENDPOINT, (List<Long>) null);
 	}
 
-	private void clear() {
-		defaultDeniedRoles = null;
-		allCache = null;
-		urlTypeCache = null;
+	@Autowired
+	public void subscribe(CacheEventBus bus) {
+		this.bus = bus;
+		bus.subscribe(Type.ENDPOINT, (ids) -> {
+			synchronized (this) {
+				init();
+			}
+		});
 	}
 
 	/**
@@ -70,45 +74,10 @@ public class AuthoritySource implements FilterInvocationSecurityMetadataSource {
 	 */
 	@PostConstruct
 	private void init() {
-		clear();
 		List<Endpoint> endpoints = ContextUtil.bean(EndpointMapper.class).selectAll();
-		//设置默认无权限角色
-		defaultDeniedRoles = List.of(new SecurityConfig(ContextUtil.bean(SecurityProperties.class).getAuth().getDeniedRole()));
-		//设置所有权限的缓存
-		allCache = endpoints.stream().map((iter) -> new SecurityConfig(iter.getName())).collect(Collectors.toList());
-		//设置按url和请求方式区分的权限缓存
-		urlTypeCache = new HashMap<>();
-		for (Endpoint endpoint : endpoints) {
-			Map<HttpMethod, Collection<ConfigAttribute>> urlMap = urlTypeCache.get(endpoint.getPath());
-			if (urlMap == null) {
-				urlMap = buildNewUrlMap(endpoint);
-			} else {
-				modifyUrlMap(urlMap, endpoint);
-			}
-		}
-		Assert.notNull(defaultDeniedRoles, "defaultDeniedRoles must not be null");
-		Assert.notNull(allCache, "allCache must not be null");
-		Assert.notNull(urlTypeCache, "urlTypeCache must not be null");
-	}
-
-	private Map<HttpMethod, Collection<ConfigAttribute>> buildNewUrlMap(Endpoint endpoint) {
-		Map<HttpMethod, Collection<ConfigAttribute>> urlMap = new EnumMap<>(HttpMethod.class);
-		List<HttpMethod> httpMethods = HttpMethodReverter.revert(endpoint.getMethods());
-		for (HttpMethod httpMethod : HttpMethod.values()) {
-			Collection<ConfigAttribute> attributes = new HashSet<>();
-			urlMap.put(httpMethod, attributes);
-		}
-		for (HttpMethod httpMethod : httpMethods) {
-			urlMap.get(httpMethod).add(new SecurityConfig(endpoint.getName()));
-		}
-		return urlMap;
-	}
-
-	private void modifyUrlMap(Map<HttpMethod, Collection<ConfigAttribute>> urlMap, Endpoint endpoint) {
-		List<HttpMethod> httpMethods = HttpMethodReverter.revert(endpoint.getMethods());
-		for (HttpMethod httpMethod : httpMethods) {
-			urlMap.get(httpMethod).add(new SecurityConfig(endpoint.getName()));
-		}
+		Collection<ConfigAttribute> defaultDeniedRoles = List.of(new SecurityConfig(ContextUtil.bean(SecurityProperties.class).getAuth()
+			.getDeniedRole()));
+		index = new Index(endpoints, defaultDeniedRoles);
 	}
 
 	/**
@@ -119,14 +88,19 @@ public class AuthoritySource implements FilterInvocationSecurityMetadataSource {
 	@Override
 	public Collection<ConfigAttribute> getAttributes(Object object) throws IllegalArgumentException {
 		FilterInvocation invocation = (FilterInvocation) object;
+		//只读取一次,保证本次请求内使用同一个索引
+		Index current = index;
 		// 这里的url是截去根路径后的url
-		String url = invocation.getHttpRequest().getRequestURI();
-		if (urlTypeCache.containsKey(url)) {
+		Collection<ConfigAttribute>[] methodTable = current.urlTable.get(invocation.getHttpRequest().getRequestURI());
+		if (methodTable != null) {
 			// 根据不同请求方式获取对应权限
-			return urlTypeCache.get(url).get(HttpMethod.resolve(invocation.getHttpRequest().getMethod()));
+			HttpMethod method = HttpMethod.resolve(invocation.getHttpRequest().getMethod());
+			if (method != null) {
+				return methodTable[method.ordinal()];
+			}
 		}
 		//如果未获取权限,则添加无访问权限角色
-		return defaultDeniedRoles;
+		return current.defaultDeniedRoles;
 	}
 
 	/**
@@ -136,7 +110,7 @@ public class AuthoritySource implements FilterInvocationSecurityMetadataSource {
 	 */
 	@Override
 	public Collection<ConfigAttribute> getAllConfigAttributes() {
-		return allCache;
+		return index.allAttributes;
 	}
 
 	@Override
@@ -144,4 +118,65 @@ public class AuthoritySource implements FilterInvocationSecurityMetadataSource {
 		return true;
 	}
 
+	/**
+	 * 不可变的权限索引<br>
+	 * url对应一个按HttpMethod序号索引的权限数组,查询时只有一次哈希查找和一次数组访问。<br>
+	 * @author Frodez
+	 * @date 2020-01-08
+	 */
+	private static class Index {
+
+		private static final HttpMethod[] METHODS = HttpMethod.values();
+
+		/**
+		 * 默认无权限角色
+		 */
+		final Collection<ConfigAttribute> defaultDeniedRoles;
+
+		/**
+		 * 所有权限
+		 */
+		final Collection<ConfigAttribute> allAttributes;
+
+		/**
+		 * 权限表(按url和请求方式区分)
+		 */
+		final Map<String, Collection<ConfigAttribute>[]> urlTable;
+
+		@SuppressWarnings("unchecked")
+		Index(List<Endpoint> endpoints, Collection<ConfigAttribute> defaultDeniedRoles) {
+			Assert.notNull(defaultDeniedRoles, "defaultDeniedRoles must not be null");
+			this.defaultDeniedRoles = defaultDeniedRoles;
+			this.allAttributes = endpoints.stream().map((iter) -> new SecurityConfig(iter.getName())).collect(Collectors.toUnmodifiableList());
+			//先按url和请求方式归类,去除重复权限
+			Map<String, List<Set<ConfigAttribute>>> builder = new HashMap<>();
+			for (Endpoint endpoint : endpoints) {
+				List<Set<ConfigAttribute>> methodSets = builder.computeIfAbsent(endpoint.getPath(), (key) -> {
+					List<Set<ConfigAttribute>> sets = new ArrayList<>(METHODS.length);
+					for (int i = 0; i < METHODS.length; i++) {
+						sets.add(new LinkedHashSet<>());
+					}
+					return sets;
+				});
+				ConfigAttribute attribute = new SecurityConfig(endpoint.getName());
+				for (HttpMethod httpMethod : HttpMethodReverter.revert(endpoint.getMethods())) {
+					methodSets.get(httpMethod.ordinal()).add(attribute);
+				}
+			}
+			//再转换为不可变的数组形式
+			Map<String, Collection<ConfigAttribute>[]> table = new HashMap<>(builder.size() << 1);
+			for (Entry<String, List<Set<ConfigAttribute>>> entry : builder.entrySet()) {
+				Collection<ConfigAttribute>[] methodTable = new Collection[METHODS.length];
+				for (int i = 0; i < METHODS.length; i++) {
+					Set<ConfigAttribute> attributes = entry.getValue().get(i);
+					//未配置的请求方式同样视为无访问权限,空集合会被spring security当作公开资源
+					methodTable[i] = attributes.isEmpty() ? defaultDeniedRoles : List.copyOf(attributes);
+				}
+				table.put(entry.getKey(), methodTable);
+			}
+			this.urlTable = Map.copyOf(table);
+		}
+
+	}
+
 }
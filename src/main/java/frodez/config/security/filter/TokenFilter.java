@@ -3,7 +3,10 @@ package frodez.config.security.filter;
 import com.auth0.jwt.exceptions.TokenExpiredException;
 import frodez.config.security.util.Matcher;
 import frodez.config.security.util.TokenUtil;
+import frodez.config.security.util.UserUtil;
 import frodez.service.cache.facade.user.IdTokenCache;
+import frodez.service.cache.facade.user.TokenCache;
+import frodez.util.beans.pair.Pair;
 import frodez.util.beans.result.Result;
 import frodez.util.http.ServletUtil;
 import java.io.IOException;
@@ -11,6 +14,7 @@ import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -25,32 +29,45 @@ import org.springframework.web.filter.OncePerRequestFilter;
  * @author Frodez
  * @date 2018-11-21
  */
+@Slf4j
 @Component
 public class TokenFilter extends OncePerRequestFilter {
 
 	@Autowired
-	@Qualifier("idTokenRedisCache")
+	@Qualifier("idTokenNearCache")
 	private IdTokenCache idTokenCache;
 
+	@Autowired
+	@Qualifier("tokenGuavaCache")
+	private TokenCache tokenCache;
+
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException,
 		IOException {
 		if (Matcher.needVerify(request)) {
 			String token = TokenUtil.getRealToken(request);
-			UserDetails user;
-			try {
-				user = TokenUtil.verify(token);
-			} catch (TokenExpiredException e) {
-				//如果token超时失效,这里不删除token,而是直接返回,并告诉客户端token失效,让客户端重新登陆.
-				ServletUtil.writeJson(response, Result.expired());
-				return;
+			//优先使用已验证过的token,避免重复验证签名和解析权限
+			UserDetails user = tokenCache.get(token);
+			if (user == null) {
+				try {
+					Pair<UserDetails, Long> pair = TokenUtil.verifyWithExpiresAt(token);
+					user = pair.getKey();
+					tokenCache.save(token, user, pair.getValue());
+				} catch (TokenExpiredException e) {
+					//如果token超时失效,这里不删除token,而是直接返回,并告诉客户端token失效,让客户端重新登陆.
+					ServletUtil.writeJson(response, Result.expired());
+					return;
+				}
 			}
 			if (user != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-				if (!idTokenCache.exist(token)) {
+				Long userId = idTokenCache.getId(token);
+				if (userId == null) {
 					//如果缓存中不存在用户,则说明被下线
 					ServletUtil.writeJson(response, Result.notLogin("该用户已被下线,请重新登录"));
 					return;
 				}
+				//绑定当前请求的用户信息,后续UserUtil直接从请求上下文中获取
+				UserUtil.bind(request, token, userId);
 				//如果成功取出信息且上下文中无验证信息,则设置验证信息
 				//这里要设置权限,和frodez.config.security.user.UserDetailsServiceImpl.loadUserByUsername(String username)
 				//和frodez.config.security.auth.AuthorityManager.decide(Authentication auth, Object object, Collection<ConfigAttribute> permissions)对应
@@ -60,6 +77,9 @@ public class TokenFilter extends OncePerRequestFilter {
 			}
 		}
 		chain.doFilter(request, response);
+		if (log.isDebugEnabled()) {
+			log.debug("[TokenFilter]{} 通过请求上下文避免了{}次缓存查询", request.getRequestURI(), UserUtil.avoidedLookups(request));
+		}
 	}
 
 }
@@ -123,6 +123,12 @@ public class SecurityProperties {
 		 */
 		private String tokenPrefix = "";
 
+		/**
+		 * 是否生成精简token,精简token中只保存会话id和角色id,权限在验证时根据角色从缓存中获取<br>
+		 * 无论本配置如何,两种token均可以通过验证。<br>
+		 */
+		private Boolean compact = false;
+
 	}
 
 }
@@ -0,0 +1,155 @@
+package frodez.config.security.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.util.PathMatcher;
+
+/**
+ * ant风格路径的分段前缀树<br>
+ * 构建时将每个路径模式按"/"切分为段,字面量段放入哈希表,含通配符的段(如*,?,{var})放入单段通配节点,"**"放入多段通配节点。<br>
+ * 查询时沿路径逐段下降,耗时与路径深度成正比,与模式数量无关。<br>
+ * 前缀树只负责筛选候选模式,到达终点时仍会使用PathMatcher对候选模式做一次精确匹配,因此结果与逐个调用PathMatcher.match一致。<br>
+ * 无法按段拆分的模式(不以"/"开头,或含有带正则的{var:regex})放入兜底列表,逐个匹配。<br>
+ * 本类构建完成后不可变,线程安全。<br>
+ * @author Frodez
+ * @date 2020-01-08
+ */
+final class AntPathTrie {
+
+	private static final String SEPARATOR = "/";
+
+	private static final String ANY_PATH = "**";
+
+	private final Node root = new Node();
+
+	private final List<String> fallback = new ArrayList<>();
+
+	private final PathMatcher matcher;
+
+	AntPathTrie(PathMatcher matcher, Iterable<String> patterns) {
+		this.matcher = matcher;
+		for (String pattern : patterns) {
+			add(pattern);
+		}
+	}
+
+	/**
+	 * 判断路径是否与任一模式匹配
+	 * @author Frodez
+	 * @date 2020-01-08
+	 */
+	boolean match(String path) {
+		if (path.startsWith(SEPARATOR) && match(root, tokenize(path), 0, path)) {
+			return true;
+		}
+		for (String pattern : fallback) {
+			if (matcher.match(pattern, path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void add(String pattern) {
+		if (!pattern.startsWith(SEPARATOR) || pattern.contains(":")) {
+			fallback.add(pattern);
+			return;
+		}
+		Node node = root;
+		for (String segment : tokenize(pattern)) {
+			if (ANY_PATH.equals(segment)) {
+				if (node.anyPath == null) {
+					node.anyPath = new Node();
+				}
+				node = node.anyPath;
+			} else if (isWildcard(segment)) {
+				if (node.anySegment == null) {
+					node.anySegment = new Node();
+				}
+				node = node.anySegment;
+			} else {
+				node = node.literals.computeIfAbsent(segment, (key) -> new Node());
+			}
+		}
+		node.patterns.add(pattern);
+	}
+
+	private boolean match(Node node, String[] tokens, int index, String path) {
+		if (index == tokens.length) {
+			//路径已耗尽,只需检查终点以及可以匹配空段的通配节点(如"/a/**"匹配"/a","/a/*"匹配"/a/")
+			if (verify(node, path)) {
+				return true;
+			}
+			if (node.anyPath != null && match(node.anyPath, tokens, index, path)) {
+				return true;
+			}
+			return node.anySegment != null && match(node.anySegment, tokens, index, path);
+		}
+		Node literal = node.literals.get(tokens[index]);
+		if (literal != null && match(literal, tokens, index + 1, path)) {
+			return true;
+		}
+		if (node.anySegment != null && match(node.anySegment, tokens, index + 1, path)) {
+			return true;
+		}
+		if (node.anyPath != null) {
+			//"**"可以匹配0至多个段
+			for (int i = index; i <= tokens.length; ++i) {
+				if (match(node.anyPath, tokens, i, path)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean verify(Node node, String path) {
+		for (String pattern : node.patterns) {
+			if (matcher.match(pattern, path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isWildcard(String segment) {
+		return segment.indexOf('*') != -1 || segment.indexOf('?') != -1 || segment.indexOf('{') != -1;
+	}
+
+	/**
+	 * 按"/"切分路径,忽略空段,与AntPathMatcher的切分规则保持一致
+	 * @author Frodez
+	 * @date 2020-01-08
+	 */
+	private static String[] tokenize(String path) {
+		List<String> tokens = new ArrayList<>();
+		int start = 0;
+		int length = path.length();
+		while (start < length) {
+			int end = path.indexOf('/', start);
+			if (end == -1) {
+				end = length;
+			}
+			if (end > start) {
+				tokens.add(path.substring(start, end));
+			}
+			start = end + 1;
+		}
+		return tokens.toArray(String[]::new);
+	}
+
+	private static class Node {
+
+		final Map<String, Node> literals = new HashMap<>();
+
+		final List<String> patterns = new ArrayList<>(1);
+
+		Node anySegment;
+
+		Node anyPath;
+
+	}
+
+}
@@ -1,5 +1,7 @@
 package frodez.config.security.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import frodez.config.security.settings.SecurityProperties;
 import frodez.constant.settings.PropertyKey;
 import frodez.dao.mapper.permission.EndpointMapper;
@@ -51,6 +53,22 @@ public class Matcher {
 	 */
 	private static PathMatcher matcher;
 
+	/**
+	 * 基础免验证路径的前缀树,在init()时构建
+	 */
+	private static AntPathTrie basePermitTrie;
+
+	/**
+	 * 最近不匹配路径缓存的最大数量
+	 */
+	private static final int NEGATIVE_CACHE_SIZE = 4096;
+
+	/**
+	 * 最近不匹配路径缓存<br>
+	 * 主要用于扫描器等产生的大量不存在路径,有数量上限,超出时淘汰较早的记录。<br>
+	 */
+	private static Cache<String, Boolean> negativeCache = CacheBuilder.newBuilder().maximumSize(NEGATIVE_CACHE_SIZE).build();
+
 	@PostConstruct
 	private void init() {
 		SecurityProperties securityProperties = ContextUtil.bean(SecurityProperties.class);
@@ -67,17 +85,16 @@ public class Matcher {
 		//错误路径也加入到允许路径中
 		permitPaths.add(errorPath);
 		basePermitPaths.add(errorPath);
+		basePermitTrie = new AntPathTrie(matcher, basePermitPaths);
 		//找出所有端点的url
 		MVCUtil.requestMappingHandlerMappingStream().map((iter) -> iter.getHandlerMethods().entrySet()).flatMap(Collection::stream).forEach((
 			entry) -> {
 			//获取该端点的路径
 			String requestPath = StrUtil.concat(basePath, entry.getKey().getPatternsCondition().getPatterns().iterator().next());
 			//直接判断该路径是否需要验证,如果与免验证路径匹配则加入不需要验证路径,否则加入需要验证路径中
-			for (String path : basePermitPaths) {
-				if (matcher.match(path, requestPath)) {
-					permitPaths.add(requestPath);
-					return;
-				}
+			if (basePermitTrie.match(requestPath)) {
+				permitPaths.add(requestPath);
+				return;
 			}
 			needVerifyPaths.add(requestPath);
 		});
@@ -85,6 +102,7 @@ public class Matcher {
 		Assert.notNull(needVerifyPaths, "needVerifyPaths must not be null");
 		Assert.notNull(permitPaths, "permitPaths must not be null");
 		Assert.notNull(basePermitPaths, "basePermitPaths must not be null");
+		Assert.notNull(basePermitTrie, "basePermitTrie must not be null");
 		checkCorrectPermissions(securityProperties);
 	}
 
@@ -167,12 +185,15 @@ public class Matcher {
 		if (permitPaths.contains(uri)) {
 			return true;
 		}
-		//对于可能出现的错误路径,交由matcher判断
-		for (String path : basePermitPaths) {
-			if (matcher.match(path, uri)) {
-				return true;
-			}
+		//近期已确认不匹配的路径,直接返回
+		if (negativeCache.getIfPresent(uri) != null) {
+			return false;
+		}
+		//对于可能出现的错误路径,交由前缀树判断
+		if (basePermitTrie.match(uri)) {
+			return true;
 		}
+		negativeCache.put(uri, Boolean.FALSE);
 		return false;
 	}
 
@@ -4,21 +4,28 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTCreator.Builder;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import frodez.config.security.settings.SecurityProperties;
 import frodez.dao.model.result.user.UserEndpointDetail;
+import frodez.service.permission.facade.IPermissionService;
+import frodez.util.beans.pair.Pair;
 import frodez.util.spring.ContextUtil;
 import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import org.springframework.context.annotation.DependsOn;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
 /**
- * token工具类
+ * token工具类<br>
+ * 普通token在声明中保存全部权限;精简token只保存会话id和角色id,权限在验证时根据角色从缓存中获取。<br>
+ * 生成哪种token由security.jwt.compact决定,验证时两种token均可接受。<br>
  * @author Frodez
  * @date 2018-11-14
  */
@@ -26,6 +33,11 @@ import org.springframework.util.Assert;
 @DependsOn("contextUtil")
 public class TokenUtil {
 
+	/**
+	 * 精简token中保存角色id的声明
+	 */
+	private static final String ROLE_CLAIM = "rid";
+
 	/**
 	 * 算法
 	 */
@@ -61,6 +73,16 @@ public class TokenUtil {
 	 */
 	private static String authorityClaim;
 
+	/**
+	 * 是否生成精简token
+	 */
+	private static boolean compact = false;
+
+	/**
+	 * 精简token验证时获取角色权限
+	 */
+	private static IPermissionService permissionService;
+
 	/**
 	 * HttpHeader名称
 	 */
@@ -84,6 +106,7 @@ public class TokenUtil {
 		expiration = properties.getJwt().getExpiration() * 1000;
 		expired = expiration > 0;
 		authorityClaim = properties.getJwt().getAuthorityClaim();
+		compact = properties.getJwt().getCompact();
 		header = properties.getJwt().getHeader();
 		tokenPrefix = properties.getJwt().getTokenPrefix();
 		tokenPrefixLength = tokenPrefix.length();
@@ -124,7 +147,12 @@ public class TokenUtil {
 	public static String generate(UserEndpointDetail user) {
 		Builder builder = baseBuilder();
 		builder.withSubject(user.getUser().getName());
-		builder.withArrayClaim(authorityClaim, AuthorityUtil.get(user.getEndpoints()));
+		if (compact) {
+			builder.withJWTId(Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, Character.MAX_RADIX));
+			builder.withClaim(ROLE_CLAIM, user.getUser().getRoleId());
+		} else {
+			builder.withArrayClaim(authorityClaim, AuthorityUtil.get(user.getEndpoints()));
+		}
 		return builder.sign(algorithm);
 	}
 
@@ -137,7 +165,21 @@ public class TokenUtil {
 	public static UserDetails verify(String token) {
 		//前面已经将exp置为合适的过期时间了,这里只需要判断其是否超过当前时间即可.
 		DecodedJWT jwt = expired ? expiredVerifier.verify(token) : verifier.verify(token);
-		return new User(jwt.getSubject(), "N/A", AuthorityUtil.make(jwt.getClaim(authorityClaim).asArray(String.class)));
+		return user(jwt);
+	}
+
+	/**
+	 * 验证token,同时返回token的过期时间(毫秒时间戳)<br>
+	 * 不会过期的token,过期时间为Long.MAX_VALUE。<br>
+	 * @see frodez.config.security.util.TokenUtil#verify(String)
+	 * @author Frodez
+	 * @date 2020-01-05
+	 */
+	public static Pair<UserDetails, Long> verifyWithExpiresAt(String token) {
+		DecodedJWT jwt = expired ? expiredVerifier.verify(token) : verifier.verify(token);
+		UserDetails user = user(jwt);
+		Date expiresAt = jwt.getExpiresAt();
+		return new Pair<>(user, expiresAt == null ? Long.MAX_VALUE : expiresAt.getTime());
 	}
 
 	/**
@@ -147,7 +189,23 @@ public class TokenUtil {
 	 */
 	public static UserDetails verifyWithNoExpired(String token) {
 		DecodedJWT jwt = verifier.verify(token);
-		return new User(jwt.getSubject(), "N/A", AuthorityUtil.make(jwt.getClaim(authorityClaim).asArray(String.class)));
+		return user(jwt);
+	}
+
+	/**
+	 * 根据已验证的token生成用户信息,精简token的权限根据角色id获取
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	private static UserDetails user(DecodedJWT jwt) {
+		Claim role = jwt.getClaim(ROLE_CLAIM);
+		if (role.isNull()) {
+			return new User(jwt.getSubject(), "N/A", AuthorityUtil.make(jwt.getClaim(authorityClaim).asArray(String.class)));
+		}
+		if (permissionService == null) {
+			permissionService = ContextUtil.bean(IPermissionService.class);
+		}
+		return new User(jwt.getSubject(), "N/A", permissionService.getAuthorities(role.asLong()).list(GrantedAuthority.class));
 	}
 
 	/**
@@ -1,5 +1,7 @@
 package frodez.config.security.util;
 
+import frodez.dao.mapper.user.RoleMapper;
+import frodez.dao.mapper.user.UserMapper;
 import frodez.dao.model.result.user.UserBaseInfo;
 import frodez.dao.model.result.user.UserInfo;
 import frodez.dao.model.table.user.Role;
@@ -9,6 +11,7 @@ import frodez.service.cache.facade.user.RoleCache;
 import frodez.service.cache.facade.user.UserCache;
 import frodez.util.spring.ContextUtil;
 import frodez.util.spring.MVCUtil;
+import java.util.concurrent.atomic.LongAdder;
 import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import lombok.SneakyThrows;
@@ -29,6 +32,16 @@ import org.springframework.util.Assert;
 @DependsOn("contextUtil")
 public class UserUtil {
 
+	/**
+	 * 请求上下文中当前用户信息的属性名
+	 */
+	private static final String CONTEXT_KEY = UserUtil.class.getName() + ".CONTEXT";
+
+	/**
+	 * 通过上下文避免的缓存查询总次数
+	 */
+	private static final LongAdder totalAvoided = new LongAdder();
+
 	private static IdTokenCache idTokenCache;
 
 	private static UserCache userCache;
@@ -37,23 +50,72 @@ public class UserUtil {
 
 	private static SettingCache settingCache;
 
+	private static UserMapper userMapper;
+
+	private static RoleMapper roleMapper;
+
 	@PostConstruct
 	private void init() {
-		idTokenCache = ContextUtil.bean("idTokenRedisCache", IdTokenCache.class);
-		userCache = ContextUtil.bean("userMapCache", UserCache.class);
-		roleCache = ContextUtil.bean("roleMapCache", RoleCache.class);
+		idTokenCache = ContextUtil.bean("idTokenNearCache", IdTokenCache.class);
+		userCache = ContextUtil.bean("userGuavaCache", UserCache.class);
+		roleCache = ContextUtil.bean("roleIndexCache", RoleCache.class);
 		settingCache = ContextUtil.bean("settingMapCache", SettingCache.class);
+		userMapper = ContextUtil.bean(UserMapper.class);
+		roleMapper = ContextUtil.bean(RoleMapper.class);
 		Assert.notNull(idTokenCache, "idTokenCache must not be null");
 		Assert.notNull(userCache, "userCache must not be null");
+		Assert.notNull(roleCache, "roleCache must not be null");
 		Assert.notNull(settingCache, "settingCache must not be null");
 	}
 
+	/**
+	 * 绑定当前请求的已验证用户信息,由TokenFilter在验证通过后调用<br>
+	 * 绑定后,本工具类的各方法均从请求上下文中获取信息,不再重复查询缓存。<br>
+	 * @author Frodez
+	 * @date 2020-01-07
+	 */
+	public static void bind(HttpServletRequest request, String token, Long id) {
+		request.setAttribute(CONTEXT_KEY, new Context(token, id));
+	}
+
+	/**
+	 * 获取当前请求中通过上下文避免的缓存查询次数,未绑定时返回0
+	 * @author Frodez
+	 * @date 2020-01-07
+	 */
+	public static int avoidedLookups(HttpServletRequest request) {
+		Context context = (Context) request.getAttribute(CONTEXT_KEY);
+		return context == null ? 0 : context.avoided;
+	}
+
+	/**
+	 * 获取启动以来通过上下文避免的缓存查询总次数
+	 * @author Frodez
+	 * @date 2020-01-07
+	 */
+	public static long totalAvoidedLookups() {
+		return totalAvoided.sum();
+	}
+
+	/**
+	 * 获取当前请求绑定的用户信息,未绑定时返回null
+	 * @author Frodez
+	 * @date 2020-01-07
+	 */
+	private static Context context() {
+		return (Context) MVCUtil.request().getAttribute(CONTEXT_KEY);
+	}
+
 	/**
 	 * 获取当前用户token,不能用于免验证URI中
 	 * @author Frodez
 	 * @date 2019-01-09
 	 */
 	public static String token() {
+		Context context = context();
+		if (context != null) {
+			return context.token;
+		}
 		HttpServletRequest request = MVCUtil.request();
 		if (!Matcher.needVerify(request)) {
 			log.warn("[UserUtil.get]不能在免验证URI中获取token信息!");
@@ -69,6 +131,11 @@ public class UserUtil {
 	 */
 	@SneakyThrows
 	public static Long id() {
+		Context context = context();
+		if (context != null) {
+			context.avoid();
+			return context.id;
+		}
 		String token = token();
 		if (token == null) {
 			return null;
@@ -92,6 +159,18 @@ public class UserUtil {
 	 * @date 2019-12-29
 	 */
 	public static UserBaseInfo user() {
+		Context context = context();
+		if (context != null) {
+			if (context.user == null) {
+				//仅避免了id查询
+				context.user = loadUser(context.id);
+			} else {
+				//id查询和用户查询均被避免
+				context.avoid();
+			}
+			context.avoid();
+			return context.user;
+		}
 		String token = token();
 		if (token == null) {
 			return null;
@@ -100,7 +179,7 @@ public class UserUtil {
 		if (id == null) {
 			return null;
 		}
-		return userCache.get(id);
+		return loadUser(id);
 	}
 
 	/**
@@ -109,6 +188,18 @@ public class UserUtil {
 	 * @date 2019-12-29
 	 */
 	public static Role role() {
+		Context context = context();
+		if (context != null) {
+			if (context.role == null) {
+				//仅避免了id查询
+				context.role = loadRole(context.id);
+			} else {
+				//id查询和角色查询均被避免
+				context.avoid();
+			}
+			context.avoid();
+			return context.role;
+		}
 		String token = token();
 		if (token == null) {
 			return null;
@@ -117,7 +208,7 @@ public class UserUtil {
 		if (id == null) {
 			return null;
 		}
-		return roleCache.get(id);
+		return loadRole(id);
 	}
 
 	/**
@@ -126,19 +217,30 @@ public class UserUtil {
 	 * @date 2019-12-29
 	 */
 	public static UserInfo now() {
-		String token = token();
-		if (token == null) {
-			return null;
-		}
-		Long id = idTokenCache.getId(token);
-		if (id == null) {
-			return null;
+		UserBaseInfo user;
+		Role role;
+		Context context = context();
+		if (context != null) {
+			user = user();
+			if (user == null) {
+				return null;
+			}
+			role = role();
+		} else {
+			String token = token();
+			if (token == null) {
+				return null;
+			}
+			Long id = idTokenCache.getId(token);
+			if (id == null) {
+				return null;
+			}
+			user = loadUser(id);
+			if (user == null) {
+				return null;
+			}
+			role = loadRole(id);
 		}
-		UserBaseInfo user = userCache.get(id);
-		if (user == null) {
-			return null;
-		}
-		Role role = roleCache.get(id);
 		if (role == null) {
 			return null;
 		}
@@ -174,4 +276,75 @@ public class UserUtil {
 		return settingCache.reject(role.getId(), setting);
 	}
 
+	/**
+	 * 获取用户信息,缓存中不存在(已被淘汰)时从数据库重新加载,被禁用的用户视为不存在<br>
+	 * 不能通过IUserManageService加载,因为其中会调用role(),造成循环调用。<br>
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	private static UserBaseInfo loadUser(Long id) {
+		UserBaseInfo user = userCache.get(id);
+		if (user != null) {
+			return user;
+		}
+		user = userMapper.getBaseInfoById(id, false);
+		if (user != null) {
+			userCache.save(id, user);
+		}
+		return user;
+	}
+
+	/**
+	 * 获取用户角色,缓存中不存在(已被淘汰)时从数据库重新加载
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	private static Role loadRole(Long id) {
+		Role role = roleCache.get(id);
+		if (role != null) {
+			return role;
+		}
+		UserBaseInfo user = loadUser(id);
+		if (user == null) {
+			return null;
+		}
+		role = roleMapper.selectByPrimaryKey(user.getRoleId());
+		if (role != null) {
+			roleCache.save(id, role);
+		}
+		return role;
+	}
+
+	/**
+	 * 当前请求的已验证用户信息
+	 * @author Frodez
+	 * @date 2020-01-07
+	 */
+	private static class Context {
+
+		final String token;
+
+		final Long id;
+
+		UserBaseInfo user;
+
+		Role role;
+
+		/**
+		 * 本次请求通过上下文避免的缓存查询次数
+		 */
+		int avoided;
+
+		Context(String token, Long id) {
+			this.token = token;
+			this.id = id;
+		}
+
+		void avoid() {
+			++avoided;
+			totalAvoided.increment();
+		}
+
+	}
+
 }
@@ -0,0 +1,625 @@
+package frodez.config.validator;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedArrayType;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.validation.Constraint;
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Negative;
+import javax.validation.constraints.NegativeOrZero;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import javax.validation.groups.Default;
+import org.hibernate.validator.constraints.Length;
+
+/**
+ * 预编译的方法参数验证计划<br>
+ * 在切点匹配时分析方法参数上的约束,对支持的约束直接读取字段进行检查,正则表达式预先编译。<br>
+ * 支持的约束:@NotNull,@NotBlank,@NotEmpty,@Min,@Max,@Positive,@PositiveOrZero,@Negative,@NegativeOrZero,@Size,@Length,@Pattern,
+ * 以及@Valid级联(包括List&lt;@Valid T&gt;)。<br>
+ * 不支持的约束交给hibernate-validator:字段上的约束使用validateProperty,类上的约束使用validate,参数上的约束则整个方法回退到validateParameters。<br>
+ * 检查全部通过时直接放行;任意检查未通过时,由ValidationUtil使用hibernate-validator重新验证整个方法,因此错误信息与原来完全一致。<br>
+ * <strong>检查只需保证:返回true时hibernate-validator也一定验证通过。无法确定时(如运行时类型与编译时不同)返回false。</strong><br>
+ * @author Frodez
+ * @date 2020-01-13
+ */
+public class ValidationPlan {
+
+	/**
+	 * 无法预编译,需要使用hibernate-validator验证整个方法
+	 */
+	static final ValidationPlan FALLBACK = new ValidationPlan(null, null);
+
+	/**
+	 * 已编译的类型,编译时使用的Map,只在持有ValidationPlan.class锁时访问
+	 */
+	private static Map<Class<?>, Rule> beans = new HashMap<>();
+
+	/**
+	 * 正在编译的类型,用于发现循环引用
+	 */
+	private static Set<Class<?>> building = new HashSet<>();
+
+	/**
+	 * 编译时的实例类型
+	 */
+	private final Class<?> type;
+
+	/**
+	 * 各参数的检查,无需检查的参数为null
+	 */
+	private final Rule[] params;
+
+	private ValidationPlan(Class<?> type, Rule[] params) {
+		this.type = type;
+		this.params = params;
+	}
+
+	/**
+	 * 检查参数,返回true时表示验证通过,返回false时需要使用hibernate-validator重新验证
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	public boolean test(Object instance, Object[] args) {
+		if (params == null || instance.getClass() != type) {
+			return false;
+		}
+		try {
+			for (int i = 0; i < params.length; ++i) {
+				if (params[i] != null && !params[i].test(args[i])) {
+					return false;
+				}
+			}
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 编译方法参数的验证计划,无法编译时返回FALLBACK
+	 * @param type 方法所在类实例的类型,hibernate-validator按照该类型的继承关系合并参数约束
+	 * @param method 需要验证的方法
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	public static synchronized ValidationPlan compile(Class<?> type, Method method) {
+		List<Method> declarations = declarations(type, method);
+		if (declarations == null) {
+			return FALLBACK;
+		}
+		Rule[] params = new Rule[method.getParameterCount()];
+		for (Method declaration : declarations) {
+			//方法上的约束(跨参数约束等)不支持
+			if (hasConstraint(declaration.getAnnotations())) {
+				return FALLBACK;
+			}
+		}
+		for (int i = 0; i < params.length; ++i) {
+			List<Annotation> annotations = new ArrayList<>();
+			boolean cascade = false;
+			Class<?> elementType = null;
+			int constrained = 0;
+			for (Method declaration : declarations) {
+				Parameter parameter = declaration.getParameters()[i];
+				boolean found = false;
+				for (Annotation annotation : parameter.getAnnotations()) {
+					if (annotation.annotationType() == Valid.class) {
+						cascade = true;
+						found = true;
+					} else if (isConstraint(annotation)) {
+						annotations.add(annotation);
+						found = true;
+					}
+				}
+				Class<?> element = elementType(parameter.getAnnotatedType());
+				if (element == Void.class) {
+					return FALLBACK;
+				}
+				if (element != null) {
+					elementType = element;
+					found = true;
+				}
+				if (found) {
+					++constrained;
+				}
+			}
+			Rule rule = constraints(annotations);
+			if (rule == null) {
+				return FALLBACK;
+			}
+			//hibernate-validator不允许重写的方法修改参数约束,此时交给hibernate-validator处理
+			if (constrained > 1) {
+				return FALLBACK;
+			}
+			Rule cascadeRule = cascade(cascade, elementType, method.getParameterTypes()[i], declarations.get(0).getParameters()[i]
+				.getAnnotatedType());
+			if (cascadeRule == null) {
+				return FALLBACK;
+			}
+			rule = and(rule, cascadeRule);
+			params[i] = rule == Rule.VALID ? null : rule;
+		}
+		return new ValidationPlan(type, params);
+	}
+
+	/**
+	 * 获取方法在类型继承关系中的所有声明,存在泛型桥接方法时无法确定对应关系,返回null
+	 */
+	private static List<Method> declarations(Class<?> type, Method method) {
+		Set<Class<?>> hierarchy = new LinkedHashSet<>();
+		hierarchy(type, hierarchy);
+		hierarchy(method.getDeclaringClass(), hierarchy);
+		List<Method> result = new ArrayList<>();
+		for (Class<?> klass : hierarchy) {
+			for (Method item : klass.getDeclaredMethods()) {
+				if (!item.getName().equals(method.getName()) || item.getParameterCount() != method.getParameterCount()) {
+					continue;
+				}
+				if (item.isBridge()) {
+					return null;
+				}
+				if (Arrays.equals(item.getParameterTypes(), method.getParameterTypes())) {
+					result.add(item);
+				}
+			}
+		}
+		return result.isEmpty() ? null : result;
+	}
+
+	private static void hierarchy(Class<?> klass, Set<Class<?>> result) {
+		if (klass == null || klass == Object.class || !result.add(klass)) {
+			return;
+		}
+		hierarchy(klass.getSuperclass(), result);
+		for (Class<?> item : klass.getInterfaces()) {
+			hierarchy(item, result);
+		}
+	}
+
+	/**
+	 * 获取容器元素上@Valid对应的元素类型。<br>
+	 * 无容器元素约束时返回null,存在不支持的容器元素约束时返回Void.class。<br>
+	 * 目前只支持Iterable的类型参数上的@Valid。<br>
+	 */
+	private static Class<?> elementType(AnnotatedType annotatedType) {
+		if (annotatedType instanceof AnnotatedArrayType) {
+			return hasTypeUse(((AnnotatedArrayType) annotatedType).getAnnotatedGenericComponentType()) ? Void.class : null;
+		}
+		if (!(annotatedType instanceof AnnotatedParameterizedType)) {
+			return null;
+		}
+		AnnotatedType[] arguments = ((AnnotatedParameterizedType) annotatedType).getAnnotatedActualTypeArguments();
+		boolean found = false;
+		for (AnnotatedType argument : arguments) {
+			if (hasTypeUse(argument)) {
+				found = true;
+			}
+		}
+		if (!found) {
+			return null;
+		}
+		Class<?> raw = rawType(annotatedType);
+		if (raw == null || !Iterable.class.isAssignableFrom(raw) || arguments.length != 1) {
+			return Void.class;
+		}
+		AnnotatedType argument = arguments[0];
+		Annotation[] annotations = argument.getAnnotations();
+		if (annotations.length != 1 || annotations[0].annotationType() != Valid.class || !(argument.getType() instanceof Class)) {
+			return Void.class;
+		}
+		//元素类型自身不能再有容器元素约束
+		if (argument instanceof AnnotatedParameterizedType || argument instanceof AnnotatedArrayType) {
+			return Void.class;
+		}
+		return (Class<?>) argument.getType();
+	}
+
+	private static boolean hasTypeUse(AnnotatedType annotatedType) {
+		for (Annotation annotation : annotatedType.getAnnotations()) {
+			if (annotation.annotationType() == Valid.class || isConstraint(annotation)) {
+				return true;
+			}
+		}
+		if (annotatedType instanceof AnnotatedArrayType) {
+			return hasTypeUse(((AnnotatedArrayType) annotatedType).getAnnotatedGenericComponentType());
+		}
+		if (annotatedType instanceof AnnotatedParameterizedType) {
+			for (AnnotatedType argument : ((AnnotatedParameterizedType) annotatedType).getAnnotatedActualTypeArguments()) {
+				if (hasTypeUse(argument)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static Class<?> rawType(AnnotatedType annotatedType) {
+		Type type = annotatedType.getType();
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		}
+		if (type instanceof ParameterizedType) {
+			Type raw = ((ParameterizedType) type).getRawType();
+			return raw instanceof Class ? (Class<?>) raw : null;
+		}
+		return null;
+	}
+
+	/**
+	 * 级联检查,无法编译时返回null
+	 * @param cascade 是否存在@Valid
+	 * @param elementType Iterable的类型参数上存在@Valid时的元素类型
+	 * @param declaredType 声明的类型
+	 */
+	private static Rule cascade(boolean cascade, Class<?> elementType, Class<?> declaredType, AnnotatedType annotatedType) {
+		Rule rule = Rule.VALID;
+		if (elementType != null) {
+			Rule element = bean(elementType);
+			if (element == null) {
+				return null;
+			}
+			rule = elements(element);
+		}
+		if (!cascade) {
+			return rule;
+		}
+		if (Iterable.class.isAssignableFrom(declaredType)) {
+			//@Valid直接加在Iterable上时,级联到元素
+			if (elementType != null) {
+				return rule;
+			}
+			if (!(annotatedType instanceof AnnotatedParameterizedType)) {
+				return null;
+			}
+			Type argument = ((AnnotatedParameterizedType) annotatedType).getAnnotatedActualTypeArguments()[0].getType();
+			if (!(argument instanceof Class)) {
+				return null;
+			}
+			Rule element = bean((Class<?>) argument);
+			return element == null ? null : elements(element);
+		}
+		if (Map.class.isAssignableFrom(declaredType) || declaredType.isArray() || declaredType.getName().startsWith("java.util.Optional")) {
+			return null;
+		}
+		Rule bean = bean(declaredType);
+		if (bean == null) {
+			return null;
+		}
+		return and(rule, (value) -> value == null || bean.test(value));
+	}
+
+	private static Rule elements(Rule element) {
+		return (value) -> {
+			if (value == null) {
+				return true;
+			}
+			if (!(value instanceof Iterable)) {
+				return false;
+			}
+			for (Object item : (Iterable<?>) value) {
+				//hibernate-validator级联时跳过null
+				if (item != null && !element.test(item)) {
+					return false;
+				}
+			}
+			return true;
+		};
+	}
+
+	/**
+	 * 编译类型的检查,检查的值不为null,存在循环引用时返回null
+	 */
+	private static Rule bean(Class<?> klass) {
+		Rule rule = beans.get(klass);
+		if (rule != null) {
+			return rule;
+		}
+		if (!building.add(klass)) {
+			return null;
+		}
+		try {
+			rule = fields(klass);
+			if (rule == null) {
+				//类上存在不支持的约束,或存在循环引用等情况,交给hibernate-validator验证整个对象
+				rule = (value) -> ValidationUtil.isValid(value);
+			}
+			Rule result = rule;
+			Rule exact = (value) -> value.getClass() == klass && result.test(value);
+			beans.put(klass, exact);
+			return exact;
+		} finally {
+			building.remove(klass);
+		}
+	}
+
+	/**
+	 * 编译类型中所有字段的检查,无法编译时返回null
+	 */
+	private static Rule fields(Class<?> klass) {
+		if (klass.isPrimitive() || klass.isEnum() || klass.getName().startsWith("java.")) {
+			return Rule.VALID;
+		}
+		Set<Class<?>> hierarchy = new LinkedHashSet<>();
+		hierarchy(klass, hierarchy);
+		List<Rule> rules = new ArrayList<>();
+		for (Class<?> item : hierarchy) {
+			if (hasConstraint(item.getAnnotations())) {
+				return null;
+			}
+			//getter上的约束不支持
+			for (Method method : item.getDeclaredMethods()) {
+				if (method.getParameterCount() == 0 && (method.isAnnotationPresent(Valid.class) || hasConstraint(method.getAnnotations()))) {
+					return null;
+				}
+			}
+			if (item.isInterface()) {
+				continue;
+			}
+			for (Field field : item.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+					continue;
+				}
+				Rule rule = field(field);
+				if (rule == null) {
+					return null;
+				}
+				if (rule != Rule.VALID) {
+					rules.add(rule);
+				}
+			}
+		}
+		return and(rules.toArray(new Rule[rules.size()]));
+	}
+
+	/**
+	 * 编译字段的检查,检查的值为字段所在的对象,无法编译时返回null
+	 */
+	private static Rule field(Field field) {
+		List<Annotation> annotations = new ArrayList<>();
+		for (Annotation annotation : field.getAnnotations()) {
+			if (isConstraint(annotation)) {
+				annotations.add(annotation);
+			}
+		}
+		boolean cascade = field.isAnnotationPresent(Valid.class);
+		Class<?> elementType = elementType(field.getAnnotatedType());
+		if (elementType == Void.class) {
+			return null;
+		}
+		if (annotations.isEmpty() && !cascade && elementType == null) {
+			return Rule.VALID;
+		}
+		field.setAccessible(true);
+		Rule cascadeRule = cascade(cascade, elementType, field.getType(), field.getAnnotatedType());
+		if (cascadeRule == null) {
+			return null;
+		}
+		Rule rule = constraints(annotations);
+		if (rule == null) {
+			//字段上存在不支持的约束,该字段的约束交给hibernate-validator
+			String name = field.getName();
+			return (bean) -> ValidationUtil.isValid(bean, name) && cascadeRule.test(field.get(bean));
+		}
+		Rule value = and(rule, cascadeRule);
+		return value == Rule.VALID ? Rule.VALID : (bean) -> value.test(field.get(bean));
+	}
+
+	/**
+	 * 编译约束,存在不支持的约束时返回null
+	 */
+	private static Rule constraints(List<Annotation> annotations) {
+		Rule[] rules = new Rule[annotations.size()];
+		for (int i = 0; i < rules.length; ++i) {
+			rules[i] = constraint(annotations.get(i));
+			if (rules[i] == null) {
+				return null;
+			}
+		}
+		return and(rules);
+	}
+
+	/**
+	 * 编译单个约束,不支持时返回null
+	 */
+	private static Rule constraint(Annotation annotation) {
+		if (!isDefaultGroup(annotation)) {
+			return null;
+		}
+		if (annotation instanceof NotNull) {
+			return (value) -> value != null;
+		}
+		if (annotation instanceof NotBlank) {
+			return (value) -> value instanceof CharSequence && value.toString().trim().length() > 0;
+		}
+		if (annotation instanceof NotEmpty) {
+			return (value) -> size(value) > 0;
+		}
+		if (annotation instanceof Min) {
+			long min = ((Min) annotation).value();
+			return (value) -> value == null || isIntegral(value) && ((Number) value).longValue() >= min;
+		}
+		if (annotation instanceof Max) {
+			long max = ((Max) annotation).value();
+			return (value) -> value == null || isIntegral(value) && ((Number) value).longValue() <= max;
+		}
+		if (annotation instanceof Positive) {
+			return (value) -> value == null || isIntegral(value) && ((Number) value).longValue() > 0;
+		}
+		if (annotation instanceof PositiveOrZero) {
+			return (value) -> value == null || isIntegral(value) && ((Number) value).longValue() >= 0;
+		}
+		if (annotation instanceof Negative) {
+			return (value) -> value == null || isIntegral(value) && ((Number) value).longValue() < 0;
+		}
+		if (annotation instanceof NegativeOrZero) {
+			return (value) -> value == null || isIntegral(value) && ((Number) value).longValue() <= 0;
+		}
+		if (annotation instanceof Size) {
+			int min = ((Size) annotation).min();
+			int max = ((Size) annotation).max();
+			return (value) -> {
+				if (value == null) {
+					return true;
+				}
+				int size = size(value);
+				return size >= min && size <= max;
+			};
+		}
+		if (annotation instanceof Length) {
+			int min = ((Length) annotation).min();
+			int max = ((Length) annotation).max();
+			return (value) -> {
+				if (value == null) {
+					return true;
+				}
+				if (!(value instanceof CharSequence)) {
+					return false;
+				}
+				int length = ((CharSequence) value).length();
+				return length >= min && length <= max;
+			};
+		}
+		if (annotation instanceof Pattern) {
+			Pattern config = (Pattern) annotation;
+			int flags = 0;
+			for (Pattern.Flag flag : config.flags()) {
+				flags |= flag.getValue();
+			}
+			java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(config.regexp(), flags);
+			return (value) -> value == null || value instanceof CharSequence && pattern.matcher((CharSequence) value).matches();
+		}
+		return null;
+	}
+
+	/**
+	 * 字符串,集合,Map和对象数组的大小,其他类型返回-1
+	 */
+	private static int size(Object value) {
+		if (value instanceof CharSequence) {
+			return ((CharSequence) value).length();
+		}
+		if (value instanceof Collection) {
+			return ((Collection<?>) value).size();
+		}
+		if (value instanceof Map) {
+			return ((Map<?, ?>) value).size();
+		}
+		if (value instanceof Object[]) {
+			return ((Object[]) value).length;
+		}
+		return -1;
+	}
+
+	/**
+	 * 只支持不会溢出的整数类型,其他数字类型交给hibernate-validator
+	 */
+	private static boolean isIntegral(Object value) {
+		return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+	}
+
+	private static boolean isDefaultGroup(Annotation annotation) {
+		try {
+			Class<?>[] groups = (Class<?>[]) annotation.annotationType().getMethod("groups").invoke(annotation);
+			return groups.length == 0 || groups.length == 1 && groups[0] == Default.class;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	private static boolean hasConstraint(Annotation[] annotations) {
+		for (Annotation annotation : annotations) {
+			if (isConstraint(annotation)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 是否为约束,或者是约束的容器(如@Pattern.List)
+	 */
+	private static boolean isConstraint(Annotation annotation) {
+		Class<? extends Annotation> annotationType = annotation.annotationType();
+		if (annotationType.isAnnotationPresent(Constraint.class)) {
+			return true;
+		}
+		try {
+			Class<?> valueType = annotationType.getMethod("value").getReturnType();
+			return valueType.isArray() && valueType.getComponentType().isAnnotationPresent(Constraint.class);
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static Rule and(Rule... rules) {
+		List<Rule> list = new ArrayList<>(rules.length);
+		for (Rule rule : rules) {
+			if (rule != Rule.VALID) {
+				list.add(rule);
+			}
+		}
+		switch (list.size()) {
+			case 0 : {
+				return Rule.VALID;
+			}
+			case 1 : {
+				return list.get(0);
+			}
+			case 2 : {
+				Rule first = list.get(0);
+				Rule second = list.get(1);
+				return (value) -> first.test(value) && second.test(value);
+			}
+			default : {
+				Rule[] array = list.toArray(new Rule[list.size()]);
+				return (value) -> {
+					for (Rule rule : array) {
+						if (!rule.test(value)) {
+							return false;
+						}
+					}
+					return true;
+				};
+			}
+		}
+	}
+
+	/**
+	 * 单项检查,返回true时表示一定验证通过
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	@FunctionalInterface
+	interface Rule {
+
+		Rule VALID = (value) -> true;
+
+		boolean test(Object value) throws Exception;
+
+	}
+
+}
@@ -6,7 +6,9 @@ import frodez.util.common.StrUtil;
 import frodez.util.spring.ContextUtil;
 import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -45,6 +47,16 @@ public class ValidationUtil {
 	 */
 	private static boolean failFast;
 
+	/**
+	 * 是否使用预编译的参数验证计划
+	 */
+	private static boolean compiled;
+
+	/**
+	 * 预编译的参数验证计划
+	 */
+	private static Map<Method, ValidationPlan> plans = new ConcurrentHashMap<>();
+
 	@PostConstruct
 	private void init() {
 		ValidatorProperties properties = ContextUtil.bean(ValidatorProperties.class);
@@ -56,6 +68,7 @@ public class ValidationUtil {
 		//配置快速失败
 		configuration.failFast(properties.getFailFast());
 		failFast = properties.getFailFast();
+		compiled = properties.getCompiled();
 		engine = configuration.buildValidatorFactory().getValidator();
 	}
 
@@ -69,8 +82,21 @@ public class ValidationUtil {
 		context.buildConstraintViolationWithTemplate(message).addConstraintViolation();
 	}
 
+	/**
+	 * 预编译方法的参数验证计划,应在切点匹配时调用。未预编译的方法在第一次验证时编译。
+	 * @see frodez.config.validator.ValidationPlan
+	 * @author Frodez
+	 * @param method 需要验证的方法
+	 * @param targetClass 方法所在类的类型
+	 * @date 2020-01-13
+	 */
+	public static void compile(final Method method, final Class<?> targetClass) {
+		plans.put(method, ValidationPlan.compile(targetClass, method));
+	}
+
 	/**
 	 * 对方法参数进行验证,如果验证通过,返回null<br>
+	 * 优先使用预编译的验证计划,验证计划未通过时再使用hibernate-validator验证,以获取错误信息。<br>
 	 * <strong>用于AOP,因为AOP做出了保证,故无NPE检查。如需要单独使用,请保证参数均非null。</strong>
 	 * @author Frodez
 	 * @param instance 需要验证的方法所在类实例
@@ -79,6 +105,16 @@ public class ValidationUtil {
 	 * @date 2019-01-12
 	 */
 	public static String validateParam(final Object instance, final Method method, final Object[] args) {
+		if (compiled) {
+			ValidationPlan plan = plans.get(method);
+			if (plan == null) {
+				plan = ValidationPlan.compile(instance.getClass(), method);
+				plans.put(method, plan);
+			}
+			if (plan.test(instance, args)) {
+				return null;
+			}
+		}
 		Set<ConstraintViolation<Object>> set = engine.forExecutables().validateParameters(instance, method, args);
 		if (set.isEmpty()) {
 			return null;
@@ -115,6 +151,24 @@ public class ValidationUtil {
 		return failFast ? getErrorMessage(set.iterator().next()) : getErrorMessage(set);
 	}
 
+	/**
+	 * 对象是否验证通过,供ValidationPlan在不支持的约束上使用
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	static boolean isValid(final Object object) {
+		return engine.validate(object).isEmpty();
+	}
+
+	/**
+	 * 对象的属性是否验证通过,供ValidationPlan在不支持的约束上使用
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	static boolean isValid(final Object object, final String property) {
+		return engine.validateProperty(object, property).isEmpty();
+	}
+
 	/**
 	 * 获取格式化的错误信息
 	 * @author Frodez
@@ -43,4 +43,9 @@ public class ValidatorProperties {
 	 */
 	private Boolean failFast = true;
 
+	/**
+	 * 是否使用预编译的参数验证计划,验证失败时仍使用hibernate-validator生成错误信息
+	 */
+	private Boolean compiled = true;
+
 }
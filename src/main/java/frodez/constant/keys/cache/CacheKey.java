@@ -21,6 +21,12 @@ public class CacheKey {
 
 	}
 
+	public static class Limiter {
+
+		public static final String BUCKET = "Limiter.bucket";
+
+	}
+
 	public static class UserCache {
 
 		public static final String ID = "UserCache.id";
@@ -33,12 +39,22 @@ public class CacheKey {
 
 		public static final String TOKEN_ID = "IdTokenCache.token_id";
 
+		public static final String ID_EXPIRE = "IdTokenCache.id_expire";
+
+		public static final String TOKEN_EXPIRE = "IdTokenCache.token_expire";
+
+		public static final String CHANNEL = "IdTokenCache.channel";
+
+		public static final String CLEAN_LOCK = "IdTokenCache.clean_lock";
+
 	}
 
 	public static class PermissionCache {
 
 		public static final String ROLE_ID = "PermissionCache.role_id";
 
+		public static final String ROLE_ID_BINARY = "PermissionCache.role_id_binary";
+
 	}
 
 }
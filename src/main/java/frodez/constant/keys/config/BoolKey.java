@@ -9,6 +9,11 @@ public enum BoolKey implements GlobalDataKey<Boolean> {
 
 	A;
 
+	@Override
+	public int type() {
+		return 1;
+	}
+
 	@Override
 	public Boolean revert(String value) {
 		return Boolean.valueOf(value);
@@ -9,6 +9,11 @@ public enum DoubleKey implements GlobalDataKey<Double> {
 
 	A;
 
+	@Override
+	public int type() {
+		return 3;
+	}
+
 	@Override
 	public Double revert(String value) {
 		return Double.valueOf(value);
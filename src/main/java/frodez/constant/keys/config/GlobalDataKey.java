@@ -7,6 +7,13 @@ package frodez.constant.keys.config;
  */
 public interface GlobalDataKey<T> {
 
+	/**
+	 * 获取配置类型,与GlobalData.type一致
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	int type();
+
 	/**
 	 * 转换数据
 	 * @author Frodez
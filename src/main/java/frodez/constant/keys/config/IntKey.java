@@ -12,6 +12,11 @@ public enum IntKey implements GlobalDataKey<Long> {
 	 */
 	DEFAULT_USER_ROLE;
 
+	@Override
+	public int type() {
+		return 2;
+	}
+
 	@Override
 	public Long revert(String value) {
 		return Long.valueOf(value);
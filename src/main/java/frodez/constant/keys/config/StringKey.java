@@ -9,6 +9,11 @@ public enum StringKey implements GlobalDataKey<String> {
 
 	A;
 
+	@Override
+	public int type() {
+		return 4;
+	}
+
 	@Override
 	public String revert(String value) {
 		return value;
@@ -3,6 +3,8 @@ package frodez.controller.config;
 import frodez.config.aop.request.annotation.RepeatLock;
 import frodez.config.swagger.annotation.Success;
 import frodez.config.swagger.annotation.Success.Container;
+import frodez.dao.model.result.config.CacheBusStatsInfo;
+import frodez.dao.model.result.config.EndpointMetricInfo;
 import frodez.dao.model.table.config.GlobalData;
 import frodez.dao.model.table.config.Setting;
 import frodez.dao.param.config.UpdateGlobalData;
@@ -60,4 +62,16 @@ public class ConfigController {
 		return configService.setGlobalData(param);
 	}
 
+	@GetMapping(value = "/metric", name = "获取接口性能统计信息接口")
+	@Success(value = EndpointMetricInfo.class, containerType = Container.LIST)
+	public Result getMetrics() {
+		return configService.getMetrics();
+	}
+
+	@GetMapping(value = "/cacheBus", name = "获取缓存变更总线统计信息接口")
+	@Success(value = CacheBusStatsInfo.class, containerType = Container.LIST)
+	public Result getCacheBusStats() {
+		return configService.getCacheBusStats();
+	}
+
 }
@@ -2,6 +2,8 @@ package frodez.dao.mapper.config;
 
 import frodez.config.mybatis.mapper.DataMapper;
 import frodez.dao.model.table.config.GlobalData;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -11,4 +13,12 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface GlobalDataMapper extends DataMapper<GlobalData> {
+
+	/**
+	 * 根据id批量更新配置内容,只使用一条语句
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	int batchUpdateContent(@Param("datas") List<GlobalData> datas);
+
 }
\ No newline at end of file
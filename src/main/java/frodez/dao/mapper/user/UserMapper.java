@@ -3,6 +3,7 @@ package frodez.dao.mapper.user;
 import frodez.config.mybatis.mapper.DataMapper;
 import frodez.constant.annotations.decoration.Page;
 import frodez.dao.model.result.user.UserBaseInfo;
+import frodez.dao.model.result.user.UserEndpointDetail;
 import frodez.dao.model.table.user.User;
 import java.util.List;
 import org.apache.ibatis.annotations.Param;
@@ -45,4 +46,18 @@ public interface UserMapper extends DataMapper<User> {
 	@Page
 	List<UserBaseInfo> pageBaseInfo(@Param("includeForbidden") boolean includeForbidden);
 
+	/**
+	 * 根据用户id查询用户和角色信息,只使用一条语句,不包含接口信息
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	UserEndpointDetail getEndpointDetailById(@Param("userId") Long userId);
+
+	/**
+	 * 根据用户名查询用户和角色信息,只使用一条语句,不包含接口信息
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	UserEndpointDetail getEndpointDetailByName(@Param("userName") String userName);
+
 }
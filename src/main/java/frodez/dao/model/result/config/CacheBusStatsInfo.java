@@ -0,0 +1,64 @@
+package frodez.dao.model.result.config;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 缓存变更总线接收统计信息
+ * @author Frodez
+ * @date 2020-01-13
+ */
+@Data
+@ApiModel(description = "缓存变更总线接收统计信息")
+public class CacheBusStatsInfo implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 发出事件的节点
+	 */
+	@ApiModelProperty("发出事件的节点")
+	private String node;
+
+	/**
+	 * 最近一次收到的版本号
+	 */
+	@ApiModelProperty("最近一次收到的版本号")
+	private Long lastVersion;
+
+	/**
+	 * 收到的事件数
+	 */
+	@ApiModelProperty("收到的事件数")
+	private Long received;
+
+	/**
+	 * 发现事件丢失的次数,每次都会执行全量刷新
+	 */
+	@ApiModelProperty("发现事件丢失的次数,每次都会执行全量刷新")
+	private Long gaps;
+
+	/**
+	 * 最近一次事件从发出到接收的延迟,单位毫秒
+	 */
+	@ApiModelProperty("最近一次事件从发出到接收的延迟,单位毫秒")
+	private Long lastLag;
+
+	/**
+	 * 最大延迟,单位毫秒
+	 */
+	@ApiModelProperty("最大延迟,单位毫秒")
+	private Long maxLag;
+
+	/**
+	 * 平均延迟,单位毫秒
+	 */
+	@ApiModelProperty("平均延迟,单位毫秒")
+	private Double averageLag;
+
+}
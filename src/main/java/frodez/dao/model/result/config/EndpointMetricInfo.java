@@ -0,0 +1,88 @@
+package frodez.dao.model.result.config;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import java.io.Serializable;
+import lombok.Data;
+
+/**
+ * 接口性能统计信息
+ * @author Frodez
+ * @date 2020-01-12
+ */
+@Data
+@ApiModel(description = "接口性能统计信息")
+public class EndpointMetricInfo implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 方法名
+	 */
+	@ApiModelProperty("方法名")
+	private String name;
+
+	/**
+	 * 调用次数
+	 */
+	@ApiModelProperty("调用次数")
+	private Long count;
+
+	/**
+	 * 平均每秒调用次数
+	 */
+	@ApiModelProperty("平均每秒调用次数")
+	private Double throughput;
+
+	/**
+	 * 异常次数
+	 */
+	@ApiModelProperty("异常次数")
+	private Long errors;
+
+	/**
+	 * 被限流拒绝的次数
+	 */
+	@ApiModelProperty("被限流拒绝的次数")
+	private Long limited;
+
+	/**
+	 * 被拒绝的重复请求次数
+	 */
+	@ApiModelProperty("被拒绝的重复请求次数")
+	private Long repeated;
+
+	/**
+	 * 平均耗时,单位毫秒
+	 */
+	@ApiModelProperty("平均耗时,单位毫秒")
+	private Double mean;
+
+	/**
+	 * 50%的请求耗时不超过该值,单位毫秒
+	 */
+	@ApiModelProperty("50%的请求耗时不超过该值,单位毫秒")
+	private Double p50;
+
+	/**
+	 * 99%的请求耗时不超过该值,单位毫秒
+	 */
+	@ApiModelProperty("99%的请求耗时不超过该值,单位毫秒")
+	private Double p99;
+
+	/**
+	 * 99.9%的请求耗时不超过该值,单位毫秒
+	 */
+	@ApiModelProperty("99.9%的请求耗时不超过该值,单位毫秒")
+	private Double p999;
+
+	/**
+	 * 最大耗时,单位毫秒
+	 */
+	@ApiModelProperty("最大耗时,单位毫秒")
+	private Double max;
+
+}
@@ -15,7 +15,7 @@ import org.hibernate.validator.constraints.Length;
  * @date 2019-12-29
  */
 @Data
-@AnyExist({ "nickName", "email", "phone" })
+@AnyExist({ "nickname", "email", "phone" })
 @ValidateBean
 @ApiModel(description = "更新用户信息请求参数")
 public class UpdateUser implements Serializable {
@@ -4,6 +4,7 @@ import frodez.config.cache.ICache;
 import frodez.constant.keys.config.GlobalDataKey;
 import frodez.dao.model.table.config.GlobalData;
 import java.util.List;
+import java.util.Map;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -30,6 +31,14 @@ public interface IGlobalDataCache extends ICache {
 	@Transactional
 	<V> void save(Enum<? extends GlobalDataKey<V>> key, V value);
 
+	/**
+	 * 批量保存全局设置,只使用一条语句写入数据库
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	@Transactional
+	void saveAll(Map<Enum<? extends GlobalDataKey<?>>, Object> values);
+
 	/**
 	 * 获取全局设置
 	 * @author Frodez
@@ -0,0 +1,38 @@
+package frodez.service.cache.facade.permission;
+
+import frodez.config.cache.ICache;
+import frodez.dao.model.table.permission.Endpoint;
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * 角色接口缓存<br>
+ * 用途:缓存角色可以访问的接口,同一角色的所有用户共用。<br>
+ * @author Frodez
+ * @date 2020-01-12
+ */
+public interface IEndpointCache extends ICache {
+
+	/**
+	 * 获取角色id对应的接口,不存在时通过loader加载并保存,同一角色的并发加载只执行一次
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	List<Endpoint> get(Long roleId, Function<Long, List<Endpoint>> loader);
+
+	/**
+	 * 获取角色id对应的权限,由接口生成,与接口同时失效
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	List<GrantedAuthority> getAuthorities(Long roleId, Function<Long, List<Endpoint>> loader);
+
+	/**
+	 * 删除角色id对应的接口
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	void remove(Long roleId);
+
+}
@@ -2,6 +2,7 @@ package frodez.service.cache.facade.permission;
 
 import frodez.config.cache.ICache;
 import frodez.dao.model.result.permission.PermissionDetail;
+import java.util.function.Function;
 
 /**
  * 角色权限缓存
@@ -24,6 +25,14 @@ public interface IPermissionCache extends ICache {
 	 */
 	PermissionDetail get(Long roleId);
 
+	/**
+	 * 获取角色id对应的权限,不存在时通过loader加载并保存
+	 * @param loader 加载方法,返回null时不保存
+	 * @author Frodez
+	 * @date 2020-01-10
+	 */
+	PermissionDetail get(Long roleId, Function<Long, PermissionDetail> loader);
+
 	/**
 	 * 保存角色id对应的权限
 	 * @author Frodez
@@ -31,4 +40,11 @@ public interface IPermissionCache extends ICache {
 	 */
 	void save(Long roleId, PermissionDetail detail);
 
+	/**
+	 * 删除角色id对应的权限
+	 * @author Frodez
+	 * @date 2020-01-10
+	 */
+	void remove(Long roleId);
+
 }
@@ -2,7 +2,6 @@ package frodez.service.cache.facade.user;
 
 import frodez.config.cache.ICache;
 import java.util.List;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * id-token缓存<br>
@@ -32,9 +31,16 @@ public interface IdTokenCache extends ICache {
 	 * @author Frodez
 	 * @date 2019-12-29
 	 */
-	@Transactional
 	void save(Long id, String token);
 
+	/**
+	 * 保存id对应的token,同时删除该id原有token的token-id缓存,返回原有的token<br>
+	 * 效果等同于依次执行getToken,remove(原有token)和save,但只需要一次网络往返。<br>
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	String replace(Long id, String token);
+
 	/**
 	 * 删除id对应的token
 	 * @author Frodez
@@ -49,6 +55,22 @@ public interface IdTokenCache extends ICache {
 	 */
 	void remove(String token);
 
+	/**
+	 * 删除id及其对应的token,返回被删除的token,不存在时返回null<br>
+	 * 效果等同于依次执行getToken,remove(id)和remove(token),但只需要一次网络往返。<br>
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	String removePair(Long id);
+
+	/**
+	 * 删除token及其对应的id,返回token对应的id,不存在时返回null<br>
+	 * 只有id当前对应的token就是该token时才会删除id-token缓存。<br>
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	Long removePair(String token);
+
 	/**
 	 * 根据id获取token
 	 * @author Frodez
@@ -71,11 +93,11 @@ public interface IdTokenCache extends ICache {
 	List<String> getTokens(List<Long> ids);
 
 	/**
-	 * 批量删除id和token对
+	 * 批量删除id及其对应的token,返回被删除的token<br>
+	 * 效果等同于依次执行getTokens和逐个删除,但只需要一次网络往返。<br>
 	 * @author Frodez
 	 * @date 2020-01-02
 	 */
-	@Transactional
-	void batchRemove(List<Long> ids, List<String> tokens);
+	List<String> batchRemove(List<Long> ids);
 
 }
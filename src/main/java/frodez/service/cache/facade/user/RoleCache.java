@@ -40,4 +40,18 @@ public interface RoleCache extends ICache {
 	 */
 	void remove(Long id);
 
+	/**
+	 * 更新角色信息,属于该角色的所有用户同时生效
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	void update(Role role);
+
+	/**
+	 * 根据角色id删除角色
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	void removeRole(Long roleId);
+
 }
@@ -0,0 +1,44 @@
+package frodez.service.cache.facade.user;
+
+import frodez.config.cache.ICache;
+import java.util.List;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * token-UserDetails缓存<br>
+ * 用途：缓存已通过验证的token,避免每次请求都重新验证签名和解析权限信息
+ * @author Frodez
+ * @date 2020-01-05
+ */
+public interface TokenCache extends ICache {
+
+	/**
+	 * 根据token获取已验证的用户信息,不存在或已过期时返回null
+	 * @author Frodez
+	 * @date 2020-01-05
+	 */
+	UserDetails get(String token);
+
+	/**
+	 * 保存已验证的token及用户信息
+	 * @param expiresAt token过期时间(毫秒时间戳)
+	 * @author Frodez
+	 * @date 2020-01-05
+	 */
+	void save(String token, UserDetails user, long expiresAt);
+
+	/**
+	 * 删除token
+	 * @author Frodez
+	 * @date 2020-01-05
+	 */
+	void remove(String token);
+
+	/**
+	 * 批量删除token
+	 * @author Frodez
+	 * @date 2020-01-05
+	 */
+	void batchRemove(List<String> tokens);
+
+}
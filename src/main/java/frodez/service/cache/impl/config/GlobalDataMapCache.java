@@ -1,33 +1,71 @@
 package frodez.service.cache.impl.config;
 
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
 import frodez.constant.keys.config.GlobalDataKey;
 import frodez.dao.mapper.config.GlobalDataMapper;
 import frodez.dao.model.table.config.GlobalData;
 import frodez.service.cache.facade.config.IGlobalDataCache;
+import frodez.util.reflect.BeanUtil;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+/**
+ * 全局配置缓存<br>
+ * 缓存内容为不可变的快照,配置值在生成快照时即转换为对应类型,按配置类型和枚举序号存放在数组中,读取时只需要一次数组访问。<br>
+ * 更新时生成新的快照后整体替换,读线程不需要加锁。<br>
+ * 批量保存时只使用一条语句写入数据库,处于事务中时,新快照在事务提交后才发布,避免事务回滚后缓存与数据库不一致。<br>
+ * @author Frodez
+ * @date 2020-01-11
+ */
 @Component("globalDataMapCache")
 public class GlobalDataMapCache implements IGlobalDataCache {
 
-	private Map<Enum<? extends GlobalDataKey<?>>, GlobalData> cache = new HashMap<>();
-
 	private GlobalDataMapper globalDataMapper;
 
+	private CacheEventBus bus;
+
+	private volatile Snapshot snapshot;
+
 	@Autowired
 	public GlobalDataMapCache(GlobalDataMapper globalDataMapper) {
 		this.globalDataMapper = globalDataMapper;
-		init();
+		snapshot = new Snapshot(load());
 	}
 
-	private void init() {
+	/**
+	 * 其他节点修改全局配置时,只重新加载发生变更的配置
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	@Autowired
+	public void subscribe(CacheEventBus bus) {
+		this.bus = bus;
+		bus.subscribe(Type.GLOBAL_DATA, (ids) -> {
+			if (ids == null) {
+				clear();
+				return;
+			}
+			for (Long id : ids) {
+				GlobalData data = globalDataMapper.selectByPrimaryKey(id);
+				if (data != null) {
+					add(data);
+				}
+			}
+		});
+	}
+
+	private List<GlobalData> load() {
 		List<GlobalData> globalDatas = globalDataMapper.selectAll();
 		Set<String> keys = new HashSet<>();
 		for (GlobalData globalData : globalDatas) {
@@ -35,56 +73,171 @@ public class GlobalDataMapCache implements IGlobalDataCache {
 				throw new IllegalArgumentException("存在重复的配置字段名!");
 			}
 		}
-		cache = globalDatas.stream().collect(Collectors.toMap((item) -> GlobalDataKey.check(item.getType(), item.getName()), (item) -> item));
+		return globalDatas;
 	}
 
 	@Override
-	public void clear() {
-		cache.clear();
-		init();
+	public synchronized void clear() {
+		snapshot = new Snapshot(load());
 	}
 
 	@Override
 	public List<GlobalData> getAll() {
-		List<GlobalData> globalDatas = new ArrayList<>();
-		globalDatas.addAll(cache.values());
-		return globalDatas;
+		return new ArrayList<>(snapshot.datas);
 	}
 
 	@Override
 	public <V> void save(Enum<? extends GlobalDataKey<V>> key, V value) {
-		GlobalData data = getData(key);
-		if (data.getContent().equals(value.toString())) {
-			//如果相等就直接返回
+		Map<Enum<? extends GlobalDataKey<?>>, Object> values = new HashMap<>();
+		values.put(key, value);
+		saveAll(values);
+	}
+
+	@Override
+	public void saveAll(Map<Enum<? extends GlobalDataKey<?>>, Object> values) {
+		List<GlobalData> records = new ArrayList<>();
+		for (Entry<Enum<? extends GlobalDataKey<?>>, Object> entry : values.entrySet()) {
+			GlobalData data = getData(entry.getKey());
+			String content = entry.getValue().toString();
+			if (data.getContent().equals(content)) {
+				//如果相等就跳过
+				continue;
+			}
+			GlobalData record = new GlobalData();
+			record.setId(data.getId());
+			record.setContent(content);
+			records.add(record);
+		}
+		if (records.isEmpty()) {
 			return;
 		}
-		//保存缓存
-		data.setContent(value.toString());
 		//写入db
-		GlobalData record = new GlobalData();
-		record.setId(data.getId());
-		record.setContent(value.toString());
-		globalDataMapper.updateByPrimaryKeySelective(record);
+		globalDataMapper.batchUpdateContent(records);
+		//保存缓存
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCommit() {
+					apply(records);
+				}
+
+			});
+		} else {
+			apply(records);
+		}
+		bus.publish(Type.GLOBAL_DATA, records.stream().map(GlobalData::getId).collect(Collectors.toList()));
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
 	public <V> V get(Enum<? extends GlobalDataKey<V>> key) {
-		GlobalData data = getData(key);
-		GlobalDataKey<V> reverter = (GlobalDataKey<V>) key;
-		return reverter.revert(data.getContent());
+		Object value = snapshot.value(((GlobalDataKey<V>) key).type(), key.ordinal());
+		if (value == null) {
+			GlobalData data = getData(key);
+			return ((GlobalDataKey<V>) key).revert(data.getContent());
+		}
+		return (V) value;
 	}
 
-	private <V> GlobalData getData(Enum<? extends GlobalDataKey<V>> key) {
-		GlobalData data = cache.get(key);
+	private GlobalData getData(Enum<? extends GlobalDataKey<?>> key) {
+		GlobalData data = snapshot.data(((GlobalDataKey<?>) key).type(), key.ordinal());
 		if (data == null) {
 			data = globalDataMapper.selectOneEqual("name", key.name());
 			if (data == null) {
 				throw new IllegalStateException("该配置在缓存及数据库中无数据!");
 			}
-			cache.put(key, data);
+			add(data);
 		}
 		return data;
 	}
 
+	/**
+	 * 将数据库中新增或变更的配置加入缓存
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	private synchronized void add(GlobalData data) {
+		List<GlobalData> datas = new ArrayList<>(snapshot.datas);
+		datas.removeIf((item) -> item.getId().equals(data.getId()));
+		datas.add(data);
+		snapshot = new Snapshot(datas);
+	}
+
+	/**
+	 * 将已写入数据库的配置内容应用到当前快照
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	private synchronized void apply(List<GlobalData> records) {
+		Map<Long, String> contents = new HashMap<>();
+		for (GlobalData record : records) {
+			contents.put(record.getId(), record.getContent());
+		}
+		List<GlobalData> datas = new ArrayList<>(snapshot.datas.size());
+		for (GlobalData data : snapshot.datas) {
+			String content = contents.get(data.getId());
+			if (content != null) {
+				data = BeanUtil.copy(data, GlobalData::new);
+				data.setContent(content);
+			}
+			datas.add(data);
+		}
+		snapshot = new Snapshot(datas);
+	}
+
+	/**
+	 * 全局配置快照,生成后不再修改
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	private static class Snapshot {
+
+		final List<GlobalData> datas;
+
+		/**
+		 * 已转换类型的配置值,第一维为配置类型,第二维为枚举序号
+		 */
+		final Object[][] values;
+
+		/**
+		 * 原始配置,下标与values一致
+		 */
+		final GlobalData[][] raws;
+
+		Snapshot(List<GlobalData> datas) {
+			this.datas = List.copyOf(datas);
+			int maxType = 0;
+			for (GlobalData data : datas) {
+				maxType = Math.max(maxType, data.getType());
+			}
+			values = new Object[maxType + 1][];
+			raws = new GlobalData[maxType + 1][];
+			for (GlobalData data : datas) {
+				Enum<? extends GlobalDataKey<?>> key = GlobalDataKey.check(data.getType(), data.getName());
+				GlobalDataKey<?> reverter = (GlobalDataKey<?>) key;
+				int type = reverter.type();
+				int ordinal = key.ordinal();
+				if (values[type] == null) {
+					int length = key.getDeclaringClass().getEnumConstants().length;
+					values[type] = new Object[length];
+					raws[type] = new GlobalData[length];
+				}
+				values[type][ordinal] = reverter.revert(data.getContent());
+				raws[type][ordinal] = data;
+			}
+		}
+
+		Object value(int type, int ordinal) {
+			Object[] row = type < values.length ? values[type] : null;
+			return row == null ? null : row[ordinal];
+		}
+
+		GlobalData data(int type, int ordinal) {
+			GlobalData[] row = type < raws.length ? raws[type] : null;
+			return row == null ? null : row[ordinal];
+		}
+
+	}
+
 }
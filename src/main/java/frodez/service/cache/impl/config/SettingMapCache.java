@@ -1,21 +1,37 @@
 package frodez.service.cache.impl.config;
 
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
 import frodez.dao.mapper.config.SettingMapper;
+import frodez.dao.model.table.config.Setting;
 import frodez.service.cache.facade.config.SettingCache;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+/**
+ * 用户设置缓存<br>
+ * 每条设置对应一个有序的角色id数组,查询时二分查找,不需要装箱和加锁。<br>
+ * 索引本身不可变,更新时复制出新的索引后整体替换,读线程总能看到完整一致的索引。<br>
+ * @author Frodez
+ * @date 2020-01-11
+ */
 @Component("settingMapCache")
 public class SettingMapCache implements SettingCache {
 
 	private SettingMapper settingMapper;
 
-	private Map<String, Set<Long>> cache = new ConcurrentHashMap<>();
+	/**
+	 * 设置名-有序角色id数组,不可变
+	 */
+	private volatile Map<String, long[]> index;
 
 	/**
 	 * 初始化缓存<br>
@@ -25,42 +41,92 @@ public class SettingMapCache implements SettingCache {
 	@Autowired
 	public SettingMapCache(SettingMapper settingMapper) {
 		this.settingMapper = settingMapper;
-		cache.putAll(settingMapper.getSettingRoles());
+		index = load();
+	}
+
+	/**
+	 * 其他节点修改角色设置时,只重新加载该角色的设置
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	@Autowired
+	public void subscribe(CacheEventBus bus) {
+		bus.subscribe(Type.SETTING, (roleIds) -> {
+			if (roleIds == null) {
+				clear();
+				return;
+			}
+			for (Long roleId : roleIds) {
+				refresh(roleId, settingMapper.getRoleSettings(roleId).stream().map(Setting::getName).collect(Collectors.toList()));
+			}
+		});
 	}
 
 	@Override
 	public synchronized void clear() {
-		cache.clear();
-		cache.putAll(settingMapper.getSettingRoles());
+		index = load();
 	}
 
 	@Override
 	public synchronized void refresh(Long roleId, List<String> settings) {
-		for (Entry<String, Set<Long>> entry : cache.entrySet()) {
-			if (settings.contains(entry.getKey())) {
-				entry.getValue().add(roleId);
-			} else {
-				entry.getValue().remove(roleId);
+		Set<String> enabled = new HashSet<>(settings);
+		Map<String, long[]> latest = new HashMap<>(index);
+		for (Entry<String, long[]> entry : latest.entrySet()) {
+			long[] roles = entry.getValue();
+			int position = Arrays.binarySearch(roles, roleId);
+			if (enabled.contains(entry.getKey())) {
+				if (position < 0) {
+					//插入到有序位置
+					position = -position - 1;
+					long[] added = new long[roles.length + 1];
+					System.arraycopy(roles, 0, added, 0, position);
+					added[position] = roleId;
+					System.arraycopy(roles, position, added, position + 1, roles.length - position);
+					entry.setValue(added);
+				}
+			} else if (position >= 0) {
+				long[] removed = new long[roles.length - 1];
+				System.arraycopy(roles, 0, removed, 0, position);
+				System.arraycopy(roles, position + 1, removed, position, removed.length - position);
+				entry.setValue(removed);
 			}
 		}
+		index = Map.copyOf(latest);
 	}
 
 	@Override
 	public boolean pass(Long roleId, String setting) {
-		Set<Long> roles = cache.get(setting);
-		if (roles == null) {
-			throw new IllegalArgumentException(setting + "设置不存在!");
-		}
-		return roles.contains(roleId);
+		return Arrays.binarySearch(roles(setting), roleId) >= 0;
 	}
 
 	@Override
 	public boolean reject(Long roleId, String setting) {
-		Set<Long> roles = cache.get(setting);
+		return Arrays.binarySearch(roles(setting), roleId) < 0;
+	}
+
+	private long[] roles(String setting) {
+		long[] roles = index.get(setting);
 		if (roles == null) {
 			throw new IllegalArgumentException(setting + "设置不存在!");
 		}
-		return !roles.contains(roleId);
+		return roles;
+	}
+
+	/**
+	 * 从数据库加载索引,没有任何角色拥有的设置对应空数组
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	private Map<String, long[]> load() {
+		Map<String, long[]> latest = new HashMap<>();
+		for (Setting setting : settingMapper.selectAll()) {
+			latest.put(setting.getName(), new long[0]);
+		}
+		for (Entry<String, Set<Long>> entry : settingMapper.getSettingRoles().entrySet()) {
+			long[] roles = entry.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+			latest.put(entry.getKey(), roles);
+		}
+		return Map.copyOf(latest);
 	}
 
 }
@@ -0,0 +1,87 @@
+package frodez.service.cache.impl.permission;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import frodez.config.cache.CacheProperties;
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
+import frodez.config.security.util.AuthorityUtil;
+import frodez.dao.model.table.permission.Endpoint;
+import frodez.service.cache.facade.permission.IEndpointCache;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * 角色接口缓存GUAVACACHE实现<br>
+ * 接口很少变动,且同一角色的所有用户相同,因此登录时不需要每次都查询数据库。<br>
+ * 同时缓存由接口生成的权限,供精简token验证时使用。缓存的列表不可修改。<br>
+ * @author Frodez
+ * @date 2020-01-12
+ */
+@Component("endpointGuavaCache")
+public class EndpointGuavaCache implements IEndpointCache {
+
+	private Cache<Long, List<Endpoint>> cache;
+
+	private Cache<Long, List<GrantedAuthority>> authorities;
+
+	@Autowired
+	public EndpointGuavaCache(CacheProperties properties) {
+		cache = CacheBuilder.newBuilder().maximumSize(properties.getEndpointGuavaCache().getMaxSize()).build();
+		authorities = CacheBuilder.newBuilder().maximumSize(properties.getEndpointGuavaCache().getMaxSize()).build();
+	}
+
+	/**
+	 * 角色权限或接口变更时删除对应记录
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	@Autowired
+	public void subscribe(CacheEventBus bus) {
+		bus.subscribe(Type.PERMISSION, (roleIds) -> {
+			if (roleIds == null) {
+				clear();
+			} else {
+				cache.invalidateAll(roleIds);
+				authorities.invalidateAll(roleIds);
+			}
+		});
+		bus.subscribe(Type.ENDPOINT, (ids) -> clear());
+	}
+
+	@Override
+	public void clear() {
+		cache.invalidateAll();
+		authorities.invalidateAll();
+	}
+
+	@Override
+	public List<Endpoint> get(Long roleId, Function<Long, List<Endpoint>> loader) {
+		try {
+			return cache.get(roleId, () -> List.copyOf(loader.apply(roleId)));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+		}
+	}
+
+	@Override
+	public List<GrantedAuthority> getAuthorities(Long roleId, Function<Long, List<Endpoint>> loader) {
+		try {
+			return authorities.get(roleId, () -> List.copyOf(AuthorityUtil.make(get(roleId, loader))));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+		}
+	}
+
+	@Override
+	public void remove(Long roleId) {
+		cache.invalidate(roleId);
+		authorities.invalidate(roleId);
+	}
+
+}
@@ -0,0 +1,424 @@
+package frodez.service.cache.impl.permission;
+
+import frodez.dao.model.result.permission.MenuPermissionDetail;
+import frodez.dao.model.result.permission.PermissionDetail;
+import frodez.dao.model.result.permission.TagPermissionDetail;
+import frodez.dao.model.table.permission.Endpoint;
+import frodez.dao.model.table.permission.Menu;
+import frodez.dao.model.table.permission.Tag;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * PermissionDetail二进制编解码器<br>
+ * 格式为:版本(1字节),标志(1字节),内容。内容超过一定长度时使用deflate压缩,并在标志中记录。<br>
+ * 整数使用zigzag变长编码,每个对象以一个变长的位图开头,记录哪些字段为null。<br>
+ * <strong>Menu,Tag,Endpoint,PermissionDetail的字段变动时,必须同步修改本类并提升版本号!</strong><br>
+ * @author Frodez
+ * @date 2020-01-10
+ */
+final class PermissionDetailCodec {
+
+	static final byte VERSION = 1;
+
+	private static final byte DEFLATED = 1;
+
+	/**
+	 * 内容达到该长度时尝试压缩
+	 */
+	private static final int COMPRESS_THRESHOLD = 512;
+
+	private PermissionDetailCodec() {
+	}
+
+	static byte[] encode(PermissionDetail detail) {
+		Writer writer = new Writer();
+		writeList(writer, detail.getMenuPermissions(), (item) -> {
+			writeMenu(writer, item.getMenu());
+			writeList(writer, item.getEndpoints(), (endpoint) -> writeEndpoint(writer, endpoint));
+		});
+		writeList(writer, detail.getTagPermissions(), (item) -> {
+			writeTag(writer, item.getTag());
+			writeList(writer, item.getEndpoints(), (endpoint) -> writeEndpoint(writer, endpoint));
+		});
+		byte[] content = writer.toArray();
+		byte flags = 0;
+		if (content.length >= COMPRESS_THRESHOLD) {
+			byte[] compressed = deflate(content);
+			if (compressed.length < content.length) {
+				content = compressed;
+				flags = DEFLATED;
+			}
+		}
+		byte[] bytes = new byte[content.length + 2];
+		bytes[0] = VERSION;
+		bytes[1] = flags;
+		System.arraycopy(content, 0, bytes, 2, content.length);
+		return bytes;
+	}
+
+	/**
+	 * 解码,版本不一致时返回null
+	 * @author Frodez
+	 * @date 2020-01-10
+	 */
+	static PermissionDetail decode(byte[] bytes) {
+		if (bytes.length < 2 || bytes[0] != VERSION) {
+			return null;
+		}
+		byte[] content = Arrays.copyOfRange(bytes, 2, bytes.length);
+		if ((bytes[1] & DEFLATED) != 0) {
+			content = inflate(content);
+		}
+		Reader reader = new Reader(content);
+		PermissionDetail detail = new PermissionDetail();
+		detail.setMenuPermissions(readList(reader, () -> {
+			MenuPermissionDetail item = new MenuPermissionDetail();
+			item.setMenu(readMenu(reader));
+			item.setEndpoints(readList(reader, () -> readEndpoint(reader)));
+			return item;
+		}));
+		detail.setTagPermissions(readList(reader, () -> {
+			TagPermissionDetail item = new TagPermissionDetail();
+			item.setTag(readTag(reader));
+			item.setEndpoints(readList(reader, () -> readEndpoint(reader)));
+			return item;
+		}));
+		return detail;
+	}
+
+	private static void writeMenu(Writer writer, Menu menu) {
+		if (menu == null) {
+			writer.writeVarLong(-1);
+			return;
+		}
+		writer.writeVarLong(mask(menu.getId(), menu.getCreateTime(), menu.getPermissionName(), menu.getName(), menu.getRoute(), menu
+			.getParentId(), menu.getDefaultLevel(), menu.getDescription(), menu.getSetting()));
+		writer.writeLong(menu.getId());
+		writer.writeDate(menu.getCreateTime());
+		writer.writeString(menu.getPermissionName());
+		writer.writeString(menu.getName());
+		writer.writeString(menu.getRoute());
+		writer.writeLong(menu.getParentId());
+		writer.writeByte(menu.getDefaultLevel());
+		writer.writeString(menu.getDescription());
+		writer.writeString(menu.getSetting());
+	}
+
+	private static Menu readMenu(Reader reader) {
+		long mask = reader.readVarLong();
+		if (mask == -1) {
+			return null;
+		}
+		reader.begin(mask);
+		Menu menu = new Menu();
+		menu.setId(reader.readLong());
+		menu.setCreateTime(reader.readDate());
+		menu.setPermissionName(reader.readString());
+		menu.setName(reader.readString());
+		menu.setRoute(reader.readString());
+		menu.setParentId(reader.readLong());
+		menu.setDefaultLevel(reader.readByte());
+		menu.setDescription(reader.readString());
+		menu.setSetting(reader.readString());
+		return menu;
+	}
+
+	private static void writeTag(Writer writer, Tag tag) {
+		if (tag == null) {
+			writer.writeVarLong(-1);
+			return;
+		}
+		writer.writeVarLong(mask(tag.getId(), tag.getCreateTime(), tag.getPermissionName(), tag.getType(), tag.getDefaultLevel(), tag
+			.getDescription(), tag.getSetting()));
+		writer.writeLong(tag.getId());
+		writer.writeDate(tag.getCreateTime());
+		writer.writeString(tag.getPermissionName());
+		writer.writeByte(tag.getType());
+		writer.writeByte(tag.getDefaultLevel());
+		writer.writeString(tag.getDescription());
+		writer.writeString(tag.getSetting());
+	}
+
+	private static Tag readTag(Reader reader) {
+		long mask = reader.readVarLong();
+		if (mask == -1) {
+			return null;
+		}
+		reader.begin(mask);
+		Tag tag = new Tag();
+		tag.setId(reader.readLong());
+		tag.setCreateTime(reader.readDate());
+		tag.setPermissionName(reader.readString());
+		tag.setType(reader.readByte());
+		tag.setDefaultLevel(reader.readByte());
+		tag.setDescription(reader.readString());
+		tag.setSetting(reader.readString());
+		return tag;
+	}
+
+	private static void writeEndpoint(Writer writer, Endpoint endpoint) {
+		if (endpoint == null) {
+			writer.writeVarLong(-1);
+			return;
+		}
+		writer.writeVarLong(mask(endpoint.getId(), endpoint.getCreateTime(), endpoint.getName(), endpoint.getPath(), endpoint
+			.getMethods(), endpoint.getDefaultLevel(), endpoint.getDescription()));
+		writer.writeLong(endpoint.getId());
+		writer.writeDate(endpoint.getCreateTime());
+		writer.writeString(endpoint.getName());
+		writer.writeString(endpoint.getPath());
+		writer.writeShort(endpoint.getMethods());
+		writer.writeByte(endpoint.getDefaultLevel());
+		writer.writeString(endpoint.getDescription());
+	}
+
+	private static Endpoint readEndpoint(Reader reader) {
+		long mask = reader.readVarLong();
+		if (mask == -1) {
+			return null;
+		}
+		reader.begin(mask);
+		Endpoint endpoint = new Endpoint();
+		endpoint.setId(reader.readLong());
+		endpoint.setCreateTime(reader.readDate());
+		endpoint.setName(reader.readString());
+		endpoint.setPath(reader.readString());
+		endpoint.setMethods(reader.readShort());
+		endpoint.setDefaultLevel(reader.readByte());
+		endpoint.setDescription(reader.readString());
+		return endpoint;
+	}
+
+	/**
+	 * 生成非null字段位图,第i位为1表示第i个字段不为null
+	 * @author Frodez
+	 * @date 2020-01-10
+	 */
+	private static long mask(Object... fields) {
+		long mask = 0;
+		for (int i = 0; i < fields.length; ++i) {
+			if (fields[i] != null) {
+				mask |= 1L << i;
+			}
+		}
+		return mask;
+	}
+
+	private static <T> void writeList(Writer writer, List<T> list, Consumer<T> consumer) {
+		if (list == null) {
+			writer.writeVarLong(-1);
+			return;
+		}
+		writer.writeVarLong(list.size());
+		for (T item : list) {
+			consumer.accept(item);
+		}
+	}
+
+	private static <T> List<T> readList(Reader reader, Supplier<T> supplier) {
+		int size = (int) reader.readVarLong();
+		if (size == -1) {
+			return null;
+		}
+		List<T> list = new ArrayList<>(size);
+		for (int i = 0; i < size; ++i) {
+			list.add(supplier.get());
+		}
+		return list;
+	}
+
+	private static byte[] deflate(byte[] content) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(content);
+			deflater.finish();
+			Writer writer = new Writer();
+			byte[] buffer = new byte[1024];
+			while (!deflater.finished()) {
+				int length = deflater.deflate(buffer);
+				writer.write(buffer, length);
+			}
+			return writer.toArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static byte[] inflate(byte[] content) {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(content);
+			Writer writer = new Writer();
+			byte[] buffer = new byte[1024];
+			while (!inflater.finished()) {
+				int length = inflater.inflate(buffer);
+				if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IllegalArgumentException("不完整的压缩数据");
+				}
+				writer.write(buffer, length);
+			}
+			return writer.toArray();
+		} catch (DataFormatException e) {
+			throw new IllegalArgumentException(e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static class Writer {
+
+		private byte[] buffer = new byte[256];
+
+		private int position;
+
+		private void ensure(int length) {
+			if (position + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+			}
+		}
+
+		void write(byte[] bytes, int length) {
+			ensure(length);
+			System.arraycopy(bytes, 0, buffer, position, length);
+			position += length;
+		}
+
+		void writeVarLong(long value) {
+			//zigzag编码,使-1等小负数同样只占用1字节
+			long zigzag = (value << 1) ^ (value >> 63);
+			ensure(10);
+			while ((zigzag & ~0x7FL) != 0) {
+				buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+				zigzag >>>= 7;
+			}
+			buffer[position++] = (byte) zigzag;
+		}
+
+		void writeLong(Long value) {
+			if (value != null) {
+				writeVarLong(value);
+			}
+		}
+
+		void writeShort(Short value) {
+			if (value != null) {
+				writeVarLong(value);
+			}
+		}
+
+		void writeByte(Byte value) {
+			if (value != null) {
+				writeVarLong(value);
+			}
+		}
+
+		void writeDate(Date value) {
+			if (value != null) {
+				writeVarLong(value.getTime());
+			}
+		}
+
+		void writeString(String value) {
+			if (value != null) {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				writeVarLong(bytes.length);
+				write(bytes, bytes.length);
+			}
+		}
+
+		byte[] toArray() {
+			return Arrays.copyOf(buffer, position);
+		}
+
+	}
+
+	private static class Reader {
+
+		private final byte[] buffer;
+
+		private int position;
+
+		/**
+		 * 当前对象的非null字段位图
+		 */
+		private long mask;
+
+		/**
+		 * 当前对象中下一个字段的序号
+		 */
+		private int field;
+
+		Reader(byte[] buffer) {
+			this.buffer = buffer;
+		}
+
+		long readVarLong() {
+			long zigzag = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = buffer[position++];
+				zigzag |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return (zigzag >>> 1) ^ -(zigzag & 1);
+				}
+			}
+			throw new IllegalArgumentException("不合法的变长整数");
+		}
+
+		/**
+		 * 开始读取一个对象
+		 * @author Frodez
+		 * @date 2020-01-10
+		 */
+		void begin(long mask) {
+			this.mask = mask;
+			this.field = 0;
+		}
+
+		private boolean present() {
+			return (mask & (1L << field++)) != 0;
+		}
+
+		Long readLong() {
+			if (!present()) {
+				return null;
+			}
+			return readVarLong();
+		}
+
+		Short readShort() {
+			Long value = readLong();
+			return value == null ? null : value.shortValue();
+		}
+
+		Byte readByte() {
+			Long value = readLong();
+			return value == null ? null : value.byteValue();
+		}
+
+		Date readDate() {
+			Long value = readLong();
+			return value == null ? null : new Date(value);
+		}
+
+		String readString() {
+			Long length = readLong();
+			if (length == null) {
+				return null;
+			}
+			String value = new String(buffer, position, length.intValue(), StandardCharsets.UTF_8);
+			position += length.intValue();
+			return value;
+		}
+
+	}
+
+}
@@ -0,0 +1,274 @@
+package frodez.service.cache.impl.permission;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import frodez.config.cache.CacheProperties;
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
+import frodez.constant.keys.cache.CacheKey;
+import frodez.constant.settings.DefTime;
+import frodez.dao.model.result.permission.PermissionDetail;
+import frodez.service.cache.facade.permission.IPermissionCache;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 角色权限二级缓存<br>
+ * 一级为本地缓存,保存解码后的PermissionDetail;二级为redis缓存,保存PermissionDetailCodec编码后的二进制数据。<br>
+ * 同一角色的并发未命中只会有一个线程执行加载,其他线程等待该线程的结果,避免大量相同的数据库查询。<br>
+ * 删除时递增该角色的失效代数,删除前开始的加载在完成时发现代数变化,不会把旧数据写回redis和本地缓存。<br>
+ * 本地缓存设置了写入后过期时间,其他节点修改权限后,本节点最多在该时间后读取到新数据。<br>
+ * @author Frodez
+ * @date 2020-01-10
+ */
+@Slf4j
+@Component("permissionNearCache")
+public class PermissionNearCache implements IPermissionCache {
+
+	private static final byte[] KEY = CacheKey.PermissionCache.ROLE_ID_BINARY.getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * 失效代数的分段数,必须为2的幂
+	 */
+	private static final int GENERATION_STRIPES = 64;
+
+	private StringRedisTemplate template;
+
+	private Cache<Long, PermissionDetail> local;
+
+	/**
+	 * 等待其他线程加载的最长时间
+	 */
+	private long timeout;
+
+	/**
+	 * 正在加载的角色
+	 */
+	private Map<Long, CompletableFuture<PermissionDetail>> loading = new ConcurrentHashMap<>();
+
+	/**
+	 * 失效代数,按角色id的哈希分段,删除缓存前递增。<br>
+	 * 读取或加载前记录代数,写入前后各检查一次,代数变化说明期间该角色可能被删除过,此时不写入或撤销写入。<br>
+	 */
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+	@Autowired
+	public PermissionNearCache(CacheProperties properties, StringRedisTemplate template) {
+		this.template = template;
+		timeout = properties.getPermissionNearCache().getTimeout();
+		local = CacheBuilder.newBuilder().maximumSize(properties.getPermissionNearCache().getMaxSize()).expireAfterWrite(properties
+			.getPermissionNearCache().getTimeout(), DefTime.UNIT).build();
+	}
+
+	/**
+	 * 其他节点修改角色权限时,redis中的数据已经更新,只需要删除本地副本
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	@Autowired
+	public void subscribe(CacheEventBus bus) {
+		bus.subscribe(Type.PERMISSION, (roleIds) -> {
+			if (roleIds == null) {
+				invalidateAll();
+			} else {
+				for (Long roleId : roleIds) {
+					invalidate(roleId);
+				}
+			}
+		});
+	}
+
+	@Override
+	public void clear() {
+		invalidateAll();
+		template.execute((RedisCallback<Long>) (connection) -> connection.del(KEY));
+	}
+
+	@Override
+	public boolean exist(Long roleId) {
+		if (local.getIfPresent(roleId) != null) {
+			return true;
+		}
+		return template.execute((RedisCallback<Boolean>) (connection) -> connection.hExists(KEY, field(roleId)));
+	}
+
+	@Override
+	public PermissionDetail get(Long roleId) {
+		PermissionDetail detail = local.getIfPresent(roleId);
+		if (detail != null) {
+			return detail;
+		}
+		long generation = generations.get(stripe(roleId));
+		detail = getRemote(roleId);
+		if (detail != null) {
+			putIfCurrent(roleId, detail, generation);
+		}
+		return detail;
+	}
+
+	@Override
+	public PermissionDetail get(Long roleId, Function<Long, PermissionDetail> loader) {
+		PermissionDetail detail = local.getIfPresent(roleId);
+		if (detail != null) {
+			return detail;
+		}
+		CompletableFuture<PermissionDetail> future = new CompletableFuture<>();
+		CompletableFuture<PermissionDetail> existed = loading.putIfAbsent(roleId, future);
+		if (existed != null) {
+			//已有线程正在加载,等待其结果,超时后自行加载
+			try {
+				return existed.get(timeout, DefTime.UNIT);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new CompletionException(cause);
+			} catch (TimeoutException e) {
+				log.warn("[PermissionNearCache]等待加载超时,roleId:{}", roleId);
+				return load(roleId, loader);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return load(roleId, loader);
+			}
+		}
+		try {
+			detail = load(roleId, loader);
+			future.complete(detail);
+			return detail;
+		} catch (Throwable e) {
+			//包括Error在内的所有异常都要通知等待中的线程
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(roleId, future);
+		}
+	}
+
+	@Override
+	public void save(Long roleId, PermissionDetail detail) {
+		byte[] bytes = PermissionDetailCodec.encode(detail);
+		template.execute((RedisCallback<Boolean>) (connection) -> connection.hSet(KEY, field(roleId), bytes));
+		local.put(roleId, detail);
+	}
+
+	@Override
+	public void remove(Long roleId) {
+		invalidate(roleId);
+		template.execute((RedisCallback<Long>) (connection) -> connection.hDel(KEY, field(roleId)));
+	}
+
+	/**
+	 * 先读取redis,未命中时通过loader加载。<br>
+	 * 仅当期间该角色未被删除时写入缓存,删除前开始的加载读到的可能是旧数据。<br>
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	private PermissionDetail load(Long roleId, Function<Long, PermissionDetail> loader) {
+		long generation = generations.get(stripe(roleId));
+		PermissionDetail detail = getRemote(roleId);
+		if (detail != null) {
+			putIfCurrent(roleId, detail, generation);
+			return detail;
+		}
+		detail = loader.apply(roleId);
+		if (detail != null) {
+			saveIfCurrent(roleId, detail, generation);
+		}
+		return detail;
+	}
+
+	/**
+	 * 仅当加载期间该角色未被删除时写入redis和本地缓存。<br>
+	 * 写入redis后再检查一次,若期间发生了删除,删除可能早于写入完成,因此删除本次写入,之后的读取重新加载。<br>
+	 * @param generation 加载前的失效代数
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	private void saveIfCurrent(Long roleId, PermissionDetail detail, long generation) {
+		int stripe = stripe(roleId);
+		if (generations.get(stripe) != generation) {
+			return;
+		}
+		byte[] bytes = PermissionDetailCodec.encode(detail);
+		template.execute((RedisCallback<Boolean>) (connection) -> connection.hSet(KEY, field(roleId), bytes));
+		if (generations.get(stripe) != generation) {
+			template.execute((RedisCallback<Long>) (connection) -> connection.hDel(KEY, field(roleId)));
+			return;
+		}
+		putIfCurrent(roleId, detail, generation);
+	}
+
+	/**
+	 * 仅当读取期间该角色未被删除时写入本地缓存,写入后再检查一次,发生了删除时撤销本次写入
+	 * @param generation 读取前的失效代数
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	private void putIfCurrent(Long roleId, PermissionDetail detail, long generation) {
+		int stripe = stripe(roleId);
+		if (generations.get(stripe) != generation) {
+			return;
+		}
+		local.put(roleId, detail);
+		if (generations.get(stripe) != generation) {
+			local.invalidate(roleId);
+		}
+	}
+
+	/**
+	 * 删除本地副本,并使正在进行的加载失效,之后的读取不再等待这些加载
+	 */
+	private void invalidate(Long roleId) {
+		generations.incrementAndGet(stripe(roleId));
+		loading.remove(roleId);
+		local.invalidate(roleId);
+	}
+
+	private void invalidateAll() {
+		for (int i = 0; i < GENERATION_STRIPES; ++i) {
+			generations.incrementAndGet(i);
+		}
+		loading.clear();
+		local.invalidateAll();
+	}
+
+	private int stripe(Long roleId) {
+		int hash = roleId.hashCode();
+		return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+	}
+
+	private PermissionDetail getRemote(Long roleId) {
+		byte[] bytes = template.execute((RedisCallback<byte[]>) (connection) -> connection.hGet(KEY, field(roleId)));
+		if (bytes == null) {
+			return null;
+		}
+		try {
+			return PermissionDetailCodec.decode(bytes);
+		} catch (RuntimeException e) {
+			//数据损坏时视为未命中,重新加载后会被覆盖
+			log.error("[PermissionNearCache]解码失败,roleId:{}", roleId, e);
+			return null;
+		}
+	}
+
+	private static byte[] field(Long roleId) {
+		return roleId.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+}
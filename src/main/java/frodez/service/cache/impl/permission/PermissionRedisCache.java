@@ -6,6 +6,7 @@ import frodez.dao.model.result.permission.PermissionDetail;
 import frodez.service.cache.facade.permission.IPermissionCache;
 import frodez.util.json.JSONUtil;
 import frodez.util.spring.ContextUtil;
+import java.util.function.Function;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.BoundHashOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -37,9 +38,26 @@ public class PermissionRedisCache implements IPermissionCache {
 		return json == null ? null : JSONUtil.as(json, PermissionDetail.class);
 	}
 
+	@Override
+	public PermissionDetail get(Long roleId, Function<Long, PermissionDetail> loader) {
+		PermissionDetail detail = get(roleId);
+		if (detail == null) {
+			detail = loader.apply(roleId);
+			if (detail != null) {
+				save(roleId, detail);
+			}
+		}
+		return detail;
+	}
+
 	@Override
 	public void save(Long roleId, PermissionDetail detail) {
 		cache.put(roleId.toString(), JSONUtil.string(detail));
 	}
 
+	@Override
+	public void remove(Long roleId) {
+		cache.delete(roleId.toString());
+	}
+
 }
@@ -0,0 +1,316 @@
+package frodez.service.cache.impl.user;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import frodez.config.cache.CacheProperties;
+import frodez.constant.keys.cache.CacheKey;
+import frodez.constant.settings.DefStr;
+import frodez.constant.settings.DefTime;
+import frodez.service.cache.facade.user.IdTokenCache;
+import frodez.service.cache.facade.user.TokenCache;
+import frodez.util.common.StrUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * id-Token二级缓存<br>
+ * 一级为本地缓存,二级为redis缓存(idTokenRedisCache)。<br>
+ * 本地缓存只保存已确认存在的id-token对,任一节点执行save,remove,batchRemove或者clear时,会通过redis的发布/订阅通知所有节点删除对应的本地缓存。<br>
+ * save,replace,removePair和batchRemove的失效消息由二级缓存的脚本在redis中直接发布,写入和通知只需要一次网络往返。<br>
+ * 二级缓存清理过期记录时同样会发布失效消息,所有节点(包括执行清理的节点)都会删除对应的本地缓存。<br>
+ * 由于发布/订阅不保证送达,本地缓存同时设置了写入后过期时间作为兜底。<br>
+ * 从二级缓存读取后写入本地缓存时,使用失效代数防止读取期间到达的失效消息被覆盖。<br>
+ * @author Frodez
+ * @date 2020-01-06
+ */
+@Slf4j
+@Component("idTokenNearCache")
+public class IdTokenNearCache implements IdTokenCache, MessageListener {
+
+	private static final String DELIMITER = "|";
+
+	private static final String DELIMITER_REGEX = "\\|";
+
+	private static final String ITEM_DELIMITER = ",";
+
+	private static final String ID = "I";
+
+	private static final String TOKEN = "T";
+
+	private static final String CLEAR = "C";
+
+	/**
+	 * 失效代数的分段数,必须为2的幂
+	 */
+	private static final int GENERATION_STRIPES = 64;
+
+	/**
+	 * 本节点标识,用于忽略本节点发出的消息
+	 */
+	private final String node = UUID.randomUUID().toString();
+
+	/**
+	 * 二级缓存脚本发布失效消息所需的参数:消息频道,id消息前缀,token消息前缀
+	 */
+	private final List<String> notice = notice(node);
+
+	/**
+	 * 失效代数,按键的哈希分段,删除本地缓存前递增。<br>
+	 * 从二级缓存读取前记录代数,写入本地缓存前后各检查一次,代数变化说明读取期间该分段可能发生过失效,此时不写入或撤销写入。<br>
+	 */
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+	private Cache<Long, String> idToken;
+
+	private Cache<String, Long> tokenId;
+
+	private IdTokenRedisCache remote;
+
+	private TokenCache tokenCache;
+
+	private StringRedisTemplate template;
+
+	@Autowired
+	public IdTokenNearCache(CacheProperties properties, StringRedisTemplate template, RedisMessageListenerContainer container,
+		@Qualifier("idTokenRedisCache") IdTokenRedisCache remote, @Qualifier("tokenGuavaCache") TokenCache tokenCache) {
+		this.template = template;
+		this.remote = remote;
+		this.tokenCache = tokenCache;
+		long timeout = properties.getIdTokenNearCache().getTimeout();
+		long maxSize = properties.getIdTokenNearCache().getMaxSize();
+		idToken = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(timeout, DefTime.UNIT).build();
+		tokenId = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(timeout, DefTime.UNIT).build();
+		container.addMessageListener(this, new ChannelTopic(CacheKey.IdTokenCache.CHANNEL));
+	}
+
+	@Override
+	public void clear() {
+		remote.clear();
+		clearLocal();
+		publish(CLEAR, null);
+	}
+
+	@Override
+	public boolean exist(Long id) {
+		return getToken(id) != null;
+	}
+
+	@Override
+	public boolean exist(String token) {
+		return getId(token) != null;
+	}
+
+	@Override
+	public void save(Long id, String token) {
+		remote.save(id, token, notice);
+		idToken.put(id, token);
+		tokenId.put(token, id);
+	}
+
+	@Override
+	public String replace(Long id, String token) {
+		String oldToken = remote.replace(id, token, notice);
+		if (oldToken != null) {
+			removeLocalToken(oldToken);
+		}
+		idToken.put(id, token);
+		tokenId.put(token, id);
+		return oldToken;
+	}
+
+	@Override
+	public void remove(Long id) {
+		remote.remove(id);
+		removeLocalId(id);
+		publish(ID, id.toString());
+	}
+
+	@Override
+	public void remove(String token) {
+		remote.remove(token);
+		removeLocalToken(token);
+		publish(TOKEN, token);
+	}
+
+	@Override
+	public String removePair(Long id) {
+		String token = remote.removePair(id, notice);
+		removeLocalId(id);
+		if (token != null) {
+			removeLocalToken(token);
+		}
+		return token;
+	}
+
+	@Override
+	public Long removePair(String token) {
+		Long id = remote.removePair(token, notice);
+		removeLocalToken(token);
+		if (id != null) {
+			removeLocalId(id);
+		}
+		return id;
+	}
+
+	@Override
+	public String getToken(Long id) {
+		String token = idToken.getIfPresent(id);
+		if (token != null) {
+			return token;
+		}
+		long generation = generations.get(stripe(id));
+		token = remote.getToken(id);
+		if (token != null) {
+			putIfCurrent(idToken, id, token, generation);
+		}
+		return token;
+	}
+
+	@Override
+	public Long getId(String token) {
+		if (token == null) {
+			return null;
+		}
+		Long id = tokenId.getIfPresent(token);
+		if (id != null) {
+			return id;
+		}
+		long generation = generations.get(stripe(token));
+		id = remote.getId(token);
+		if (id != null) {
+			putIfCurrent(tokenId, token, id, generation);
+		}
+		return id;
+	}
+
+	@Override
+	public List<String> getTokens(List<Long> ids) {
+		return remote.getTokens(ids);
+	}
+
+	@Override
+	public List<String> batchRemove(List<Long> ids) {
+		List<String> tokens = remote.batchRemove(ids, notice);
+		for (Long id : ids) {
+			removeLocalId(id);
+		}
+		for (String token : tokens) {
+			removeLocalToken(token);
+		}
+		return tokens;
+	}
+
+	/**
+	 * 接收其他节点发出的失效消息,删除本地缓存
+	 * @author Frodez
+	 * @date 2020-01-06
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		String[] parts = body.split(DELIMITER_REGEX, 3);
+		if (parts.length < 3 || node.equals(parts[0])) {
+			return;
+		}
+		try {
+			switch (parts[1]) {
+				case CLEAR : {
+					clearLocal();
+					break;
+				}
+				case ID : {
+					for (String id : parts[2].split(ITEM_DELIMITER)) {
+						removeLocalId(Long.valueOf(id));
+					}
+					break;
+				}
+				case TOKEN : {
+					for (String token : parts[2].split(ITEM_DELIMITER)) {
+						removeLocalToken(token);
+					}
+					break;
+				}
+				default : {
+					log.warn("[IdTokenNearCache]未知的消息类型:{}", parts[1]);
+				}
+			}
+		} catch (Exception e) {
+			//消息无法解析时,直接清空本地缓存以保证正确性
+			log.error("[IdTokenNearCache]消息解析失败,清空本地缓存", e);
+			clearLocal();
+		}
+	}
+
+	/**
+	 * 生成二级缓存脚本发布失效消息所需的参数,node为发出消息的节点,该节点的近缓存会忽略这些消息
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	static List<String> notice(String node) {
+		return List.of(CacheKey.IdTokenCache.CHANNEL, StrUtil.concat(node, DELIMITER, ID, DELIMITER), StrUtil.concat(node, DELIMITER, TOKEN,
+			DELIMITER));
+	}
+
+	private void publish(String type, String payload) {
+		if (payload != null && payload.isEmpty()) {
+			return;
+		}
+		template.convertAndSend(CacheKey.IdTokenCache.CHANNEL, StrUtil.concat(node, DELIMITER, type, DELIMITER, payload == null ? DefStr.EMPTY
+			: payload));
+	}
+
+	/**
+	 * 仅当读取期间所在分段未发生失效时写入本地缓存。<br>
+	 * 写入后再检查一次,若写入前后发生了失效,失效可能早于写入完成,因此撤销本次写入。<br>
+	 * @param generation 从二级缓存读取前的失效代数
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	private <K, V> void putIfCurrent(Cache<K, V> cache, K key, V value, long generation) {
+		int stripe = stripe(key);
+		if (generations.get(stripe) != generation) {
+			return;
+		}
+		cache.put(key, value);
+		if (generations.get(stripe) != generation) {
+			cache.invalidate(key);
+		}
+	}
+
+	private int stripe(Object key) {
+		int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+	}
+
+	private void removeLocalId(Long id) {
+		generations.incrementAndGet(stripe(id));
+		idToken.invalidate(id);
+	}
+
+	private void removeLocalToken(String token) {
+		generations.incrementAndGet(stripe(token));
+		tokenId.invalidate(token);
+		tokenCache.remove(token);
+	}
+
+	private void clearLocal() {
+		for (int i = 0; i < GENERATION_STRIPES; ++i) {
+			generations.incrementAndGet(i);
+		}
+		idToken.invalidateAll();
+		tokenId.invalidateAll();
+		tokenCache.clear();
+	}
+
+}
@@ -1,98 +1,571 @@
 package frodez.service.cache.impl.user;
 
 import frodez.config.cache.CacheProperties;
+import frodez.config.cache.CacheProperties.RedisProperties;
+import frodez.config.security.settings.SecurityProperties;
 import frodez.constant.keys.cache.CacheKey;
 import frodez.service.cache.facade.user.IdTokenCache;
-import frodez.util.spring.ContextUtil;
+import frodez.service.cache.facade.user.TokenCache;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.BoundHashOperations;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 /**
- * id-Token有持久化需要,故使用redis作为缓存
+ * id-Token有持久化需要,故使用redis作为缓存<br>
+ * id-token和token-id分别按id和token的哈希值分散到多个分片中,每个分片由一个hash和一个记录过期时间的zset组成。<br>
+ * 每条记录的存活时间为jwt过期时间加上可刷新时间,过期的记录由后台线程按分片分批清理,清空缓存时也逐个分片删除,避免一次操作过大的key。<br>
+ * 同时涉及id-token和token-id的写操作均通过lua脚本完成,每次操作只需要一次网络往返,且在redis中原子执行。<br>
+ * 脚本可以顺带发布失效消息(见IdTokenNearCache),此时失效通知也包含在同一次往返中。<br>
+ * 由于原有token所在的分片只有在脚本中才能确定,分片key在脚本内计算,因此只适用于单节点redis。<br>
+ * 过期记录的清理每个间隔只由一个节点执行(通过SET NX PX选举),清理时同样发布失效消息。<br>
+ * 旧版本未分片的id-token记录在启动时和每次清理时迁移到分片中,迁移完毕后旧的hash被删除。<br>
  * @author Frodez
  * @date 2019-12-31
  */
+@Slf4j
 @Component("idTokenRedisCache")
 public class IdTokenRedisCache implements IdTokenCache {
 
-	private BoundHashOperations<String, String, String> idToken;
+	/**
+	 * 所有脚本共用的函数<br>
+	 * 参数依次为消息频道,id消息前缀,token消息前缀,分片数量,过期时间(毫秒时间戳),频道为空字符串时不发布消息,从第六个参数开始为各脚本自己的参数。<br>
+	 * 分片算法必须与shard方法一致。<br>
+	 */
+	private static final String PRELUDE = String.join("\n",
+		"local function shard(value)",
+		"  local hash = 0",
+		"  for i = 1, #value do",
+		"    hash = (hash * 31 + string.byte(value, i)) % 65536",
+		"  end",
+		"  return ':' .. (hash % tonumber(ARGV[4]))",
+		"end",
+		"local function notify(prefix, payload)",
+		"  if ARGV[1] ~= '' then",
+		"    redis.call('PUBLISH', ARGV[1], prefix .. payload)",
+		"  end",
+		"end",
+		"local function getToken(id)",
+		"  return redis.call('HGET', '" + CacheKey.IdTokenCache.ID_TOKEN + "' .. shard(id), id)",
+		"end",
+		"local function getId(token)",
+		"  return redis.call('HGET', '" + CacheKey.IdTokenCache.TOKEN_ID + "' .. shard(token), token)",
+		"end",
+		"local function put(id, token)",
+		"  local idShard = shard(id)",
+		"  local tokenShard = shard(token)",
+		"  redis.call('HSET', '" + CacheKey.IdTokenCache.ID_TOKEN + "' .. idShard, id, token)",
+		"  redis.call('ZADD', '" + CacheKey.IdTokenCache.ID_EXPIRE + "' .. idShard, ARGV[5], id)",
+		"  redis.call('HSET', '" + CacheKey.IdTokenCache.TOKEN_ID + "' .. tokenShard, token, id)",
+		"  redis.call('ZADD', '" + CacheKey.IdTokenCache.TOKEN_EXPIRE + "' .. tokenShard, ARGV[5], token)",
+		"end",
+		"local function deleteId(id)",
+		"  local idShard = shard(id)",
+		"  redis.call('HDEL', '" + CacheKey.IdTokenCache.ID_TOKEN + "' .. idShard, id)",
+		"  redis.call('ZREM', '" + CacheKey.IdTokenCache.ID_EXPIRE + "' .. idShard, id)",
+		"end",
+		"local function deleteToken(token)",
+		"  local tokenShard = shard(token)",
+		"  redis.call('HDEL', '" + CacheKey.IdTokenCache.TOKEN_ID + "' .. tokenShard, token)",
+		"  redis.call('ZREM', '" + CacheKey.IdTokenCache.TOKEN_EXPIRE + "' .. tokenShard, token)",
+		"end",
+		"");
 
-	private BoundHashOperations<String, String, String> tokenId;
+	/**
+	 * 保存脚本<br>
+	 * 参数依次为id,token。<br>
+	 */
+	private static final String SAVE_TEXT = PRELUDE + String.join("\n",
+		"put(ARGV[6], ARGV[7])",
+		"notify(ARGV[2], ARGV[6])",
+		"return nil");
 
-	private Integer timeout;
+	/**
+	 * 替换token脚本<br>
+	 * 参数依次为id,新token。返回值为原有的token,不存在时为null。<br>
+	 */
+	private static final String REPLACE_TEXT = PRELUDE + String.join("\n",
+		"local old = getToken(ARGV[6])",
+		"if old then",
+		"  deleteToken(old)",
+		"end",
+		"put(ARGV[6], ARGV[7])",
+		"notify(ARGV[2], ARGV[6])",
+		"if old then",
+		"  notify(ARGV[3], old)",
+		"end",
+		"return old");
 
-	public IdTokenRedisCache(@Autowired CacheProperties properties, @Autowired StringRedisTemplate template) {
-		idToken = template.boundHashOps(CacheKey.IdTokenCache.ID_TOKEN);
-		tokenId = template.boundHashOps(CacheKey.IdTokenCache.TOKEN_ID);
-		timeout = properties.getRedis().getTimeout();
-		idToken.expire(timeout, TimeUnit.MINUTES);
-		tokenId.expire(timeout, TimeUnit.MINUTES);
+	/**
+	 * 根据id删除id-token对脚本<br>
+	 * 参数为id。返回值为被删除的token,不存在时为null。<br>
+	 */
+	private static final String REMOVE_BY_ID_TEXT = PRELUDE + String.join("\n",
+		"local token = getToken(ARGV[6])",
+		"deleteId(ARGV[6])",
+		"notify(ARGV[2], ARGV[6])",
+		"if token then",
+		"  deleteToken(token)",
+		"  notify(ARGV[3], token)",
+		"end",
+		"return token");
+
+	/**
+	 * 根据token删除id-token对脚本<br>
+	 * 参数为token。只有id当前对应的token就是该token时才删除id-token记录,避免删除用户重新登录后的新token。<br>
+	 * 返回值为token对应的id,不存在时为null。<br>
+	 */
+	private static final String REMOVE_BY_TOKEN_TEXT = PRELUDE + String.join("\n",
+		"local id = getId(ARGV[6])",
+		"if not id then",
+		"  return nil",
+		"end",
+		"deleteToken(ARGV[6])",
+		"if getToken(id) == ARGV[6] then",
+		"  deleteId(id)",
+		"  notify(ARGV[2], id)",
+		"end",
+		"notify(ARGV[3], ARGV[6])",
+		"return id");
+
+	/**
+	 * 批量删除id-token对脚本<br>
+	 * 从第六个参数开始均为id。返回值为被删除的token列表。<br>
+	 */
+	private static final String BATCH_REMOVE_TEXT = PRELUDE + String.join("\n",
+		"local ids = {}",
+		"local tokens = {}",
+		"for i = 6, #ARGV do",
+		"  local token = getToken(ARGV[i])",
+		"  if token then",
+		"    deleteId(ARGV[i])",
+		"    deleteToken(token)",
+		"    ids[#ids + 1] = ARGV[i]",
+		"    tokens[#tokens + 1] = token",
+		"  end",
+		"end",
+		"if #ids > 0 then",
+		"  notify(ARGV[2], table.concat(ids, ','))",
+		"  notify(ARGV[3], table.concat(tokens, ','))",
+		"end",
+		"return tokens");
+
+	/**
+	 * 清理过期记录脚本<br>
+	 * KEYS依次为分片的hash和zset,参数依次为当前时间(毫秒时间戳),最大清理数量,消息频道,消息前缀。返回值为清理的记录数。<br>
+	 * 频道不为空字符串时,将清理的记录(id或token)合并为一条失效消息发布。<br>
+	 */
+	private static final String CLEAN_TEXT = String.join("\n",
+		"local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])",
+		"if #expired > 0 then",
+		"  redis.call('HDEL', KEYS[1], unpack(expired))",
+		"  redis.call('ZREM', KEYS[2], unpack(expired))",
+		"  if ARGV[3] ~= '' then",
+		"    redis.call('PUBLISH', ARGV[3], ARGV[4] .. table.concat(expired, ','))",
+		"  end",
+		"end",
+		"return #expired");
+
+	/**
+	 * 迁移旧版本未分片记录脚本<br>
+	 * KEYS依次为旧的id-token和token-id hash,从第六个参数开始均为id。返回值为迁移的记录数。<br>
+	 * 分片中已存在的id说明用户已重新登录,此时只删除旧记录。<br>
+	 */
+	private static final String MIGRATE_TEXT = PRELUDE + String.join("\n",
+		"local migrated = 0",
+		"for i = 6, #ARGV do",
+		"  local token = redis.call('HGET', KEYS[1], ARGV[i])",
+		"  if token then",
+		"    if not getToken(ARGV[i]) then",
+		"      put(ARGV[i], token)",
+		"      migrated = migrated + 1",
+		"    end",
+		"    redis.call('HDEL', KEYS[1], ARGV[i])",
+		"    redis.call('HDEL', KEYS[2], token)",
+		"  end",
+		"end",
+		"return migrated");
+
+	private static final RedisScript<String> SAVE = new DefaultRedisScript<>(SAVE_TEXT, String.class);
+
+	private static final RedisScript<String> REPLACE = new DefaultRedisScript<>(REPLACE_TEXT, String.class);
+
+	private static final RedisScript<String> REMOVE_BY_ID = new DefaultRedisScript<>(REMOVE_BY_ID_TEXT, String.class);
+
+	private static final RedisScript<String> REMOVE_BY_TOKEN = new DefaultRedisScript<>(REMOVE_BY_TOKEN_TEXT, String.class);
+
+	@SuppressWarnings("rawtypes")
+	private static final RedisScript<List> BATCH_REMOVE = new DefaultRedisScript<>(BATCH_REMOVE_TEXT, List.class);
+
+	private static final RedisScript<Long> CLEAN = new DefaultRedisScript<>(CLEAN_TEXT, Long.class);
+
+	private static final RedisScript<Long> MIGRATE = new DefaultRedisScript<>(MIGRATE_TEXT, Long.class);
+
+	/**
+	 * 旧版本未分片的hash,与分片的前缀相同
+	 */
+	private static final List<String> LEGACY = List.of(CacheKey.IdTokenCache.ID_TOKEN, CacheKey.IdTokenCache.TOKEN_ID);
+
+	/**
+	 * 不发布失效消息时的脚本参数
+	 */
+	private static final List<String> SILENT = List.of("", "", "");
+
+	private StringRedisTemplate template;
+
+	/**
+	 * 分片数量
+	 */
+	private int shards;
+
+	/**
+	 * 记录存活时间,单位毫秒
+	 */
+	private long lifetime;
+
+	private int cleanBatch;
+
+	private long cleanInterval;
+
+	/**
+	 * 本节点标识,用于清理选举和清理时的失效消息
+	 */
+	private final String node = UUID.randomUUID().toString();
+
+	/**
+	 * 清理时发布失效消息所需的参数,与近缓存的格式一致
+	 */
+	private final List<String> cleanNotice = IdTokenNearCache.notice(node);
+
+	private final ScheduledExecutorService cleaner;
+
+	/**
+	 * 本地已验证token缓存,删除token时同步删除
+	 */
+	private TokenCache tokenCache;
+
+	@Autowired
+	public IdTokenRedisCache(CacheProperties properties, SecurityProperties securityProperties, StringRedisTemplate template,
+		@Qualifier("tokenGuavaCache") TokenCache tokenCache) {
+		RedisProperties config = properties.getRedis();
+		this.tokenCache = tokenCache;
+		this.template = template;
+		shards = config.getShards();
+		cleanBatch = config.getCleanBatch();
+		cleanInterval = config.getCleanInterval();
+		long expiration = securityProperties.getJwt().getExpiration();
+		lifetime = TimeUnit.SECONDS.toMillis(Math.max(expiration, 0)) + TimeUnit.MINUTES.toMillis(config.getTimeout());
+		cleaner = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "id-token-cleaner");
+			thread.setDaemon(true);
+			return thread;
+		});
+		cleaner.scheduleWithFixedDelay(this::clean, config.getCleanInterval(), config.getCleanInterval(), TimeUnit.MILLISECONDS);
+	}
+
+	@PostConstruct
+	private void init() {
+		//在开始处理请求前迁移旧记录,避免部署后所有用户需要重新登录
+		migrate();
+	}
+
+	@PreDestroy
+	private void destroy() {
+		cleaner.shutdownNow();
+	}
+
+	/**
+	 * 清理所有分片中的过期记录,每次最多清理cleanBatch条,直到清理完毕<br>
+	 * 每个清理间隔内只有取得锁的节点执行清理,锁不主动释放,到期后由下一个到达的节点取得。<br>
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	void clean() {
+		try {
+			if (!Boolean.TRUE.equals(template.opsForValue().setIfAbsent(CacheKey.IdTokenCache.CLEAN_LOCK, node, cleanInterval,
+				TimeUnit.MILLISECONDS))) {
+				return;
+			}
+			//滚动部署期间旧版本节点仍会写入未分片的记录
+			migrate();
+			String now = String.valueOf(System.currentTimeMillis());
+			String batch = String.valueOf(cleanBatch);
+			for (int i = 0; i < shards; i++) {
+				clean(List.of(CacheKey.IdTokenCache.ID_TOKEN + ":" + i, CacheKey.IdTokenCache.ID_EXPIRE + ":" + i), now, batch, cleanNotice.get(
+					1));
+				clean(List.of(CacheKey.IdTokenCache.TOKEN_ID + ":" + i, CacheKey.IdTokenCache.TOKEN_EXPIRE + ":" + i), now, batch, cleanNotice
+					.get(2));
+			}
+		} catch (Exception e) {
+			log.error("[IdTokenRedisCache]清理过期记录失败", e);
+		}
+	}
+
+	private void clean(List<String> keys, String now, String batch, String prefix) {
+		Long cleaned;
+		do {
+			cleaned = template.execute(CLEAN, keys, now, batch, cleanNotice.get(0), prefix);
+		} while (cleaned != null && cleaned >= cleanBatch);
+	}
+
+	/**
+	 * 将旧版本未分片的id-token记录迁移到分片中,迁移后的记录重新计算存活时间。<br>
+	 * 以旧的id-token hash为准,迁移完毕后删除旧的token-id hash,其中剩余的记录没有对应的id,无法再使用。<br>
+	 * 迁移脚本可重复执行,多个节点同时迁移不会产生错误的记录。<br>
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	void migrate() {
+		try {
+			if (template.countExistingKeys(LEGACY) == 0) {
+				return;
+			}
+			long migrated = 0;
+			List<String> ids = new ArrayList<>(cleanBatch);
+			ScanOptions options = ScanOptions.scanOptions().count(cleanBatch).build();
+			try (Cursor<Entry<String, String>> cursor = template.<String, String>opsForHash().scan(LEGACY.get(0), options)) {
+				while (cursor.hasNext()) {
+					ids.add(cursor.next().getKey());
+					if (ids.size() >= cleanBatch) {
+						migrated += migrate(ids);
+						ids.clear();
+					}
+				}
+			}
+			if (!ids.isEmpty()) {
+				migrated += migrate(ids);
+			}
+			if (!Boolean.TRUE.equals(template.hasKey(LEGACY.get(0)))) {
+				template.unlink(LEGACY.get(1));
+			}
+			log.info("[IdTokenRedisCache]已迁移{}条未分片的id-token记录", migrated);
+		} catch (Exception e) {
+			log.error("[IdTokenRedisCache]迁移未分片的id-token记录失败", e);
+		}
+	}
+
+	private long migrate(List<String> ids) {
+		Long migrated = template.execute(MIGRATE, LEGACY, args(SILENT, ids.toArray()));
+		return migrated == null ? 0 : migrated;
+	}
+
+	/**
+	 * 计算分片,必须与脚本中的shard函数一致
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	int shard(String value) {
+		//lua按字节计算,因此同样使用utf-8编码后的字节
+		int hash = 0;
+		for (byte item : value.getBytes(StandardCharsets.UTF_8)) {
+			hash = (hash * 31 + (item & 0xFF)) % 65536;
+		}
+		return hash % shards;
+	}
+
+	private String idKey(String id) {
+		return CacheKey.IdTokenCache.ID_TOKEN + ":" + shard(id);
+	}
+
+	private String tokenKey(String token) {
+		return CacheKey.IdTokenCache.TOKEN_ID + ":" + shard(token);
 	}
 
 	@Override
 	public void clear() {
-		StringRedisTemplate template = ContextUtil.bean(StringRedisTemplate.class);
-		template.delete(CacheKey.IdTokenCache.ID_TOKEN);
-		template.delete(CacheKey.IdTokenCache.TOKEN_ID);
-		idToken = template.boundHashOps(CacheKey.IdTokenCache.ID_TOKEN);
-		tokenId = template.boundHashOps(CacheKey.IdTokenCache.TOKEN_ID);
-		idToken.expire(timeout, TimeUnit.MINUTES);
-		tokenId.expire(timeout, TimeUnit.MINUTES);
+		for (int i = 0; i < shards; i++) {
+			template.unlink(List.of(CacheKey.IdTokenCache.ID_TOKEN + ":" + i, CacheKey.IdTokenCache.ID_EXPIRE + ":" + i,
+				CacheKey.IdTokenCache.TOKEN_ID + ":" + i, CacheKey.IdTokenCache.TOKEN_EXPIRE + ":" + i));
+		}
+		tokenCache.clear();
 	}
 
 	@Override
 	public boolean exist(Long id) {
-		return idToken.hasKey(id.toString());
+		String idString = id.toString();
+		return template.opsForHash().hasKey(idKey(idString), idString);
 	}
 
 	@Override
 	public boolean exist(String token) {
-		return tokenId.hasKey(token);
+		return template.opsForHash().hasKey(tokenKey(token), token);
 	}
 
 	@Override
 	public void save(Long id, String token) {
-		String idString = id.toString();
-		idToken.put(idString, token);
-		tokenId.put(token, idString);
+		save(id, token, SILENT);
+	}
+
+	/**
+	 * 保存id对应的token,同时发布id失效消息
+	 * @param notice 消息频道,id消息前缀,token消息前缀
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	void save(Long id, String token, List<String> notice) {
+		template.execute(SAVE, List.of(), args(notice, id.toString(), token));
+	}
+
+	@Override
+	public String replace(Long id, String token) {
+		return replace(id, token, SILENT);
+	}
+
+	/**
+	 * 替换id对应的token,同时发布id和原有token的失效消息
+	 * @param notice 消息频道,id消息前缀,token消息前缀
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	String replace(Long id, String token, List<String> notice) {
+		String oldToken = template.execute(REPLACE, List.of(), args(notice, id.toString(), token));
+		if (oldToken != null) {
+			tokenCache.remove(oldToken);
+		}
+		return oldToken;
 	}
 
 	@Override
 	public void remove(Long id) {
 		String idString = id.toString();
-		idToken.delete(idString);
+		String shard = ":" + shard(idString);
+		template.executePipelined((RedisCallback<Object>) (connection) -> {
+			StringRedisConnection stringConnection = (StringRedisConnection) connection;
+			stringConnection.hDel(CacheKey.IdTokenCache.ID_TOKEN + shard, idString);
+			stringConnection.zRem(CacheKey.IdTokenCache.ID_EXPIRE + shard, idString);
+			return null;
+		});
 	}
 
 	@Override
 	public void remove(String token) {
-		tokenId.delete(token);
+		String shard = ":" + shard(token);
+		template.executePipelined((RedisCallback<Object>) (connection) -> {
+			StringRedisConnection stringConnection = (StringRedisConnection) connection;
+			stringConnection.hDel(CacheKey.IdTokenCache.TOKEN_ID + shard, token);
+			stringConnection.zRem(CacheKey.IdTokenCache.TOKEN_EXPIRE + shard, token);
+			return null;
+		});
+		tokenCache.remove(token);
+	}
+
+	@Override
+	public String removePair(Long id) {
+		return removePair(id, SILENT);
+	}
+
+	/**
+	 * 删除id及其对应的token,同时发布失效消息
+	 * @param notice 消息频道,id消息前缀,token消息前缀
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	String removePair(Long id, List<String> notice) {
+		String token = template.execute(REMOVE_BY_ID, List.of(), args(notice, id.toString()));
+		if (token != null) {
+			tokenCache.remove(token);
+		}
+		return token;
+	}
+
+	@Override
+	public Long removePair(String token) {
+		return removePair(token, SILENT);
+	}
+
+	/**
+	 * 删除token及其对应的id,同时发布失效消息
+	 * @param notice 消息频道,id消息前缀,token消息前缀
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	Long removePair(String token, List<String> notice) {
+		String id = template.execute(REMOVE_BY_TOKEN, List.of(), args(notice, token));
+		tokenCache.remove(token);
+		return id == null ? null : Long.valueOf(id);
 	}
 
 	@Override
 	public String getToken(Long id) {
-		return idToken.get(id.toString());
+		String idString = id.toString();
+		return template.<String, String>opsForHash().get(idKey(idString), idString);
 	}
 
 	@Override
 	public Long getId(String token) {
-		String idString = tokenId.get(token);
+		String idString = template.<String, String>opsForHash().get(tokenKey(token), token);
 		return idString == null ? null : Long.valueOf(idString);
 	}
 
 	@Override
 	public List<String> getTokens(List<Long> ids) {
-		return idToken.multiGet(ids.stream().map((item) -> item.toString()).collect(Collectors.toList()));
+		List<Object> tokens = template.executePipelined((RedisCallback<Object>) (connection) -> {
+			StringRedisConnection stringConnection = (StringRedisConnection) connection;
+			for (Long id : ids) {
+				String idString = id.toString();
+				stringConnection.hGet(idKey(idString), idString);
+			}
+			return null;
+		});
+		return tokens.stream().map((item) -> (String) item).collect(Collectors.toList());
 	}
 
 	@Override
-	public void batchRemove(List<Long> ids, List<String> tokens) {
-		idToken.delete(ids.stream().map((item) -> item.toString()).toArray());
-		tokenId.delete(tokens.toArray());
+	public List<String> batchRemove(List<Long> ids) {
+		return batchRemove(ids, SILENT);
+	}
+
+	/**
+	 * 批量删除id及其对应的token,同时发布失效消息
+	 * @param notice 消息频道,id消息前缀,token消息前缀
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	@SuppressWarnings("unchecked")
+	List<String> batchRemove(List<Long> ids, List<String> notice) {
+		if (ids.isEmpty()) {
+			return List.of();
+		}
+		List<String> tokens = template.execute(BATCH_REMOVE, List.of(), args(notice, ids.stream().map(Object::toString).toArray()));
+		if (tokens == null) {
+			return List.of();
+		}
+		tokenCache.batchRemove(tokens);
+		return tokens;
+	}
+
+	/**
+	 * 生成脚本参数:消息参数,分片数量,过期时间,脚本自己的参数
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	private Object[] args(List<String> notice, Object... params) {
+		List<Object> args = new ArrayList<>(notice.size() + params.length + 2);
+		args.addAll(notice);
+		args.add(String.valueOf(shards));
+		args.add(String.valueOf(System.currentTimeMillis() + lifetime));
+		for (Object param : params) {
+			args.add(param);
+		}
+		return args.toArray();
 	}
 
 }
@@ -0,0 +1,267 @@
+package frodez.service.cache.impl.user;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 线程安全的long-long哈希表<br>
+ * 使用开放寻址和线性探测,键值均为基本类型,每条记录仅占用16字节,没有包装对象和节点对象的开销。<br>
+ * 读操作使用乐观读,不会阻塞;写操作使用写锁。<br>
+ * 设定了最大容量,达到最大容量时按插入槽位顺序轮流淘汰已有记录。<br>
+ * 由于0被用作空槽位标识,键为0的记录单独保存。<br>
+ * @author Frodez
+ * @date 2020-01-11
+ */
+final class LongLongMap {
+
+	/**
+	 * 不存在时的返回值
+	 */
+	static final long ABSENT = Long.MIN_VALUE;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private final StampedLock lock = new StampedLock();
+
+	private final int maxSize;
+
+	/**
+	 * 键和值交替存放,下标2i为键,2i+1为值
+	 */
+	private volatile long[] table;
+
+	private int size;
+
+	private boolean hasZero;
+
+	private long zeroValue;
+
+	/**
+	 * 淘汰游标
+	 */
+	private int cursor;
+
+	private long evictions;
+
+	LongLongMap(int maxSize) {
+		this.maxSize = Math.max(1, maxSize);
+		this.table = new long[MIN_CAPACITY << 1];
+	}
+
+	long get(long key) {
+		long stamp = lock.tryOptimisticRead();
+		long value = find(key);
+		if (lock.validate(stamp)) {
+			return value;
+		}
+		stamp = lock.readLock();
+		try {
+			return find(key);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	void put(long key, long value) {
+		long stamp = lock.writeLock();
+		try {
+			insert(key, value);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	void putAll(long[] keys, long value) {
+		long stamp = lock.writeLock();
+		try {
+			for (long key : keys) {
+				insert(key, value);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	void remove(long key) {
+		long stamp = lock.writeLock();
+		try {
+			if (key == 0) {
+				if (hasZero) {
+					hasZero = false;
+					--size;
+				}
+				return;
+			}
+			long[] tab = table;
+			int mask = (tab.length >>> 1) - 1;
+			for (int i = index(key, mask);; i = (i + 1) & mask) {
+				long existed = tab[i << 1];
+				if (existed == 0) {
+					return;
+				}
+				if (existed == key) {
+					delete(tab, i, mask);
+					--size;
+					return;
+				}
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	void clear() {
+		long stamp = lock.writeLock();
+		try {
+			table = new long[MIN_CAPACITY << 1];
+			size = 0;
+			hasZero = false;
+			cursor = 0;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	int size() {
+		long stamp = lock.readLock();
+		try {
+			return size;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	long evictions() {
+		long stamp = lock.readLock();
+		try {
+			return evictions;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * 当前表占用的内存,单位字节,不含对象头
+	 */
+	long footprint() {
+		return (long) table.length << 3;
+	}
+
+	private long find(long key) {
+		if (key == 0) {
+			return hasZero ? zeroValue : ABSENT;
+		}
+		long[] tab = table;
+		int mask = (tab.length >>> 1) - 1;
+		//乐观读期间表可能被修改,因此最多探测一轮,防止死循环
+		for (int i = index(key, mask), n = 0; n <= mask; i = (i + 1) & mask, ++n) {
+			long existed = tab[i << 1];
+			if (existed == key) {
+				return tab[(i << 1) + 1];
+			}
+			if (existed == 0) {
+				return ABSENT;
+			}
+		}
+		return ABSENT;
+	}
+
+	private void insert(long key, long value) {
+		if (key == 0) {
+			if (!hasZero) {
+				hasZero = true;
+				++size;
+			}
+			zeroValue = value;
+			return;
+		}
+		long[] tab = table;
+		int mask = (tab.length >>> 1) - 1;
+		int i = index(key, mask);
+		for (;; i = (i + 1) & mask) {
+			long existed = tab[i << 1];
+			if (existed == key) {
+				tab[(i << 1) + 1] = value;
+				return;
+			}
+			if (existed == 0) {
+				break;
+			}
+		}
+		if (size >= maxSize) {
+			evict();
+			insert(key, value);
+			return;
+		}
+		tab[i << 1] = key;
+		tab[(i << 1) + 1] = value;
+		//负载因子0.5
+		if (++size > (mask + 1) >>> 1) {
+			resize();
+		}
+	}
+
+	private void evict() {
+		if (hasZero) {
+			hasZero = false;
+			--size;
+			++evictions;
+			return;
+		}
+		long[] tab = table;
+		int mask = (tab.length >>> 1) - 1;
+		for (int i = cursor & mask;; i = (i + 1) & mask) {
+			if (tab[i << 1] != 0) {
+				delete(tab, i, mask);
+				--size;
+				++evictions;
+				cursor = i + 1;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 删除槽位i的记录,并将后续探测链上的记录前移,保证查找不会提前遇到空槽位
+	 */
+	private static void delete(long[] tab, int i, int mask) {
+		for (int j = (i + 1) & mask;; j = (j + 1) & mask) {
+			long key = tab[j << 1];
+			if (key == 0) {
+				break;
+			}
+			int home = index(key, mask);
+			//home不在(i, j]之间时,j处的记录可以移动到i
+			if (i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+				tab[i << 1] = key;
+				tab[(i << 1) + 1] = tab[(j << 1) + 1];
+				i = j;
+			}
+		}
+		tab[i << 1] = 0;
+		tab[(i << 1) + 1] = 0;
+	}
+
+	private void resize() {
+		long[] old = table;
+		long[] tab = new long[old.length << 1];
+		int mask = (tab.length >>> 1) - 1;
+		for (int j = 0; j < old.length; j += 2) {
+			long key = old[j];
+			if (key != 0) {
+				int i = index(key, mask);
+				while (tab[i << 1] != 0) {
+					i = (i + 1) & mask;
+				}
+				tab[i << 1] = key;
+				tab[(i << 1) + 1] = old[j + 1];
+			}
+		}
+		table = tab;
+	}
+
+	private static int index(long key, int mask) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+}
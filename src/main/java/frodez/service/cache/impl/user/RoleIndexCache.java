@@ -0,0 +1,148 @@
+package frodez.service.cache.impl.user;
+
+import com.google.common.cache.CacheStats;
+import frodez.config.cache.CacheProperties;
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
+import frodez.dao.model.table.user.Role;
+import frodez.service.cache.facade.user.RoleCache;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * id-Role缓存索引实现<br>
+ * 分为两层:用户id-角色id的基本类型哈希表,以及角色id-Role表。<br>
+ * 同一角色的所有用户共用一个Role实例,每个用户只占用一对long的空间。<br>
+ * 修改角色信息时只需要替换角色表中的一条记录,不需要修改该角色下所有用户的记录。<br>
+ * 用户记录达到最大数量时会淘汰已有记录,被淘汰的用户由UserUtil在需要时从数据库重新加载。<br>
+ * @author Frodez
+ * @date 2020-01-11
+ */
+@Component("roleIndexCache")
+public class RoleIndexCache implements RoleCache {
+
+	/**
+	 * 用户id-角色id
+	 */
+	private LongLongMap users;
+
+	/**
+	 * 角色id-Role
+	 */
+	private Map<Long, Role> roles = new ConcurrentHashMap<>();
+
+	private LongAdder hits = new LongAdder();
+
+	private LongAdder misses = new LongAdder();
+
+	@Autowired
+	public RoleIndexCache(CacheProperties properties) {
+		users = new LongLongMap(properties.getRoleIndexCache().getMaxSize());
+	}
+
+	/**
+	 * 其他节点修改角色或用户时,删除对应记录,下次使用时由UserUtil重新加载
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	@Autowired
+	public void subscribe(CacheEventBus bus) {
+		bus.subscribe(Type.ROLE, (roleIds) -> {
+			if (roleIds == null) {
+				clear();
+				return;
+			}
+			roleIds.forEach(this::removeRole);
+		});
+		bus.subscribe(Type.USER, (userIds) -> {
+			if (userIds == null) {
+				clear();
+				return;
+			}
+			userIds.forEach(this::remove);
+		});
+	}
+
+	@Override
+	public void clear() {
+		users.clear();
+		roles.clear();
+	}
+
+	@Override
+	public Role get(Long id) {
+		long roleId = users.get(id);
+		Role role = roleId == LongLongMap.ABSENT ? null : roles.get(roleId);
+		if (role == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return role;
+	}
+
+	@Override
+	public void save(Long id, Role role) {
+		roles.put(role.getId(), role);
+		users.put(id, role.getId());
+	}
+
+	@Override
+	public void save(List<Long> ids, Role role) {
+		long[] keys = new long[ids.size()];
+		int i = 0;
+		for (Long id : ids) {
+			keys[i++] = id;
+		}
+		roles.put(role.getId(), role);
+		users.putAll(keys, role.getId());
+	}
+
+	@Override
+	public void remove(Long id) {
+		users.remove(id);
+	}
+
+	@Override
+	public void update(Role role) {
+		//仅更新已缓存的角色,未缓存的角色会在下次加载时获取最新数据
+		roles.replace(role.getId(), role);
+	}
+
+	@Override
+	public void removeRole(Long roleId) {
+		roles.remove(roleId);
+	}
+
+	/**
+	 * 命中,未命中,淘汰等统计信息
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public CacheStats stats() {
+		return new CacheStats(hits.sum(), misses.sum(), 0, 0, 0, users.evictions());
+	}
+
+	/**
+	 * 当前缓存的用户数量
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public long size() {
+		return users.size();
+	}
+
+	/**
+	 * 当前缓存的角色数量
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public long roleSize() {
+		return roles.size();
+	}
+
+}
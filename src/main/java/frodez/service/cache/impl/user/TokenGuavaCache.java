@@ -0,0 +1,85 @@
+package frodez.service.cache.impl.user;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import frodez.config.cache.CacheProperties;
+import frodez.constant.settings.DefTime;
+import frodez.service.cache.facade.user.TokenCache;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * 已验证token缓存GUAVACACHE实现<br>
+ * 缓存有最大数量限制,每条缓存在写入后超过设定时间或者token本身过期时失效。<br>
+ * @author Frodez
+ * @date 2020-01-05
+ */
+@Component("tokenGuavaCache")
+public class TokenGuavaCache implements TokenCache {
+
+	private Cache<String, Entry> cache;
+
+	@Autowired
+	public TokenGuavaCache(CacheProperties properties) {
+		cache = CacheBuilder.newBuilder().maximumSize(properties.getTokenGuavaCache().getMaxSize()).expireAfterWrite(properties
+			.getTokenGuavaCache().getTimeout(), DefTime.UNIT).build();
+	}
+
+	@Override
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	@Override
+	public UserDetails get(String token) {
+		if (token == null) {
+			return null;
+		}
+		Entry entry = cache.getIfPresent(token);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.expiresAt <= System.currentTimeMillis()) {
+			//token已过期,交由TokenUtil重新验证并抛出过期异常
+			cache.invalidate(token);
+			return null;
+		}
+		return entry.user;
+	}
+
+	@Override
+	public void save(String token, UserDetails user, long expiresAt) {
+		if (token == null) {
+			return;
+		}
+		cache.put(token, new Entry(user, expiresAt));
+	}
+
+	@Override
+	public void remove(String token) {
+		if (token == null) {
+			return;
+		}
+		cache.invalidate(token);
+	}
+
+	@Override
+	public void batchRemove(List<String> tokens) {
+		for (String token : tokens) {
+			remove(token);
+		}
+	}
+
+	@AllArgsConstructor
+	private static class Entry {
+
+		UserDetails user;
+
+		long expiresAt;
+
+	}
+
+}
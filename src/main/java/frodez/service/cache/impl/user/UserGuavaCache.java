@@ -0,0 +1,87 @@
+package frodez.service.cache.impl.user;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import frodez.config.cache.CacheProperties;
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
+import frodez.constant.settings.DefTime;
+import frodez.dao.model.result.user.UserBaseInfo;
+import frodez.service.cache.facade.user.UserCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * id-User缓存GUAVACACHE实现<br>
+ * 缓存有最大数量限制,超出时淘汰最近最少使用的记录,超过设定时间未访问的记录同样会被淘汰。<br>
+ * 被淘汰的用户由UserUtil在需要时从数据库重新加载。<br>
+ * @author Frodez
+ * @date 2020-01-11
+ */
+@Component("userGuavaCache")
+public class UserGuavaCache implements UserCache {
+
+	private Cache<Long, UserBaseInfo> cache;
+
+	@Autowired
+	public UserGuavaCache(CacheProperties properties) {
+		cache = CacheBuilder.newBuilder().maximumSize(properties.getUserGuavaCache().getMaxSize()).expireAfterAccess(properties
+			.getUserGuavaCache().getTimeout(), DefTime.UNIT).recordStats().build();
+	}
+
+	/**
+	 * 其他节点修改用户时,删除对应记录,下次使用时由UserUtil重新加载
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	@Autowired
+	public void subscribe(CacheEventBus bus) {
+		bus.subscribe(Type.USER, (userIds) -> {
+			if (userIds == null) {
+				clear();
+			} else {
+				cache.invalidateAll(userIds);
+			}
+		});
+	}
+
+	@Override
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	@Override
+	public UserBaseInfo get(Long id) {
+		return cache.getIfPresent(id);
+	}
+
+	@Override
+	public void save(Long id, UserBaseInfo user) {
+		cache.put(id, user);
+	}
+
+	@Override
+	public void remove(Long id) {
+		cache.invalidate(id);
+	}
+
+	/**
+	 * 命中,未命中,淘汰等统计信息
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	/**
+	 * 当前缓存数量
+	 * @author Frodez
+	 * @date 2020-01-11
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+}
@@ -4,6 +4,8 @@ import frodez.config.aop.validation.annotation.Check;
 import frodez.config.swagger.annotation.Success;
 import frodez.config.swagger.annotation.Success.Container;
 import frodez.constant.annotations.decoration.Page;
+import frodez.dao.model.result.config.CacheBusStatsInfo;
+import frodez.dao.model.result.config.EndpointMetricInfo;
 import frodez.dao.model.table.config.GlobalData;
 import frodez.dao.model.table.config.Setting;
 import frodez.dao.param.config.UpdateGlobalData;
@@ -23,6 +25,7 @@ import org.springframework.transaction.annotation.Transactional;
  * 2.查看角色具有的设置信息<br>
  * 3.更改角色具有的设置信息<br>
  * 4.查询,更改全局数据<br>
+ * 5.查询接口性能统计信息<br>
  * @author Frodez
  * @date 2018-11-14
  */
@@ -73,4 +76,20 @@ public interface IConfigService {
 	@Transactional
 	Result setGlobalData(@NotEmpty List<@Valid UpdateGlobalData> param);
 
+	/**
+	 * 获取接口性能统计信息
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	@Success(value = EndpointMetricInfo.class, containerType = Container.LIST)
+	Result getMetrics();
+
+	/**
+	 * 获取缓存变更总线的接收统计信息
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	@Success(value = CacheBusStatsInfo.class, containerType = Container.LIST)
+	Result getCacheBusStats();
+
 }
@@ -1,5 +1,8 @@
 package frodez.service.config.impl;
 
+import frodez.config.aop.metric.MetricRegistry;
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
 import frodez.constant.enums.common.ModifyType;
 import frodez.constant.keys.config.GlobalDataKey;
 import frodez.dao.mapper.config.RoleSettingMapper;
@@ -15,7 +18,9 @@ import frodez.service.config.facade.IConfigService;
 import frodez.util.beans.param.QueryPage;
 import frodez.util.beans.result.Result;
 import frodez.util.common.EmptyUtil;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -28,6 +33,9 @@ public class ConfigService implements IConfigService {
 	@Qualifier("globalDataMapCache")
 	private IGlobalDataCache globalDataCache;
 
+	@Autowired
+	private CacheEventBus cacheEventBus;
+
 	@Autowired
 	@Qualifier("settingMapCache")
 	private SettingCache settingCache;
@@ -41,6 +49,10 @@ public class ConfigService implements IConfigService {
 	@Autowired
 	private RoleMapper roleMapper;
 
+	@Autowired
+	@Qualifier("metricRegistry")
+	private MetricRegistry metricRegistry;
+
 	@Override
 	public Result getSettings(QueryPage query) {
 		return query.start(() -> settingMapper.selectAll());
@@ -101,6 +113,7 @@ public class ConfigService implements IConfigService {
 		}
 		List<Setting> settings = settingMapper.getRoleSettings(roleId);
 		settingCache.refresh(roleId, settings.stream().map(Setting::getName).collect(Collectors.toList()));
+		cacheEventBus.publish(Type.SETTING, roleId);
 		return Result.success();
 	}
 
@@ -115,16 +128,27 @@ public class ConfigService implements IConfigService {
 		return Result.success();
 	}
 
-	@SuppressWarnings("unchecked")
-	private <V> void saveGlobalData(List<UpdateGlobalData> param) {
+	@Override
+	public Result getMetrics() {
+		return Result.success(metricRegistry.report());
+	}
+
+	@Override
+	public Result getCacheBusStats() {
+		return Result.success(cacheEventBus.report());
+	}
+
+	private void saveGlobalData(List<UpdateGlobalData> param) {
+		Map<Enum<? extends GlobalDataKey<?>>, Object> values = new LinkedHashMap<>();
 		for (UpdateGlobalData item : param) {
-			Enum<? extends GlobalDataKey<V>> enumKey = (Enum<? extends GlobalDataKey<V>>) GlobalDataKey.check(item.getType(), item.getName());
+			Enum<? extends GlobalDataKey<?>> enumKey = GlobalDataKey.check(item.getType(), item.getName());
 			if (enumKey == null) {
 				throw new IllegalArgumentException("非法的字段名或者字段类型!");
 			}
-			GlobalDataKey<V> key = (GlobalDataKey<V>) enumKey;
-			globalDataCache.save(enumKey, key.revert(item.getContent()));
+			GlobalDataKey<?> key = (GlobalDataKey<?>) enumKey;
+			values.put(enumKey, key.revert(item.getContent()));
 		}
+		globalDataCache.saveAll(values);
 	}
 
 }
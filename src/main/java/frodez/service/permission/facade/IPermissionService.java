@@ -14,6 +14,7 @@ import frodez.util.beans.param.QueryPage;
 import frodez.util.beans.result.Result;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -55,6 +56,17 @@ public interface IPermissionService {
 	@Success(value = Endpoint.class, containerType = Container.LIST)
 	Result getEndpoints(@NotNull Long roleId);
 
+	/**
+	 * 根据角色ID获取角色权限<br>
+	 * 精简token中不保存权限,验证token时通过本方法获取。<br>
+	 * @author Frodez
+	 * @date 2020-01-12
+	 */
+	@Check
+	@ServiceOnly
+	@Success(value = GrantedAuthority.class, containerType = Container.LIST)
+	Result getAuthorities(@NotNull Long roleId);
+
 	/**
 	 * 根据角色ID查询角色权限详细信息
 	 * @author Frodez
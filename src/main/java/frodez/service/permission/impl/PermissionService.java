@@ -1,6 +1,8 @@
 package frodez.service.permission.impl;
 
 import frodez.config.aop.exception.annotation.Error;
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
 import frodez.constant.enums.common.ModifyType;
 import frodez.constant.enums.permission.PermissionType;
 import frodez.constant.errors.code.ErrorCode;
@@ -19,6 +21,7 @@ import frodez.dao.model.table.permission.RoleMenu;
 import frodez.dao.model.table.permission.RoleTag;
 import frodez.dao.model.table.permission.Tag;
 import frodez.dao.param.permission.UpdateRolePermission;
+import frodez.service.cache.facade.permission.IEndpointCache;
 import frodez.service.cache.facade.permission.IPermissionCache;
 import frodez.service.permission.facade.IPermissionService;
 import frodez.service.user.facade.IUserManageService;
@@ -33,15 +36,21 @@ import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @Error(ErrorCode.AUTHORITY_SERVICE_ERROR)
 public class PermissionService implements IPermissionService {
 
 	@Autowired
-	@Qualifier("permissionRedisCache")
+	@Qualifier("permissionNearCache")
 	private IPermissionCache permissionCache;
 
+	@Autowired
+	@Qualifier("endpointGuavaCache")
+	private IEndpointCache endpointCache;
+
 	@Autowired
 	private MenuMapper menuMapper;
 
@@ -63,6 +72,9 @@ public class PermissionService implements IPermissionService {
 	@Autowired
 	private IUserManageService userManageService;
 
+	@Autowired
+	private CacheEventBus cacheEventBus;
+
 	@Override
 	public Result getMenuPermissions(QueryPage query) {
 		return query.start(() -> menuMapper.selectAll());
@@ -75,20 +87,36 @@ public class PermissionService implements IPermissionService {
 
 	@Override
 	public Result getEndpoints(Long roleId) {
+		//接口很少变动且同一角色的用户共用,登录时直接从缓存获取
+		return Result.success(endpointCache.get(roleId, this::loadEndpoints));
+	}
+
+	@Override
+	public Result getAuthorities(Long roleId) {
+		return Result.success(endpointCache.getAuthorities(roleId, this::loadEndpoints));
+	}
+
+	private List<Endpoint> loadEndpoints(Long roleId) {
 		List<Endpoint> endpoints = endpointMapper.getMenuEndpoints(roleId);
 		List<Endpoint> tagEndpoints = endpointMapper.getTagEndpoints(roleId);
 		endpoints.addAll(tagEndpoints);
-		return Result.success(endpoints);
+		return endpoints;
 	}
 
 	@Override
 	public Result getPermission(Long roleId) {
+		//同一角色的并发未命中只加载一次
+		return Result.success(permissionCache.get(roleId, this::loadPermission));
+	}
+
+	/**
+	 * 从数据库加载角色权限详情
+	 * @author Frodez
+	 * @date 2020-01-10
+	 */
+	private PermissionDetail loadPermission(Long roleId) {
 		//用户权限详情
-		PermissionDetail permissionDetail = permissionCache.get(roleId);
-		if (permissionDetail != null) {
-			return Result.success(permissionDetail);
-		}
-		permissionDetail = new PermissionDetail();
+		PermissionDetail permissionDetail = new PermissionDetail();
 		//菜单权限详细信息
 		List<Menu> menus = menuMapper.getByRoleId(roleId);
 		if (EmptyUtil.no(menus)) {
@@ -103,7 +131,7 @@ public class PermissionService implements IPermissionService {
 		}
 		//标签权限详细信息
 		List<Tag> tags = tagMapper.getByRoleId(roleId);
-		if (EmptyUtil.no(menus)) {
+		if (EmptyUtil.no(tags)) {
 			Map<Long, List<Endpoint>> tagEndpoints = endpointMapper.batchGetByTagId(StreamUtil.list(tags, Tag::getId));
 			List<TagPermissionDetail> tagPermissions = tags.stream().map((item) -> {
 				TagPermissionDetail tagPermission = new TagPermissionDetail();
@@ -113,8 +141,7 @@ public class PermissionService implements IPermissionService {
 			}).collect(Collectors.toList());
 			permissionDetail.setTagPermissions(tagPermissions);
 		}
-		permissionCache.save(roleId, permissionDetail);
-		return Result.success(permissionDetail);
+		return permissionDetail;
 	}
 
 	@Override
@@ -218,9 +245,33 @@ public class PermissionService implements IPermissionService {
 				}
 			}
 		}
-		PermissionDetail detail = getPermission(param.getRoleId()).orThrowMessage().as(PermissionDetail.class);
-		permissionCache.save(roleId, detail);
+		//事务提交后再重建缓存,避免未提交的数据进入redis
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCommit() {
+					refreshPermission(roleId);
+				}
+
+			});
+		} else {
+			refreshPermission(roleId);
+		}
+		cacheEventBus.publish(Type.PERMISSION, roleId);
 		return Result.success();
 	}
 
+	/**
+	 * 先删除旧缓存,再直接从数据库重新加载并保存。<br>
+	 * 不通过permissionCache.get加载,否则可能等待删除前开始的加载,得到旧数据。<br>
+	 * @author Frodez
+	 * @date 2020-01-13
+	 */
+	private void refreshPermission(Long roleId) {
+		permissionCache.remove(roleId);
+		permissionCache.save(roleId, loadPermission(roleId));
+		endpointCache.remove(roleId);
+	}
+
 }
@@ -21,11 +21,10 @@ import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -36,9 +35,6 @@ import org.springframework.stereotype.Service;
 @Error(ErrorCode.LOGIN_SERVICE_ERROR)
 public class LoginService implements ILoginService {
 
-	@Autowired
-	private AuthenticationManager authenticationManager;
-
 	@Autowired
 	private SecurityContextLogoutHandler logoutHandler;
 
@@ -46,15 +42,15 @@ public class LoginService implements ILoginService {
 	private PasswordEncoder passwordEncoder;
 
 	@Autowired
-	@Qualifier("idTokenRedisCache")
+	@Qualifier("idTokenNearCache")
 	private IdTokenCache idTokenCache;
 
 	@Autowired
-	@Qualifier("userMapCache")
+	@Qualifier("userGuavaCache")
 	private UserCache userCache;
 
 	@Autowired
-	@Qualifier("roleMapCache")
+	@Qualifier("roleIndexCache")
 	private RoleCache roleCache;
 
 	@Autowired
@@ -73,17 +69,16 @@ public class LoginService implements ILoginService {
 		Long userId = permission.getUser().getId();
 		//realToken
 		String token = TokenUtil.generate(permission);
-		//保存id-token到缓存,退出时需要删除token,重新登录时需要重新保存token
-		String oldToken = idTokenCache.getToken(userId);
-		if (oldToken != null) {
-			idTokenCache.remove(oldToken);
-		}
-		idTokenCache.save(userId, token);
+		//保存id-token到缓存,同时删除旧token,退出时需要删除token,重新登录时需要重新保存token
+		idTokenCache.replace(userId, token);
 		//保存id-UserBaseInfo,id-Role到缓存
 		userCache.save(userId, BeanUtil.copy(permission.getUser(), UserBaseInfo::new));
 		roleCache.save(userId, permission.getRole());
-		Authentication authentication = new UsernamePasswordAuthenticationToken(param.getUsername(), param.getPassword());
-		authentication = authenticationManager.authenticate(authentication);
+		//密码已经验证过,直接使用已查出的权限生成认证信息,不再通过AuthenticationManager重复查询和验证密码
+		List<GrantedAuthority> authorities = AuthorityUtil.make(permission.getEndpoints());
+		UserDetails userDetails = new User(param.getUsername(), permission.getUser().getPassword(), authorities);
+		UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+		authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(MVCUtil.request()));
 		SecurityContextHolder.getContext().setAuthentication(authentication);
 		return Result.success(token);
 	}
@@ -130,11 +125,7 @@ public class LoginService implements ILoginService {
 		//用刚查询出来的用户权限信息生成新token,这样可以做到重新登录时更新权限
 		String newToken = TokenUtil.generate(permission);
 		//覆盖cache,直接覆盖老token
-		String oldToken = idTokenCache.getToken(userId);
-		if (oldToken != null) {
-			idTokenCache.remove(oldToken);
-		}
-		idTokenCache.save(userId, newToken);
+		idTokenCache.replace(userId, newToken);
 		//保存id-UserBaseInfo,id-Role到缓存
 		userCache.save(userId, BeanUtil.copy(permission.getUser(), UserBaseInfo::new));
 		roleCache.save(userId, permission.getRole());
@@ -148,14 +139,11 @@ public class LoginService implements ILoginService {
 	public Result logout() {
 		HttpServletRequest request = MVCUtil.request();
 		String token = TokenUtil.getRealToken(request);
-		if (!idTokenCache.exist(token)) {
+		//删除缓存中的token,但不删除缓存中的User和Role
+		if (idTokenCache.removePair(token) == null) {
 			return Result.fail("用户已下线");
 		}
 		logoutHandler.logout(request, MVCUtil.response(), SecurityContextHolder.getContext().getAuthentication());
-		//删除缓存中的token,但不删除缓存中的User和Role
-		Long userId = idTokenCache.getId(token);
-		idTokenCache.remove(userId);
-		idTokenCache.remove(token);
 		return Result.success();
 	}
 
@@ -1,5 +1,7 @@
 package frodez.service.user.impl;
 
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
 import frodez.dao.mapper.config.RoleSettingMapper;
 import frodez.dao.mapper.permission.MenuMapper;
 import frodez.dao.mapper.permission.RoleMenuMapper;
@@ -13,6 +15,7 @@ import frodez.dao.model.table.user.Role;
 import frodez.dao.param.user.CreateRole;
 import frodez.dao.param.user.UpdateRole;
 import frodez.service.cache.facade.config.SettingCache;
+import frodez.service.cache.facade.user.RoleCache;
 import frodez.service.user.facade.IRoleService;
 import frodez.util.beans.param.QueryPage;
 import frodez.util.beans.result.Result;
@@ -32,6 +35,10 @@ public class RoleService implements IRoleService {
 	@Qualifier("settingMapCache")
 	private SettingCache settingCache;
 
+	@Autowired
+	@Qualifier("roleIndexCache")
+	private RoleCache roleCache;
+
 	@Autowired
 	private RoleMapper roleMapper;
 
@@ -53,6 +60,9 @@ public class RoleService implements IRoleService {
 	@Autowired
 	private UserMapper userMapper;
 
+	@Autowired
+	private CacheEventBus cacheEventBus;
+
 	@Override
 	public Result getRoles(QueryPage query) {
 		return query.start(() -> roleMapper.selectAll());
@@ -103,6 +113,8 @@ public class RoleService implements IRoleService {
 			return Result.fail("该角色不存在!");
 		}
 		roleMapper.updateByPrimaryKeySelective(BeanUtil.copy(param, Role::new));
+		roleCache.update(roleMapper.selectByPrimaryKey(param.getId()));
+		cacheEventBus.publish(Type.ROLE, param.getId());
 		return Result.success();
 	}
 
@@ -118,8 +130,11 @@ public class RoleService implements IRoleService {
 		roleMenuMapper.deleteEqual("role_id", roleId);
 		roleTagMapper.deleteEqual("role_id", roleId);
 		roleSettingMapper.deleteEqual("role_id", roleId);
-		//更新设置缓存
+		//更新设置缓存和角色缓存
 		settingCache.clear();
+		roleCache.removeRole(roleId);
+		cacheEventBus.publish(Type.SETTING, roleId);
+		cacheEventBus.publish(Type.ROLE, roleId);
 		return Result.success();
 	}
 
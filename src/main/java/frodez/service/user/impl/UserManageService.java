@@ -1,5 +1,7 @@
 package frodez.service.user.impl;
 
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
 import frodez.config.security.util.UserUtil;
 import frodez.constant.enums.user.UserStatus;
 import frodez.dao.mapper.user.RoleMapper;
@@ -31,15 +33,15 @@ import org.springframework.stereotype.Service;
 public class UserManageService implements IUserManageService {
 
 	@Autowired
-	@Qualifier("idTokenRedisCache")
+	@Qualifier("idTokenNearCache")
 	private IdTokenCache idTokenCache;
 
 	@Autowired
-	@Qualifier("userMapCache")
+	@Qualifier("userGuavaCache")
 	private UserCache userCache;
 
 	@Autowired
-	@Qualifier("roleMapCache")
+	@Qualifier("roleIndexCache")
 	private RoleCache roleCache;
 
 	@Autowired
@@ -51,6 +53,9 @@ public class UserManageService implements IUserManageService {
 	@Autowired
 	private IPermissionService permissionService;
 
+	@Autowired
+	private CacheEventBus cacheEventBus;
+
 	@Override
 	public Result getUsers(QueryPage query) {
 		return query.start(() -> userMapper.pageBaseInfo(UserUtil.pass("includeForbidden")));
@@ -151,39 +156,34 @@ public class UserManageService implements IUserManageService {
 
 	@Override
 	public Result getEndpointPermission(Long userId) {
-		User user = userMapper.selectByPrimaryKey(userId);
-		return generateUserEndpointDetail(user);
+		return generateUserEndpointDetail(userMapper.getEndpointDetailById(userId));
 	}
 
 	@Override
 	public Result getEndpointPermission(String userName) {
-		User user = userMapper.selectOneEqual("name", userName);
-		return generateUserEndpointDetail(user);
+		return generateUserEndpointDetail(userMapper.getEndpointDetailByName(userName));
 	}
 
 	/**
-	 * 获取用户后端端点权限的详细信息
+	 * 获取用户后端端点权限的详细信息<br>
+	 * 用户和角色信息由一条语句同时查出,接口信息从角色接口缓存中获取。<br>
 	 * @author Frodez
 	 * @date 2019-12-29
 	 */
-	private Result generateUserEndpointDetail(User user) {
-		if (user == null) {
+	private Result generateUserEndpointDetail(UserEndpointDetail detail) {
+		if (detail == null) {
 			return Result.fail("未查询到用户信息!");
 		}
-		if (UserUtil.reject("includeForbidden") && UserStatus.FORBIDDEN.getVal().equals(user.getStatus())) {
+		if (UserUtil.reject("includeForbidden") && UserStatus.FORBIDDEN.getVal().equals(detail.getUser().getStatus())) {
 			return Result.fail("用户已禁用!");
 		}
-		Role role = roleMapper.selectByPrimaryKey(user.getRoleId());
-		if (role == null) {
+		if (detail.getRole() == null) {
 			return Result.fail("未查询到用户角色信息!");
 		}
-		UserEndpointDetail detail = new UserEndpointDetail();
-		Result result = permissionService.getEndpoints(role.getId());
+		Result result = permissionService.getEndpoints(detail.getRole().getId());
 		if (result.unable()) {
 			return result;
 		}
-		detail.setUser(user);
-		detail.setRole(role);
 		detail.setEndpoints(result.list(Endpoint.class));
 		return Result.success(detail);
 	}
@@ -203,7 +203,8 @@ public class UserManageService implements IUserManageService {
 		record.setRoleId(roleId);
 		userMapper.updateIn("id", userIds, record);
 		roleCache.save(userIds, role);
-		idTokenCache.batchRemove(userIds, idTokenCache.getTokens(userIds));
+		cacheEventBus.publish(Type.USER, userIds);
+		idTokenCache.batchRemove(userIds);
 		return Result.success();
 	}
 
@@ -226,22 +227,19 @@ public class UserManageService implements IUserManageService {
 		kickAllOut(former);
 		userMapper.updateIn("id", userIds, record);
 		roleCache.save(userIds, role);
+		cacheEventBus.publish(Type.USER, userIds);
 		return Result.success();
 	}
 
 	@Override
 	public Result kickOut(Long userId) {
-		String token = idTokenCache.getToken(userId);
-		idTokenCache.remove(userId);
-		if (token != null) {
-			idTokenCache.remove(token);
-		}
+		idTokenCache.removePair(userId);
 		return Result.success();
 	}
 
 	@Override
 	public Result kickSomeOut(List<Long> userIds) {
-		idTokenCache.batchRemove(userIds, idTokenCache.getTokens(userIds));
+		idTokenCache.batchRemove(userIds);
 		return Result.success();
 	}
 
@@ -1,6 +1,8 @@
 package frodez.service.user.impl;
 
 import frodez.config.aop.exception.annotation.Error;
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
 import frodez.config.security.util.UserUtil;
 import frodez.constant.enums.user.UserStatus;
 import frodez.constant.errors.code.ErrorCode;
@@ -35,21 +37,24 @@ public class UserService implements IUserService {
 	private ILoginService loginService;
 
 	@Autowired
-	@Qualifier("idTokenRedisCache")
+	@Qualifier("idTokenNearCache")
 	private IdTokenCache idTokenCache;
 
 	@Autowired
-	@Qualifier("userMapCache")
+	@Qualifier("userGuavaCache")
 	private UserCache userCache;
 
 	@Autowired
-	@Qualifier("roleMapCache")
+	@Qualifier("roleIndexCache")
 	private RoleCache roleCache;
 
 	@Autowired
 	@Qualifier("globalDataMapCache")
 	private IGlobalDataCache globalDataCache;
 
+	@Autowired
+	private CacheEventBus cacheEventBus;
+
 	@Autowired
 	private UserMapper userMapper;
 
@@ -88,12 +93,15 @@ public class UserService implements IUserService {
 			loginService.logout().orThrowMessage();
 		}
 		userCache.remove(userId);
+		cacheEventBus.publish(Type.USER, userId);
 		return Result.success();
 	}
 
 	@Override
 	public Result updateUser(UpdateUser param) {
 		userMapper.updateByPrimaryKeySelective(BeanUtil.copy(param, User::new));
+		userCache.remove(param.getId());
+		cacheEventBus.publish(Type.USER, param.getId());
 		return Result.success();
 	}
 
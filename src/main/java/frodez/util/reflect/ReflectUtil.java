@@ -112,7 +112,7 @@ public class ReflectUtil {
 		return table.method(method, params);
 	}
 
-	private class Table {
+	private static class Table {
 
 		FastClass fastClass;
 
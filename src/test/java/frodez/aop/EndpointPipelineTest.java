@@ -0,0 +1,167 @@
+package frodez.aop;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import frodez.config.aop.exception.advisor.CatchAndReturnAdvisor;
+import frodez.config.aop.exception.annotation.Error;
+import frodez.config.aop.log.advisor.DurationLogAdvisor;
+import frodez.config.aop.log.annotation.DurationLog;
+import frodez.config.aop.metric.MetricProperties;
+import frodez.config.aop.metric.MetricRegistry;
+import frodez.config.aop.pipeline.advisor.EndpointPipelineAdvisor;
+import frodez.config.aop.request.advisor.LimitUserAdvisor;
+import frodez.config.aop.request.advisor.RepeatAdvisor;
+import frodez.config.aop.request.annotation.Limit;
+import frodez.config.aop.request.annotation.RepeatLock;
+import frodez.config.aop.request.checker.impl.AutoWheelChecker;
+import frodez.config.aop.request.checker.impl.ManualLocalChecker;
+import frodez.config.aop.request.limiter.impl.LocalLimiter;
+import frodez.config.aop.validation.advisor.ValidationAdvisor;
+import frodez.config.aop.validation.annotation.Check;
+import frodez.config.cache.CacheProperties;
+import frodez.config.code.checker.CodeChecker;
+import frodez.config.validator.ValidationUtil;
+import frodez.constant.errors.code.ErrorCode;
+import frodez.util.beans.result.Result;
+import frodez.util.json.JSONUtil;
+import frodez.util.reflect.ReflectUtil;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Map;
+import javax.validation.Validation;
+import javax.validation.constraints.NotNull;
+import org.springframework.aop.PointcutAdvisor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * 控制器切面性能对比<br>
+ * 对比原有的多个独立切面(DurationLog,CatchAndReturn,Limit,RepeatLock,Check)与合并后的EndpointPipelineAdvisor。<br>
+ * 原有切面在控制器方法上已经不再匹配,这里直接使用它们的advice,并按切点匹配时的方式填充配置。<br>
+ * 两者的返回结果应当一致。<br>
+ * @author Frodez
+ * @date 2020-01-12
+ */
+public class EndpointPipelineTest {
+
+	public static void main(String[] args) throws Throwable {
+		set(JSONUtil.class, null, "OBJECT_MAPPER", new ObjectMapper());
+		set(ValidationUtil.class, null, "engine", Validation.buildDefaultValidatorFactory().getValidator());
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/test/hello");
+		request.setRemoteAddr("127.0.0.1");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		CacheProperties properties = new CacheProperties();
+		LocalLimiter limiter = new LocalLimiter(properties);
+		ManualLocalChecker manualChecker = new ManualLocalChecker(properties);
+		CodeChecker codeChecker = CodeChecker.builder().build();
+		MetricProperties metricProperties = new MetricProperties();
+		metricProperties.setDumpInterval(0L);
+		MetricRegistry registry = new MetricRegistry(metricProperties);
+		Method method = TestEndpoint.class.getMethod("hello", Long.class);
+
+		DurationLogAdvisor durationLogAdvisor = new DurationLogAdvisor();
+		fill(durationLogAdvisor, "thresholdCache", ReflectUtil.getFullMethodName(method), 60000L * 1000 * 1000);
+		fill(durationLogAdvisor, "metricsCache", method, registry.register(method));
+		set(DurationLogAdvisor.class, durationLogAdvisor, "registry", registry);
+		CatchAndReturnAdvisor catchAndReturnAdvisor = new CatchAndReturnAdvisor();
+		set(CatchAndReturnAdvisor.class, catchAndReturnAdvisor, "registry", registry);
+		LimitUserAdvisor limitUserAdvisor = new LimitUserAdvisor();
+		set(LimitUserAdvisor.class, limitUserAdvisor, "limiter", limiter);
+		set(LimitUserAdvisor.class, limitUserAdvisor, "registry", registry);
+		fill(limitUserAdvisor, "limitCache", method, method.getAnnotation(Limit.class));
+		RepeatAdvisor repeatAdvisor = new RepeatAdvisor();
+		set(RepeatAdvisor.class, repeatAdvisor, "checker", manualChecker);
+		set(RepeatAdvisor.class, repeatAdvisor, "registry", registry);
+		ProxyFactory chainFactory = new ProxyFactory(new TestEndpoint());
+		chainFactory.setProxyTargetClass(true);
+		chainFactory.addAdvisor(all(durationLogAdvisor));
+		chainFactory.addAdvisor(all(catchAndReturnAdvisor));
+		chainFactory.addAdvisor(all(limitUserAdvisor));
+		chainFactory.addAdvisor(all(repeatAdvisor));
+		chainFactory.addAdvisor(all(new ValidationAdvisor()));
+		TestEndpoint chain = (TestEndpoint) chainFactory.getProxy();
+
+		EndpointPipelineAdvisor pipelineAdvisor = new EndpointPipelineAdvisor();
+		set(EndpointPipelineAdvisor.class, pipelineAdvisor, "limiter", limiter);
+		set(EndpointPipelineAdvisor.class, pipelineAdvisor, "manualChecker", manualChecker);
+		set(EndpointPipelineAdvisor.class, pipelineAdvisor, "autoChecker", new AutoWheelChecker(properties));
+		set(EndpointPipelineAdvisor.class, pipelineAdvisor, "codeChecker", codeChecker);
+		set(EndpointPipelineAdvisor.class, pipelineAdvisor, "registry", registry);
+		ProxyFactory pipelineFactory = new ProxyFactory(new TestEndpoint());
+		pipelineFactory.setProxyTargetClass(true);
+		pipelineFactory.addAdvisor(pipelineAdvisor);
+		TestEndpoint pipeline = (TestEndpoint) pipelineFactory.getProxy();
+
+		verify(chain, pipeline);
+		int rounds = 1000000;
+		for (int i = 0; i < 5; i++) {
+			long chainTime = run(chain, rounds);
+			long pipelineTime = run(pipeline, rounds);
+			System.out.println(String.format("第%d轮 独立切面:%dns/次 合并切面:%dns/次", i + 1, chainTime / rounds, pipelineTime / rounds));
+		}
+		System.out.println(JSONUtil.string(registry.report()));
+	}
+
+	private static void verify(TestEndpoint chain, TestEndpoint pipeline) {
+		check(chain.hello(1L).getCode() == pipeline.hello(1L).getCode(), "正常请求结果不一致");
+		check(chain.hello(null).getCode() == pipeline.hello(null).getCode(), "参数错误结果不一致");
+		check(pipeline.hello(null).getCode() == Result.errorRequest("").getCode(), "参数错误未被拦截");
+		check(chain.hello(-1L).getCode() == pipeline.hello(-1L).getCode(), "异常结果不一致");
+		check(pipeline.hello(-1L).getCode() == Result.errorService().getCode(), "异常未被捕获");
+	}
+
+	private static long run(TestEndpoint endpoint, int rounds) {
+		long code = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			code += endpoint.hello(1L).getCode();
+		}
+		long time = System.nanoTime() - start;
+		check(code == (long) Result.success().getCode() * rounds, "请求被拒绝");
+		return time;
+	}
+
+	private static PointcutAdvisor all(PointcutAdvisor advisor) {
+		return new DefaultPointcutAdvisor(advisor.getAdvice());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void fill(Object advisor, String name, Object key, Object value) throws Exception {
+		Field field = advisor.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		((Map<Object, Object>) field.get(advisor)).put(key, value);
+	}
+
+	private static void set(Class<?> klass, Object instance, String name, Object value) throws Exception {
+		Field field = klass.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(instance, value);
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	@RestController
+	@Error(ErrorCode.USER_SERVICE_ERROR)
+	public static class TestEndpoint {
+
+		@Check
+		@Limit(1000000000)
+		@RepeatLock
+		@DurationLog(threshold = 60000)
+		public Result hello(@NotNull Long id) {
+			if (id < 0) {
+				throw new IllegalArgumentException();
+			}
+			return Result.success();
+		}
+
+	}
+
+}
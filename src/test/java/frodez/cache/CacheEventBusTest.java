@@ -0,0 +1,153 @@
+package frodez.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import frodez.config.cache.CacheProperties;
+import frodez.config.cache.bus.CacheBusConfig;
+import frodez.config.cache.bus.CacheEvent;
+import frodez.config.cache.bus.CacheEvent.Type;
+import frodez.config.cache.bus.CacheEventBus;
+import frodez.dao.model.result.config.CacheBusStatsInfo;
+import frodez.util.json.JSONUtil;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.jms.Connection;
+import javax.jms.TextMessage;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.springframework.jms.config.SimpleJmsListenerEndpoint;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+/**
+ * CacheEventBus测试<br>
+ * 使用内嵌的ActiveMQ(vm://)运行两个节点,监听容器由CacheBusConfig中的工厂创建。<br>
+ * 检查事件只发送到其他节点,只刷新对应类型的订阅者,事务提交后才发出,重复的事件被忽略,版本号不连续时全量刷新,以及无法解析的消息不会中断监听。<br>
+ * @author Frodez
+ * @date 2020-01-13
+ */
+public class CacheEventBusTest {
+
+	private static final long TIMEOUT = 5000;
+
+	public static void main(String[] args) throws Throwable {
+		Field mapper = JSONUtil.class.getDeclaredField("OBJECT_MAPPER");
+		mapper.setAccessible(true);
+		mapper.set(null, new ObjectMapper());
+		ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory("vm://bus?broker.persistent=false&broker.useJmx=false");
+		//保持一个连接,避免内嵌broker在没有连接时关闭
+		Connection keeper = connectionFactory.createConnection();
+		keeper.start();
+		CacheProperties properties = new CacheProperties();
+		CacheBusConfig config = new CacheBusConfig();
+		CacheEventBus sender = new CacheEventBus(config.cacheEventTemplate(connectionFactory), properties);
+		CacheEventBus receiver = new CacheEventBus(config.cacheEventTemplate(connectionFactory), properties);
+		List<DefaultMessageListenerContainer> containers = new ArrayList<>();
+		containers.add(listen(config, connectionFactory, properties, sender));
+		containers.add(listen(config, connectionFactory, properties, receiver));
+		BlockingQueue<Object> senderEvents = new LinkedBlockingQueue<>();
+		BlockingQueue<Object> roleEvents = new LinkedBlockingQueue<>();
+		BlockingQueue<Object> userEvents = new LinkedBlockingQueue<>();
+		sender.subscribe(Type.ROLE, (ids) -> senderEvents.add(ids == null ? "all" : ids));
+		receiver.subscribe(Type.ROLE, (ids) -> roleEvents.add(ids == null ? "all" : ids));
+		receiver.subscribe(Type.USER, (ids) -> userEvents.add(ids == null ? "all" : ids));
+
+		//定向刷新:只通知其他节点的对应类型订阅者
+		sender.publish(Type.ROLE, 5L);
+		check(List.of(5L).equals(roleEvents.poll(TIMEOUT, TimeUnit.MILLISECONDS)), "其他节点未收到事件");
+		sender.publish(Type.USER, List.of(1L, 2L));
+		check(List.of(1L, 2L).equals(userEvents.poll(TIMEOUT, TimeUnit.MILLISECONDS)), "其他节点未收到事件");
+		check(roleEvents.isEmpty(), "刷新了其他类型的订阅者");
+		check(senderEvents.isEmpty(), "发出节点收到了自身的事件");
+
+		//事务中发布的事件在提交后才发出
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			sender.publish(Type.ROLE, 6L);
+			check(roleEvents.poll(300, TimeUnit.MILLISECONDS) == null, "事务提交前发出了事件");
+			TransactionSynchronizationUtils.triggerAfterCommit();
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		check(List.of(6L).equals(roleEvents.poll(TIMEOUT, TimeUnit.MILLISECONDS)), "事务提交后未发出事件");
+
+		//重复或过期的事件被忽略
+		receiver.receive(event(sender.node(), 3, Type.ROLE, 7L));
+		check(roleEvents.isEmpty(), "处理了过期的事件");
+
+		//无法解析的消息只记录日志
+		receiver.receive("not a cache event");
+		receiver.receive("{}");
+
+		//版本号不连续(版本4的事件丢失)时对所有订阅者全量刷新
+		Field version = CacheEventBus.class.getDeclaredField("version");
+		version.setAccessible(true);
+		((AtomicLong) version.get(sender)).incrementAndGet();
+		sender.publish(Type.ROLE, 8L);
+		check("all".equals(roleEvents.poll(TIMEOUT, TimeUnit.MILLISECONDS)) && "all".equals(userEvents.poll(TIMEOUT,
+			TimeUnit.MILLISECONDS)), "事件丢失时未全量刷新");
+		sender.publish(Type.ROLE, 9L);
+		check(List.of(9L).equals(roleEvents.poll(TIMEOUT, TimeUnit.MILLISECONDS)), "全量刷新后未恢复定向刷新");
+		check(roleEvents.isEmpty() && userEvents.isEmpty(), "事件丢失时仍然执行了定向刷新");
+
+		List<CacheBusStatsInfo> report = receiver.report();
+		check(report.size() == 1 && report.get(0).getNode().equals(sender.node()), "统计信息中的节点错误:" + report);
+		CacheBusStatsInfo info = report.get(0);
+		check(info.getReceived() == 5 && info.getGaps() == 1 && info.getLastVersion() == 6, "统计信息错误:" + info);
+		check(sender.report().isEmpty(), "发出节点统计了自身的事件");
+		System.out.println(JSONUtil.string(report));
+
+		for (DefaultMessageListenerContainer container : containers) {
+			container.shutdown();
+		}
+		keeper.close();
+	}
+
+	/**
+	 * 使用CacheBusConfig中的工厂创建监听容器,并等待订阅完成
+	 */
+	private static DefaultMessageListenerContainer listen(CacheBusConfig config, ActiveMQConnectionFactory connectionFactory,
+		CacheProperties properties, CacheEventBus bus) throws Throwable {
+		SimpleJmsListenerEndpoint endpoint = new SimpleJmsListenerEndpoint();
+		endpoint.setId(bus.node());
+		endpoint.setDestination(CacheEventBus.TOPIC);
+		endpoint.setMessageListener((message) -> {
+			try {
+				bus.receive(((TextMessage) message).getText());
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		DefaultMessageListenerContainer container = config.cacheEventContainerFactory(connectionFactory, properties)
+			.createListenerContainer(endpoint);
+		container.afterPropertiesSet();
+		container.start();
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (!container.isRegisteredWithDestination()) {
+			check(System.currentTimeMillis() < deadline, "监听容器未能订阅topic");
+			Thread.sleep(10);
+		}
+		return container;
+	}
+
+	private static String event(String node, long version, Type type, Long id) {
+		CacheEvent event = new CacheEvent();
+		event.setNode(node);
+		event.setVersion(version);
+		event.setType(type);
+		event.setIds(List.of(id));
+		event.setTime(System.currentTimeMillis());
+		return JSONUtil.string(event);
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+}
@@ -0,0 +1,371 @@
+package frodez.cache;
+
+import frodez.config.cache.CacheProperties;
+import frodez.config.security.settings.SecurityProperties;
+import frodez.constant.keys.cache.CacheKey;
+import frodez.service.cache.impl.user.IdTokenRedisCache;
+import frodez.service.cache.impl.user.TokenGuavaCache;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * IdTokenRedisCache网络往返次数对比<br>
+ * 使用本地的redis协议替身(RESP)运行,替身每处理完一批请求记为一次往返,并在回复前等待模拟的网络延迟。<br>
+ * 对比对象为原有的实现方式:登录时getToken,remove,save分别执行,注销时先查询再分别删除,踢出用户时先批量查询再分两次删除,失效消息单独发布。<br>
+ * IdTokenRedisCache中的lua脚本由替身使用luaj直接执行,每个阶段结束后检查hash和zset中的实际内容以及发布的失效消息。<br>
+ * 最后检查过期记录能否被清理并发布失效消息,清理是否只由一个节点执行,以及旧版本未分片的记录能否迁移到分片中。<br>
+ * @author Frodez
+ * @date 2020-01-12
+ */
+public class IdTokenCacheTest {
+
+	private static final String ID_TOKEN = CacheKey.IdTokenCache.ID_TOKEN;
+
+	private static final String TOKEN_ID = CacheKey.IdTokenCache.TOKEN_ID;
+
+	private static final String ID_EXPIRE = CacheKey.IdTokenCache.ID_EXPIRE;
+
+	private static final String TOKEN_EXPIRE = CacheKey.IdTokenCache.TOKEN_EXPIRE;
+
+	private static final int SHARDS = 16;
+
+	private static final String CHANNEL = CacheKey.IdTokenCache.CHANNEL;
+
+	private static final List<String> NOTICE = List.of(CHANNEL, "node|I|", "node|T|");
+
+	public static void main(String[] args) throws Throwable {
+		try (RedisStandIn standIn = new RedisStandIn(200_000)) {
+			LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", standIn.port()));
+			factory.afterPropertiesSet();
+			StringRedisTemplate template = new StringRedisTemplate(factory);
+			CacheProperties properties = new CacheProperties();
+			properties.getRedis().setShards(SHARDS);
+			//避免后台清理在测试期间执行
+			properties.getRedis().setCleanInterval(3600000L);
+			SecurityProperties securityProperties = new SecurityProperties();
+			securityProperties.getJwt().setExpiration(7200L);
+			IdTokenRedisCache cache = new IdTokenRedisCache(properties, securityProperties, template, new TokenGuavaCache(properties));
+			for (int i = 0; i < 3; i++) {
+				login(standIn, template, cache, 2000);
+				logout(standIn, template, cache, 2000);
+				kickOut(standIn, template, cache, 200, 100);
+			}
+			clean(standIn, template, properties, 5000);
+			migrate(standIn, template, properties, 250);
+			factory.destroy();
+		}
+	}
+
+	/**
+	 * 登录:替换用户原有的token
+	 */
+	public static void login(RedisStandIn standIn, StringRedisTemplate template, IdTokenRedisCache cache, int users) throws Throwable {
+		HashOperations<String, String, String> hash = template.opsForHash();
+		prepare(standIn, cache, users);
+		Sample legacy = new Sample(standIn);
+		for (long id = 0; id < users; id++) {
+			String token = "legacy" + id;
+			String old = hash.get(ID_TOKEN, String.valueOf(id));
+			if (old != null) {
+				hash.delete(TOKEN_ID, old);
+			}
+			hash.put(ID_TOKEN, String.valueOf(id), token);
+			hash.put(TOKEN_ID, token, String.valueOf(id));
+			template.convertAndSend(CHANNEL, "node|I|" + id);
+			if (old != null) {
+				template.convertAndSend(CHANNEL, "node|T|" + old);
+			}
+		}
+		legacy.end("login legacy", users);
+		check(standIn.hash(ID_TOKEN), standIn.hash(TOKEN_ID));
+		prepare(standIn, cache, users);
+		Method replace = method("replace", Long.class, String.class, List.class);
+		Sample script = new Sample(standIn);
+		for (long id = 0; id < users; id++) {
+			Object old = replace.invoke(cache, id, "script" + id, NOTICE);
+			check(("token" + id).equals(old), "替换时返回的原token错误:" + old);
+		}
+		script.end("login script", users);
+		Map<String, String> idToken = verify(standIn, cache);
+		for (int id = 0; id < users; id++) {
+			check(("script" + id).equals(idToken.get(String.valueOf(id))), "登录后的token错误:" + id);
+		}
+		check(idToken.size() == users, "登录后的记录数错误:" + idToken.size());
+		List<String> messages = standIn.published(CHANNEL);
+		check(messages.size() == users * 2 && messages.contains("node|I|0") && messages.contains("node|T|token0"), "登录时的失效消息错误");
+	}
+
+	/**
+	 * 注销:根据token删除id-token对
+	 */
+	public static void logout(RedisStandIn standIn, StringRedisTemplate template, IdTokenRedisCache cache, int users) throws Throwable {
+		HashOperations<String, String, String> hash = template.opsForHash();
+		prepare(standIn, cache, users);
+		Sample legacy = new Sample(standIn);
+		for (long id = 0; id < users; id++) {
+			String token = "token" + id;
+			if (!hash.hasKey(TOKEN_ID, token)) {
+				continue;
+			}
+			String userId = hash.get(TOKEN_ID, token);
+			hash.delete(ID_TOKEN, userId);
+			hash.delete(TOKEN_ID, token);
+			template.convertAndSend(CHANNEL, "node|I|" + userId);
+			template.convertAndSend(CHANNEL, "node|T|" + token);
+		}
+		legacy.end("logout legacy", users);
+		check(standIn.hash(ID_TOKEN), standIn.hash(TOKEN_ID));
+		prepare(standIn, cache, users);
+		Method removePair = method("removePair", String.class, List.class);
+		Sample script = new Sample(standIn);
+		for (long id = 0; id < users; id++) {
+			Object userId = removePair.invoke(cache, "token" + id, NOTICE);
+			check(Long.valueOf(id).equals(userId), "注销时返回的id错误:" + userId);
+		}
+		script.end("logout script", users);
+		verify(standIn, cache);
+		check(size(standIn) == 0, "注销后仍有记录:" + size(standIn));
+		check(standIn.published(CHANNEL).size() == users * 2, "注销时的失效消息数量错误");
+		//已注销的token再次注销时不做任何修改
+		check(removePair.invoke(cache, "token0", NOTICE) == null, "重复注销返回了id");
+	}
+
+	/**
+	 * 踢出:批量删除一批用户的id-token对
+	 */
+	public static void kickOut(RedisStandIn standIn, StringRedisTemplate template, IdTokenRedisCache cache, int rounds, int batch)
+		throws Throwable {
+		HashOperations<String, String, String> hash = template.opsForHash();
+		prepare(standIn, cache, rounds * batch);
+		Sample legacy = new Sample(standIn);
+		for (int round = 0; round < rounds; round++) {
+			List<String> ids = ids(round * batch, batch);
+			List<String> tokens = hash.multiGet(ID_TOKEN, ids).stream().filter((item) -> item != null).collect(Collectors.toList());
+			hash.delete(ID_TOKEN, ids.toArray());
+			hash.delete(TOKEN_ID, tokens.toArray());
+			template.convertAndSend(CHANNEL, "node|I|" + String.join(",", ids));
+			template.convertAndSend(CHANNEL, "node|T|" + String.join(",", tokens));
+		}
+		legacy.end("kick " + batch + " legacy", rounds);
+		check(standIn.hash(ID_TOKEN), standIn.hash(TOKEN_ID));
+		//最后一轮只有一半的用户存在,检查返回值只包含被删除的token
+		prepare(standIn, cache, rounds * batch - batch / 2);
+		Method batchRemove = method("batchRemove", List.class, List.class);
+		Sample script = new Sample(standIn);
+		for (int round = 0; round < rounds; round++) {
+			List<Long> ids = ids(round * batch, batch).stream().map(Long::valueOf).collect(Collectors.toList());
+			List<?> tokens = (List<?>) batchRemove.invoke(cache, ids, NOTICE);
+			int expected = round == rounds - 1 ? batch - batch / 2 : batch;
+			check(tokens.size() == expected && tokens.get(0).equals("token" + round * batch), "踢出时返回的token错误:" + tokens);
+		}
+		script.end("kick " + batch + " script", rounds);
+		verify(standIn, cache);
+		check(size(standIn) == 0, "踢出后仍有记录:" + size(standIn));
+		List<String> messages = standIn.published(CHANNEL);
+		check(messages.size() == rounds * 2 && messages.contains("node|I|" + String.join(",", ids(0, batch))), "踢出时的失效消息错误");
+	}
+
+	/**
+	 * 清理:过期记录应被后台清理全部删除并发布失效消息,未过期的记录保留。清理锁到期前其他节点不执行清理。
+	 */
+	public static void clean(RedisStandIn standIn, StringRedisTemplate template, CacheProperties properties, int users) throws Throwable {
+		SecurityProperties securityProperties = new SecurityProperties();
+		properties.getRedis().setTimeout(0);
+		properties.getRedis().setCleanBatch(100);
+		IdTokenRedisCache cache = new IdTokenRedisCache(properties, securityProperties, template, new TokenGuavaCache(properties));
+		standIn.clear();
+		for (long id = 0; id < users; id++) {
+			cache.save(id, "token" + id);
+		}
+		put(standIn, cache, "alive", "aliveToken", Long.MAX_VALUE);
+		Thread.sleep(1);
+		Method clean = method("clean");
+		Sample sample = new Sample(standIn);
+		clean.invoke(cache);
+		sample.end("clean", users);
+		Map<String, String> idToken = verify(standIn, cache);
+		check(size(standIn) == 4 && "aliveToken".equals(idToken.get("alive")), "清理后剩余的记录错误:" + idToken);
+		Set<String> ids = new HashSet<>();
+		Set<String> tokens = new HashSet<>();
+		for (String message : standIn.published(CHANNEL)) {
+			String[] parts = message.split("\\|", 3);
+			(parts[1].equals("I") ? ids : tokens).addAll(Arrays.asList(parts[2].split(",")));
+		}
+		for (int id = 0; id < users; id++) {
+			check(ids.remove(String.valueOf(id)) && tokens.remove("token" + id), "清理时未发布失效消息:" + id);
+		}
+		check(ids.isEmpty() && tokens.isEmpty(), "清理时发布了多余的失效消息:" + ids + tokens);
+		//其他节点在清理锁到期前不执行清理
+		IdTokenRedisCache other = new IdTokenRedisCache(properties, securityProperties, template, new TokenGuavaCache(properties));
+		other.save(0L, "token0");
+		Thread.sleep(1);
+		clean.invoke(other);
+		check(size(standIn) == 8, "其他节点在清理锁到期前执行了清理");
+		template.delete(CacheKey.IdTokenCache.CLEAN_LOCK);
+		clean.invoke(other);
+		check(size(standIn) == 4, "清理锁释放后其他节点未执行清理");
+	}
+
+	/**
+	 * 迁移:旧版本未分片的记录迁移到分片中,已重新登录的用户保留新的token,迁移完毕后旧的hash被删除
+	 */
+	public static void migrate(RedisStandIn standIn, StringRedisTemplate template, CacheProperties properties, int users)
+		throws Throwable {
+		SecurityProperties securityProperties = new SecurityProperties();
+		securityProperties.getJwt().setExpiration(7200L);
+		IdTokenRedisCache cache = new IdTokenRedisCache(properties, securityProperties, template, new TokenGuavaCache(properties));
+		standIn.clear();
+		for (int id = 0; id < users; id++) {
+			standIn.hash(ID_TOKEN).put(String.valueOf(id), "legacy" + id);
+			standIn.hash(TOKEN_ID).put("legacy" + id, String.valueOf(id));
+		}
+		standIn.hash(TOKEN_ID).put("orphan", "-1");
+		put(standIn, cache, "0", "token0", Long.MAX_VALUE);
+		Sample sample = new Sample(standIn);
+		method("migrate").invoke(cache);
+		sample.end("migrate", users);
+		check(!standIn.hashKeys().contains(ID_TOKEN) && !standIn.hashKeys().contains(TOKEN_ID), "迁移后未删除旧记录");
+		Map<String, String> idToken = verify(standIn, cache);
+		check(idToken.size() == users && "token0".equals(idToken.get("0")), "迁移覆盖了已重新登录的用户:" + idToken.get("0"));
+		for (int id = 1; id < users; id++) {
+			check(("legacy" + id).equals(cache.getToken((long) id)) && cache.getId("legacy" + id) == id, "迁移后的记录错误:" + id);
+		}
+		check(standIn.zset(ID_EXPIRE + shard(cache, "1")).get("1") > System.currentTimeMillis(), "迁移后的记录没有存活时间");
+		//没有旧记录时不做任何修改
+		long commands = standIn.commands.get();
+		method("migrate").invoke(cache);
+		check(standIn.commands.get() == commands + 1, "没有旧记录时仍然执行了迁移");
+	}
+
+	/**
+	 * 同时写入原有布局和分片布局
+	 */
+	private static void prepare(RedisStandIn standIn, IdTokenRedisCache cache, int users) throws Throwable {
+		standIn.clear();
+		for (int id = 0; id < users; id++) {
+			String token = "token" + id;
+			standIn.hash(ID_TOKEN).put(String.valueOf(id), token);
+			standIn.hash(TOKEN_ID).put(token, String.valueOf(id));
+			put(standIn, cache, String.valueOf(id), token, Long.MAX_VALUE);
+		}
+	}
+
+	private static void put(RedisStandIn standIn, IdTokenRedisCache cache, String id, String token, double expireAt) throws Throwable {
+		standIn.hash(ID_TOKEN + shard(cache, id)).put(id, token);
+		standIn.zset(ID_EXPIRE + shard(cache, id)).put(id, expireAt);
+		standIn.hash(TOKEN_ID + shard(cache, token)).put(token, id);
+		standIn.zset(TOKEN_EXPIRE + shard(cache, token)).put(token, expireAt);
+	}
+
+	/**
+	 * 检查分片布局中id-token和token-id是否一一对应,且每条记录都在IdTokenRedisCache计算出的分片中并有过期时间,返回所有id-token对
+	 */
+	private static Map<String, String> verify(RedisStandIn standIn, IdTokenRedisCache cache) throws Throwable {
+		Map<String, String> idToken = new HashMap<>();
+		Map<String, String> tokenId = new HashMap<>();
+		for (int i = 0; i < SHARDS; i++) {
+			String suffix = ":" + i;
+			for (Entry<String, String> entry : standIn.hash(ID_TOKEN + suffix).entrySet()) {
+				check(shard(cache, entry.getKey()).equals(suffix), "id分片错误:" + entry.getKey());
+				check(standIn.zset(ID_EXPIRE + suffix).containsKey(entry.getKey()), "id缺少过期时间:" + entry.getKey());
+				idToken.put(entry.getKey(), entry.getValue());
+			}
+			for (Entry<String, String> entry : standIn.hash(TOKEN_ID + suffix).entrySet()) {
+				check(shard(cache, entry.getKey()).equals(suffix), "token分片错误:" + entry.getKey());
+				check(standIn.zset(TOKEN_EXPIRE + suffix).containsKey(entry.getKey()), "token缺少过期时间:" + entry.getKey());
+				tokenId.put(entry.getKey(), entry.getValue());
+			}
+			check(standIn.zset(ID_EXPIRE + suffix).size() == standIn.hash(ID_TOKEN + suffix).size(), "存在多余的id过期时间");
+			check(standIn.zset(TOKEN_EXPIRE + suffix).size() == standIn.hash(TOKEN_ID + suffix).size(), "存在多余的token过期时间");
+		}
+		check(idToken, tokenId);
+		return idToken;
+	}
+
+	/**
+	 * 检查id-token和token-id是否一一对应
+	 */
+	private static void check(Map<String, String> idToken, Map<String, String> tokenId) {
+		long mismatches = idToken.entrySet().stream().filter((entry) -> !entry.getKey().equals(tokenId.get(entry.getValue()))).count();
+		check(mismatches == 0 && idToken.size() == tokenId.size(), "id-token与token-id不一致,mismatches:" + mismatches);
+	}
+
+	/**
+	 * 分片布局中的记录总数,包括过期时间
+	 */
+	private static long size(RedisStandIn standIn) {
+		long size = 0;
+		for (int i = 0; i < SHARDS; i++) {
+			size += standIn.hash(ID_TOKEN + ":" + i).size() + standIn.hash(TOKEN_ID + ":" + i).size();
+			size += standIn.zset(ID_EXPIRE + ":" + i).size() + standIn.zset(TOKEN_EXPIRE + ":" + i).size();
+		}
+		return size;
+	}
+
+	private static String shard(IdTokenRedisCache cache, String value) throws Throwable {
+		return ":" + method("shard", String.class).invoke(cache, value);
+	}
+
+	private static List<String> ids(int from, int size) {
+		List<String> ids = new ArrayList<>(size);
+		for (int i = from; i < from + size; i++) {
+			ids.add(String.valueOf(i));
+		}
+		return ids;
+	}
+
+	private static Method method(String name, Class<?>... types) throws Throwable {
+		Method method = IdTokenRedisCache.class.getDeclaredMethod(name, types);
+		method.setAccessible(true);
+		return method;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	private static class Sample {
+
+		private final RedisStandIn standIn;
+
+		private final long roundTrips;
+
+		private final long commands;
+
+		private final long messages;
+
+		private final long start = System.nanoTime();
+
+		Sample(RedisStandIn standIn) {
+			this.standIn = standIn;
+			roundTrips = standIn.roundTrips.get();
+			commands = standIn.commands.get();
+			messages = standIn.messages.get();
+		}
+
+		void end(String name, int operations) {
+			double cost = (System.nanoTime() - start) / 1000.0 / operations;
+			double roundTripsPerOp = (standIn.roundTrips.get() - roundTrips) / (double) operations;
+			double commandsPerOp = (standIn.commands.get() - commands) / (double) operations;
+			double messagesPerOp = (standIn.messages.get() - messages) / (double) operations;
+			System.out.println(String.format("%-18s round trips/op:%6.2f commands/op:%6.2f messages/op:%5.2f cost:%9.1fus/op", name,
+				roundTripsPerOp, commandsPerOp, messagesPerOp, cost));
+		}
+
+	}
+
+}
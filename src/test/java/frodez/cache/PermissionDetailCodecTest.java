@@ -0,0 +1,199 @@
+package frodez.cache;
+
+import frodez.dao.model.result.permission.MenuPermissionDetail;
+import frodez.dao.model.result.permission.PermissionDetail;
+import frodez.dao.model.result.permission.TagPermissionDetail;
+import frodez.dao.model.table.permission.Endpoint;
+import frodez.dao.model.table.permission.Menu;
+import frodez.dao.model.table.permission.Tag;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * PermissionDetailCodec编解码测试<br>
+ * 通过反射为Menu,Tag,Endpoint的每个字段赋不同的非null值,解码后逐个字段比较。<br>
+ * 模型中新增字段而编解码器未同步修改时,该字段解码后为null,测试失败;新增的字段类型未被测试支持时同样失败。<br>
+ * 同时覆盖null字段,null对象,null和空列表,接口列表中的null元素,以及未压缩和压缩的内容。<br>
+ * @author Frodez
+ * @date 2020-01-13
+ */
+public class PermissionDetailCodecTest {
+
+	private static final String CODEC = "frodez.service.cache.impl.permission.PermissionDetailCodec";
+
+	private static Method encode;
+
+	private static Method decode;
+
+	public static void main(String[] args) throws Throwable {
+		Class<?> codec = Class.forName(CODEC);
+		encode = codec.getDeclaredMethod("encode", PermissionDetail.class);
+		encode.setAccessible(true);
+		decode = codec.getDeclaredMethod("decode", byte[].class);
+		decode.setAccessible(true);
+		//所有字段都有值
+		PermissionDetail full = detail(1, 1, 1);
+		roundTrip(full, false);
+		//所有字段都为null
+		PermissionDetail empty = new PermissionDetail();
+		empty.setMenuPermissions(List.of(menuPermission(empty(Menu.class), List.of(empty(Endpoint.class)))));
+		empty.setTagPermissions(List.of(tagPermission(empty(Tag.class), List.of(empty(Endpoint.class)))));
+		roundTrip(empty, false);
+		//null对象,null列表,空列表和接口列表中的null元素
+		PermissionDetail nulls = new PermissionDetail();
+		roundTrip(nulls, false);
+		nulls.setMenuPermissions(new ArrayList<>());
+		nulls.setTagPermissions(new ArrayList<>());
+		roundTrip(nulls, false);
+		nulls.getMenuPermissions().add(menuPermission(null, null));
+		nulls.getMenuPermissions().add(menuPermission(fill(new Menu(), 1), new ArrayList<>()));
+		nulls.getTagPermissions().add(tagPermission(null, Arrays.asList(fill(new Endpoint(), 2), null)));
+		roundTrip(nulls, false);
+		//内容较多时压缩
+		roundTrip(detail(20, 20, 30), true);
+		//版本不一致时返回null
+		byte[] bytes = (byte[]) encode.invoke(null, full);
+		bytes[0]++;
+		check(decode.invoke(null, bytes) == null, "版本不一致时未返回null");
+		System.out.println("PermissionDetailCodec round trip passed");
+	}
+
+	/**
+	 * 编码后解码,逐个字段比较,并检查是否压缩
+	 */
+	private static void roundTrip(PermissionDetail detail, boolean deflated) throws Throwable {
+		byte[] bytes = (byte[]) encode.invoke(null, detail);
+		check((bytes[1] != 0) == deflated, deflated ? "内容较多时未压缩" : "内容较少时被压缩");
+		PermissionDetail decoded = (PermissionDetail) decode.invoke(null, bytes);
+		compare(detail, decoded, "detail");
+		check(Objects.equals(detail, decoded), "equals比较不一致");
+	}
+
+	private static PermissionDetail detail(int menus, int tags, int endpoints) throws Throwable {
+		PermissionDetail detail = new PermissionDetail();
+		List<MenuPermissionDetail> menuPermissions = new ArrayList<>();
+		int seed = 0;
+		for (int i = 0; i < menus; i++) {
+			List<Endpoint> list = new ArrayList<>();
+			for (int j = 0; j < endpoints; j++) {
+				list.add(fill(new Endpoint(), ++seed));
+			}
+			menuPermissions.add(menuPermission(fill(new Menu(), ++seed), list));
+		}
+		List<TagPermissionDetail> tagPermissions = new ArrayList<>();
+		for (int i = 0; i < tags; i++) {
+			List<Endpoint> list = new ArrayList<>();
+			for (int j = 0; j < endpoints; j++) {
+				list.add(fill(new Endpoint(), ++seed));
+			}
+			tagPermissions.add(tagPermission(fill(new Tag(), ++seed), list));
+		}
+		detail.setMenuPermissions(menuPermissions);
+		detail.setTagPermissions(tagPermissions);
+		return detail;
+	}
+
+	private static MenuPermissionDetail menuPermission(Menu menu, List<Endpoint> endpoints) {
+		MenuPermissionDetail item = new MenuPermissionDetail();
+		item.setMenu(menu);
+		item.setEndpoints(endpoints);
+		return item;
+	}
+
+	private static TagPermissionDetail tagPermission(Tag tag, List<Endpoint> endpoints) {
+		TagPermissionDetail item = new TagPermissionDetail();
+		item.setTag(tag);
+		item.setEndpoints(endpoints);
+		return item;
+	}
+
+	/**
+	 * 为每个字段赋不同的非null值,包括负数,超出int范围的数和多字节字符
+	 */
+	private static <T> T fill(T object, int seed) throws Throwable {
+		int index = 0;
+		for (Field field : fields(object.getClass())) {
+			++index;
+			Class<?> type = field.getType();
+			Object value;
+			if (type == Long.class) {
+				value = (seed % 2 == 0 ? 1L : -1L) * (seed * 100000000000L + index);
+			} else if (type == Date.class) {
+				value = new Date(1578000000000L + seed * 1000L + index);
+			} else if (type == String.class) {
+				value = "权限" + field.getName() + seed + ":" + index;
+			} else if (type == Byte.class) {
+				value = (byte) (seed % 2 == 0 ? seed + index : -seed - index);
+			} else if (type == Short.class) {
+				value = (short) (seed * 100 + index);
+			} else {
+				throw new IllegalStateException("未支持的字段类型,请同步修改PermissionDetailCodec和本测试:" + field);
+			}
+			field.set(object, value);
+		}
+		return object;
+	}
+
+	/**
+	 * 所有字段均为null的对象,包括有默认值的字段
+	 */
+	private static <T> T empty(Class<T> type) throws Throwable {
+		T object = type.getDeclaredConstructor().newInstance();
+		for (Field field : fields(type)) {
+			field.set(object, null);
+		}
+		return object;
+	}
+
+	/**
+	 * 递归比较所有字段
+	 */
+	private static void compare(Object expected, Object actual, String path) throws Throwable {
+		if (expected == null || actual == null) {
+			check(expected == actual, path + "不一致:" + expected + " | " + actual);
+			return;
+		}
+		if (expected instanceof List) {
+			check(actual instanceof List, path + "类型不一致");
+			List<?> expectedList = (List<?>) expected;
+			List<?> actualList = (List<?>) actual;
+			check(expectedList.size() == actualList.size(), path + "长度不一致");
+			for (int i = 0; i < expectedList.size(); i++) {
+				compare(expectedList.get(i), actualList.get(i), path + "[" + i + "]");
+			}
+			return;
+		}
+		check(expected.getClass() == actual.getClass(), path + "类型不一致");
+		if (expected.getClass().getName().startsWith("frodez.dao.model")) {
+			for (Field field : fields(expected.getClass())) {
+				compare(field.get(expected), field.get(actual), path + "." + field.getName());
+			}
+			return;
+		}
+		check(expected.equals(actual), path + "不一致:" + expected + " | " + actual);
+	}
+
+	private static List<Field> fields(Class<?> type) {
+		List<Field> fields = new ArrayList<>();
+		for (Field field : type.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers())) {
+				field.setAccessible(true);
+				fields.add(field);
+			}
+		}
+		return fields;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+package frodez.cache;
+
+import frodez.config.cache.CacheProperties;
+import frodez.dao.model.result.permission.MenuPermissionDetail;
+import frodez.dao.model.result.permission.PermissionDetail;
+import frodez.dao.model.table.permission.Menu;
+import frodez.service.cache.impl.permission.PermissionNearCache;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * PermissionNearCache测试<br>
+ * 使用本地的redis协议替身(RESP)运行。<br>
+ * 检查并发未命中只加载一次,删除前开始的加载不会把旧数据写回redis和本地缓存,删除后的读取不等待这些加载,
+ * 加载抛出Error时等待中的线程同样收到该Error,以及等待超时后自行加载。<br>
+ * @author Frodez
+ * @date 2020-01-13
+ */
+public class PermissionNearCacheTest {
+
+	private static final long TIMEOUT = 5000;
+
+	public static void main(String[] args) throws Throwable {
+		try (RedisStandIn standIn = new RedisStandIn(0)) {
+			LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", standIn.port()));
+			factory.afterPropertiesSet();
+			StringRedisTemplate template = new StringRedisTemplate(factory);
+			CacheProperties properties = new CacheProperties();
+			properties.getPermissionNearCache().setTimeout(1000);
+			PermissionNearCache cache = new PermissionNearCache(properties, template);
+			//预先建立连接,避免首次连接的耗时超过等待时间
+			cache.exist(0L);
+			//其他节点,本地缓存为空
+			PermissionNearCache other = new PermissionNearCache(properties, template);
+			load(cache, other);
+			stale(cache, other);
+			error(cache);
+			timeout(cache);
+			factory.destroy();
+		}
+	}
+
+	/**
+	 * 并发未命中只加载一次,加载结果写入redis
+	 */
+	private static void load(PermissionNearCache cache, PermissionNearCache other) throws Throwable {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		List<CompletableFuture<PermissionDetail>> futures = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			futures.add(CompletableFuture.supplyAsync(() -> cache.get(1L, (roleId) -> {
+				loads.incrementAndGet();
+				await(release);
+				return detail(1);
+			})));
+		}
+		Thread.sleep(100);
+		release.countDown();
+		for (CompletableFuture<PermissionDetail> future : futures) {
+			check(detail(1).equals(future.get(TIMEOUT, TimeUnit.MILLISECONDS)), "加载结果错误");
+		}
+		check(loads.get() == 1, "并发未命中加载了" + loads.get() + "次");
+		check(detail(1).equals(other.get(1L)), "加载结果未写入redis");
+	}
+
+	/**
+	 * 删除前开始的加载读到旧数据,删除后重新保存新数据,旧的加载完成后不能覆盖新数据
+	 */
+	private static void stale(PermissionNearCache cache, PermissionNearCache other) throws Throwable {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<PermissionDetail> loading = CompletableFuture.supplyAsync(() -> cache.get(2L, (roleId) -> {
+			started.countDown();
+			await(release);
+			return detail(1);
+		}));
+		check(started.await(TIMEOUT, TimeUnit.MILLISECONDS), "加载未开始");
+		cache.remove(2L);
+		//删除后的读取不等待删除前开始的加载
+		AtomicInteger loads = new AtomicInteger();
+		check(detail(2).equals(cache.get(2L, (roleId) -> {
+			loads.incrementAndGet();
+			return detail(2);
+		})), "删除后读取到了旧数据");
+		check(loads.get() == 1, "删除后的读取等待了删除前开始的加载");
+		release.countDown();
+		loading.get(TIMEOUT, TimeUnit.MILLISECONDS);
+		check(detail(2).equals(cache.get(2L)), "旧的加载覆盖了本地缓存");
+		check(detail(2).equals(other.get(2L)), "旧的加载覆盖了redis");
+		//删除后直接保存新数据,旧的加载在保存后完成
+		CountDownLatch restarted = new CountDownLatch(1);
+		CountDownLatch rereleased = new CountDownLatch(1);
+		cache.remove(3L);
+		loading = CompletableFuture.supplyAsync(() -> cache.get(3L, (roleId) -> {
+			restarted.countDown();
+			await(rereleased);
+			return detail(1);
+		}));
+		check(restarted.await(TIMEOUT, TimeUnit.MILLISECONDS), "加载未开始");
+		cache.remove(3L);
+		cache.save(3L, detail(3));
+		rereleased.countDown();
+		loading.get(TIMEOUT, TimeUnit.MILLISECONDS);
+		check(detail(3).equals(cache.get(3L)), "旧的加载覆盖了本地缓存");
+		check(detail(3).equals(other.get(3L)), "旧的加载覆盖了redis");
+	}
+
+	/**
+	 * 加载抛出Error时,等待中的线程同样收到该Error而不是一直等待
+	 */
+	private static void error(PermissionNearCache cache) throws Throwable {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<PermissionDetail> loading = CompletableFuture.supplyAsync(() -> cache.get(4L, (roleId) -> {
+			started.countDown();
+			await(release);
+			throw new StackOverflowError("loader");
+		}));
+		check(started.await(TIMEOUT, TimeUnit.MILLISECONDS), "加载未开始");
+		CompletableFuture<PermissionDetail> waiting = CompletableFuture.supplyAsync(() -> cache.get(4L, (roleId) -> detail(4)));
+		Thread.sleep(100);
+		release.countDown();
+		check(cause(loading) instanceof StackOverflowError, "加载线程未抛出Error");
+		check(cause(waiting) instanceof StackOverflowError, "等待中的线程未收到Error");
+	}
+
+	/**
+	 * 等待超过near-cache的超时时间后自行加载
+	 */
+	private static void timeout(PermissionNearCache cache) throws Throwable {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<PermissionDetail> loading = CompletableFuture.supplyAsync(() -> cache.get(5L, (roleId) -> {
+			started.countDown();
+			await(release);
+			return detail(5);
+		}));
+		check(started.await(TIMEOUT, TimeUnit.MILLISECONDS), "加载未开始");
+		long start = System.currentTimeMillis();
+		check(detail(5).equals(cache.get(5L, (roleId) -> detail(5))), "等待超时后加载结果错误");
+		long cost = System.currentTimeMillis() - start;
+		check(cost >= 900 && cost < TIMEOUT, "等待时间错误:" + cost);
+		release.countDown();
+		loading.get(TIMEOUT, TimeUnit.MILLISECONDS);
+	}
+
+	private static PermissionDetail detail(long seed) {
+		Menu menu = new Menu();
+		menu.setId(seed);
+		menu.setName("菜单" + seed);
+		MenuPermissionDetail menuPermission = new MenuPermissionDetail();
+		menuPermission.setMenu(menu);
+		menuPermission.setEndpoints(new ArrayList<>());
+		PermissionDetail detail = new PermissionDetail();
+		detail.setMenuPermissions(List.of(menuPermission));
+		detail.setTagPermissions(new ArrayList<>());
+		return detail;
+	}
+
+	private static Throwable cause(CompletableFuture<?> future) throws Throwable {
+		try {
+			future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+			return null;
+		} catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+}
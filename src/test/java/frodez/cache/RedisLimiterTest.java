@@ -0,0 +1,108 @@
+package frodez.cache;
+
+import frodez.config.aop.request.checker.impl.RequestKey;
+import frodez.config.aop.request.limiter.facade.Limiter;
+import frodez.config.aop.request.limiter.impl.RedisLimiter;
+import frodez.config.cache.CacheProperties;
+import frodez.constant.keys.cache.CacheKey;
+import frodez.util.common.StrUtil;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * RedisLimiter测试<br>
+ * 使用本地的redis协议替身(RESP)运行,替身使用luaj执行RedisLimiter中的lua脚本。<br>
+ * 检查借出许可时本地消耗完之前不访问redis,令牌桶按redis的TIME补充而与节点时钟无关,以及redis不可用时改用本地限流器并在fallback-timeout后恢复。<br>
+ * @author Frodez
+ * @date 2020-01-13
+ */
+public class RedisLimiterTest {
+
+	public static void main(String[] args) throws Throwable {
+		try (RedisStandIn standIn = new RedisStandIn(0)) {
+			LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", standIn.port()));
+			factory.afterPropertiesSet();
+			StringRedisTemplate template = new StringRedisTemplate(factory);
+			CacheProperties properties = new CacheProperties();
+			properties.getRedisLimiter().setLeaseRatio(0.1);
+			properties.getRedisLimiter().setLeaseTimeout(60000);
+			properties.getRedisLimiter().setFallbackTimeout(200);
+			AtomicInteger fallbackCalls = new AtomicInteger();
+			Limiter fallback = (key, permitsPerSecond, timeout) -> {
+				fallbackCalls.incrementAndGet();
+				return true;
+			};
+			RedisLimiter limiter = new RedisLimiter(properties, template, fallback);
+			lease(standIn, limiter);
+			refill(standIn, limiter);
+			fallback(standIn, limiter, fallbackCalls);
+			factory.destroy();
+		}
+	}
+
+	/**
+	 * 借出许可:每秒100个许可时每次借出10个,本地消耗完之前不访问redis
+	 */
+	private static void lease(RedisStandIn standIn, RedisLimiter limiter) {
+		RequestKey key = new RequestKey(1, 1, 1);
+		check(limiter.tryAcquire(key, 100, 0), "第一次获取许可失败");
+		Map<String, String> bucket = standIn.hash(StrUtil.concat(CacheKey.Limiter.BUCKET, key.toString()));
+		double tokens = Double.parseDouble(bucket.get("tokens"));
+		check(tokens >= 90 && tokens < 91, "借出的许可数错误:" + tokens);
+		long commands = standIn.commands.get();
+		for (int i = 0; i < 9; i++) {
+			check(limiter.tryAcquire(key, 100, 0), "借出的许可未能使用");
+		}
+		check(standIn.commands.get() == commands, "借出的许可未消耗完时访问了redis");
+		check(limiter.tryAcquire(key, 100, 0), "重新借出许可失败");
+		check(standIn.commands.get() == commands + 1, "借出的许可消耗完后未访问redis");
+	}
+
+	/**
+	 * 补充许可:令牌桶按redis的TIME补充,redis时间不变时不补充,redis时间前进后补充
+	 */
+	private static void refill(RedisStandIn standIn, RedisLimiter limiter) {
+		RequestKey key = new RequestKey(2, 2, 2);
+		//每秒1个许可时每次只借出1个,桶容量为1
+		check(limiter.tryAcquire(key, 1, 0), "第一次获取许可失败");
+		check(!limiter.tryAcquire(key, 1, 0), "许可已用完时仍然获取成功");
+		standIn.advance(1000);
+		check(limiter.tryAcquire(key, 1, 0), "redis时间前进后未补充许可");
+		check(!limiter.tryAcquire(key, 1, 0), "许可已用完时仍然获取成功");
+		//redis时间后退时不补充,也不会出现负的补充量
+		standIn.advance(-60000);
+		check(!limiter.tryAcquire(key, 1, 0), "redis时间后退时补充了许可");
+		standIn.advance(60000);
+	}
+
+	/**
+	 * 降级:redis不可用时改用本地限流器,fallback-timeout内不访问redis,之后恢复使用redis
+	 */
+	private static void fallback(RedisStandIn standIn, RedisLimiter limiter, AtomicInteger fallbackCalls) throws Throwable {
+		RequestKey key = new RequestKey(3, 3, 3);
+		standIn.setBroken(true);
+		check(limiter.tryAcquire(key, 1, 0), "redis不可用时未使用本地限流器");
+		check(fallbackCalls.get() == 1, "redis不可用时未使用本地限流器");
+		long commands = standIn.commands.get();
+		for (int i = 0; i < 10; i++) {
+			check(limiter.tryAcquire(key, 1, 0), "降级期间本地限流器未生效");
+		}
+		check(fallbackCalls.get() == 11, "降级期间未使用本地限流器");
+		check(standIn.commands.get() == commands, "降级期间访问了redis");
+		standIn.setBroken(false);
+		Thread.sleep(300);
+		check(limiter.tryAcquire(key, 1, 0), "恢复后获取许可失败");
+		check(!limiter.tryAcquire(key, 1, 0), "恢复后未使用redis中的令牌桶");
+		check(fallbackCalls.get() == 11, "恢复后仍在使用本地限流器");
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+}
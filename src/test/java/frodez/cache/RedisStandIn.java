@@ -0,0 +1,669 @@
+package frodez.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+
+/**
+ * redis协议替身(RESP)<br>
+ * 每个连接一个线程,每次读取到请求后处理完所有已到达的命令,等待模拟延迟后一次性回复,记为一次往返。<br>
+ * EVAL和EVALSHA使用luaj执行脚本原文,脚本中的redis.call由替身的命令实现执行,与redis相同,脚本执行期间不会执行其他命令。<br>
+ * 只实现了测试用到的命令,其他命令返回错误。redis.call的返回值和脚本返回值的转换规则与redis一致。<br>
+ * 命令参数和返回值按ISO-8859-1逐字节转换为字符串,与lua之间传递原始字节,因此可以保存二进制数据。<br>
+ * 键的过期只在访问时检查。TIME命令返回的时间可以通过advance调整,用于模拟时间流逝。<br>
+ * @author Frodez
+ * @date 2020-01-13
+ */
+public class RedisStandIn implements Closeable {
+
+	final AtomicLong roundTrips = new AtomicLong();
+
+	final AtomicLong commands = new AtomicLong();
+
+	final AtomicLong messages = new AtomicLong();
+
+	/**
+	 * 已发布的消息,按频道区分
+	 */
+	private final Map<String, List<String>> published = new ConcurrentHashMap<>();
+
+	private final Map<String, Map<String, String>> hashes = new HashMap<>();
+
+	private final Map<String, Map<String, Double>> zsets = new HashMap<>();
+
+	private final Map<String, String> strings = new HashMap<>();
+
+	/**
+	 * 键的过期时间(毫秒时间戳)
+	 */
+	private final Map<String, Long> expires = new HashMap<>();
+
+	private final Map<String, LuaValue> scripts = new HashMap<>();
+
+	private final Globals globals;
+
+	private final ServerSocket server;
+
+	private final long latency;
+
+	/**
+	 * TIME命令相对于系统时间的偏移,单位毫秒
+	 */
+	private volatile long offset;
+
+	/**
+	 * 为true时所有命令返回错误,模拟redis不可用
+	 */
+	private volatile boolean broken;
+
+	/**
+	 * @param latency 每次往返的模拟延迟,单位纳秒
+	 */
+	public RedisStandIn(long latency) throws IOException {
+		this.latency = latency;
+		globals = JsePlatform.standardGlobals();
+		//redis使用lua 5.1,unpack为全局函数
+		globals.set("unpack", globals.get("table").get("unpack"));
+		LuaTable redis = new LuaTable();
+		redis.set("call", new VarArgFunction() {
+
+			@Override
+			public Varargs invoke(Varargs args) {
+				Object reply = execute(arguments(args));
+				if (reply instanceof Exception) {
+					throw new LuaError(((Exception) reply).getMessage());
+				}
+				return toLua(reply);
+			}
+
+		});
+		redis.set("pcall", new VarArgFunction() {
+
+			@Override
+			public Varargs invoke(Varargs args) {
+				Object reply = execute(arguments(args));
+				if (reply instanceof Exception) {
+					LuaTable error = new LuaTable();
+					error.set("err", ((Exception) reply).getMessage());
+					return error;
+				}
+				return toLua(reply);
+			}
+
+		});
+		redis.set("replicate_commands", new VarArgFunction() {
+
+			@Override
+			public Varargs invoke(Varargs args) {
+				return LuaValue.TRUE;
+			}
+
+		});
+		globals.set("redis", redis);
+		server = new ServerSocket(0);
+		Thread acceptor = new Thread(() -> {
+			while (!server.isClosed()) {
+				try {
+					Socket socket = server.accept();
+					Thread worker = new Thread(() -> serve(socket));
+					worker.setDaemon(true);
+					worker.start();
+				} catch (IOException e) {
+					return;
+				}
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	public int port() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * 调整TIME命令返回的时间
+	 */
+	public void advance(long millis) {
+		offset += millis;
+	}
+
+	/**
+	 * 模拟redis不可用
+	 */
+	public void setBroken(boolean broken) {
+		this.broken = broken;
+	}
+
+	/**
+	 * 获取hash,不存在时创建。读取结果前应先停止向替身发送命令。
+	 */
+	public synchronized Map<String, String> hash(String key) {
+		expire(key);
+		return hashes.computeIfAbsent(key, (item) -> new HashMap<>());
+	}
+
+	/**
+	 * 获取zset,不存在时创建。读取结果前应先停止向替身发送命令。
+	 */
+	public synchronized Map<String, Double> zset(String key) {
+		expire(key);
+		return zsets.computeIfAbsent(key, (item) -> new HashMap<>());
+	}
+
+	/**
+	 * 所有hash的key
+	 */
+	public synchronized List<String> hashKeys() {
+		return new ArrayList<>(hashes.keySet());
+	}
+
+	/**
+	 * 频道中已发布的消息
+	 */
+	public List<String> published(String channel) {
+		return published.computeIfAbsent(channel, (item) -> new ArrayList<>());
+	}
+
+	public synchronized void clear() {
+		hashes.clear();
+		zsets.clear();
+		strings.clear();
+		expires.clear();
+		published.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		server.close();
+	}
+
+	private void serve(Socket socket) {
+		try (socket) {
+			socket.setTcpNoDelay(true);
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+			while (true) {
+				List<String> command = read(in);
+				if (command == null) {
+					return;
+				}
+				commands.incrementAndGet();
+				write(out, execute(command));
+				while (in.available() > 0) {
+					commands.incrementAndGet();
+					write(out, execute(read(in)));
+				}
+				LockSupport.parkNanos(latency);
+				roundTrips.incrementAndGet();
+				out.flush();
+			}
+		} catch (IOException e) {
+			return;
+		}
+	}
+
+	private List<String> read(InputStream in) throws IOException {
+		String header = line(in);
+		if (header == null) {
+			return null;
+		}
+		int size = Integer.parseInt(header.substring(1));
+		List<String> command = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			int length = Integer.parseInt(line(in).substring(1));
+			byte[] bytes = in.readNBytes(length);
+			in.readNBytes(2);
+			command.add(new String(bytes, StandardCharsets.ISO_8859_1));
+		}
+		return command;
+	}
+
+	private String line(InputStream in) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		int c;
+		while ((c = in.read()) != '\r') {
+			if (c < 0) {
+				return null;
+			}
+			builder.append((char) c);
+		}
+		in.read();
+		return builder.toString();
+	}
+
+	/**
+	 * 执行命令,返回值为null,Long,String,Status,List或者Exception(错误回复)
+	 */
+	private synchronized Object execute(List<String> command) {
+		if (broken) {
+			return new IllegalStateException("ERR stand-in is broken");
+		}
+		String name = command.get(0).toUpperCase();
+		List<String> args = command.subList(1, command.size());
+		for (String key : keys(name, args)) {
+			expire(key);
+		}
+		switch (name) {
+			case "PING" : {
+				return new Status("PONG");
+			}
+			case "TIME" : {
+				long micros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis() + offset);
+				return List.of(String.valueOf(micros / 1000000), String.valueOf(micros % 1000000));
+			}
+			case "GET" : {
+				return strings.get(args.get(0));
+			}
+			case "SET" : {
+				return set(args);
+			}
+			case "EXISTS" : {
+				return args.stream().filter(this::exists).count();
+			}
+			case "DEL" :
+			case "UNLINK" : {
+				long removed = 0;
+				for (String key : args) {
+					removed += delete(key) ? 1 : 0;
+				}
+				return removed;
+			}
+			case "PEXPIRE" : {
+				if (!exists(args.get(0))) {
+					return 0L;
+				}
+				expires.put(args.get(0), System.currentTimeMillis() + Long.parseLong(args.get(1)));
+				return 1L;
+			}
+			case "HGET" : {
+				Map<String, String> hash = hashes.get(args.get(0));
+				return hash == null ? null : hash.get(args.get(1));
+			}
+			case "HSET" :
+			case "HMSET" : {
+				Map<String, String> hash = hashes.computeIfAbsent(args.get(0), (item) -> new HashMap<>());
+				long added = 0;
+				for (int i = 1; i + 1 < args.size(); i += 2) {
+					added += hash.put(args.get(i), args.get(i + 1)) == null ? 1 : 0;
+				}
+				return "HMSET".equals(name) ? new Status("OK") : added;
+			}
+			case "HEXISTS" : {
+				Map<String, String> hash = hashes.get(args.get(0));
+				return hash != null && hash.containsKey(args.get(1)) ? 1L : 0L;
+			}
+			case "HDEL" : {
+				Map<String, String> hash = hashes.get(args.get(0));
+				long removed = 0;
+				for (String field : args.subList(1, args.size())) {
+					removed += hash != null && hash.remove(field) != null ? 1 : 0;
+				}
+				cleanUp(args.get(0));
+				return removed;
+			}
+			case "HMGET" : {
+				Map<String, String> hash = hashes.getOrDefault(args.get(0), Map.of());
+				return args.subList(1, args.size()).stream().map(hash::get).collect(Collectors.toList());
+			}
+			case "HSCAN" : {
+				//与小hash的实际行为一致,忽略COUNT,一次返回全部字段
+				List<String> items = new ArrayList<>();
+				for (Entry<String, String> entry : hashes.getOrDefault(args.get(0), Map.of()).entrySet()) {
+					items.add(entry.getKey());
+					items.add(entry.getValue());
+				}
+				return List.of("0", items);
+			}
+			case "ZADD" : {
+				Map<String, Double> zset = zsets.computeIfAbsent(args.get(0), (item) -> new HashMap<>());
+				long added = 0;
+				for (int i = 1; i + 1 < args.size(); i += 2) {
+					added += zset.put(args.get(i + 1), Double.valueOf(args.get(i))) == null ? 1 : 0;
+				}
+				return added;
+			}
+			case "ZREM" : {
+				Map<String, Double> zset = zsets.get(args.get(0));
+				long removed = 0;
+				for (String member : args.subList(1, args.size())) {
+					removed += zset != null && zset.remove(member) != null ? 1 : 0;
+				}
+				cleanUp(args.get(0));
+				return removed;
+			}
+			case "ZRANGEBYSCORE" : {
+				return rangeByScore(args);
+			}
+			case "PUBLISH" : {
+				messages.incrementAndGet();
+				published(args.get(0)).add(args.get(1));
+				return 0L;
+			}
+			case "EVAL" : {
+				String sha = sha(args.get(0));
+				LuaValue script = scripts.get(sha);
+				if (script == null) {
+					try {
+						script = globals.load(new ByteArrayInputStream(bytes(args.get(0))), "@user_script", "t", globals);
+					} catch (LuaError e) {
+						return new IllegalStateException("ERR Error compiling script " + e.getMessage());
+					}
+					scripts.put(sha, script);
+				}
+				return eval(script, args);
+			}
+			case "EVALSHA" : {
+				LuaValue script = scripts.get(args.get(0));
+				if (script == null) {
+					return new IllegalStateException("NOSCRIPT No matching script. Please use EVAL.");
+				}
+				return eval(script, args);
+			}
+			default : {
+				return new IllegalStateException("ERR unknown command '" + command.get(0) + "'");
+			}
+		}
+	}
+
+	/**
+	 * 命令涉及的key,用于检查过期
+	 */
+	private List<String> keys(String name, List<String> args) {
+		switch (name) {
+			case "PING" :
+			case "TIME" :
+			case "PUBLISH" :
+			case "EVAL" :
+			case "EVALSHA" : {
+				return List.of();
+			}
+			case "EXISTS" :
+			case "DEL" :
+			case "UNLINK" : {
+				return args;
+			}
+			default : {
+				return args.isEmpty() ? List.of() : List.of(args.get(0));
+			}
+		}
+	}
+
+	private Object set(List<String> args) {
+		String key = args.get(0);
+		boolean nx = false;
+		Long ttl = null;
+		for (int i = 2; i < args.size(); i++) {
+			String option = args.get(i).toUpperCase();
+			if ("NX".equals(option)) {
+				nx = true;
+			} else if ("PX".equals(option)) {
+				ttl = Long.parseLong(args.get(++i));
+			} else if ("EX".equals(option)) {
+				ttl = TimeUnit.SECONDS.toMillis(Long.parseLong(args.get(++i)));
+			} else {
+				return new IllegalStateException("ERR syntax error");
+			}
+		}
+		if (nx && exists(key)) {
+			return null;
+		}
+		delete(key);
+		strings.put(key, args.get(1));
+		if (ttl != null) {
+			expires.put(key, System.currentTimeMillis() + ttl);
+		}
+		return new Status("OK");
+	}
+
+	private List<String> rangeByScore(List<String> args) {
+		Map<String, Double> zset = zsets.getOrDefault(args.get(0), Map.of());
+		double min = score(args.get(1));
+		double max = score(args.get(2));
+		long skip = 0;
+		long limit = Long.MAX_VALUE;
+		if (args.size() >= 6 && "LIMIT".equalsIgnoreCase(args.get(3))) {
+			skip = Long.parseLong(args.get(4));
+			long count = Long.parseLong(args.get(5));
+			limit = count < 0 ? Long.MAX_VALUE : count;
+		}
+		Comparator<Entry<String, Double>> order = Entry.comparingByValue();
+		return zset.entrySet().stream().filter((entry) -> entry.getValue() >= min && entry.getValue() <= max).sorted(order.thenComparing(
+			Entry.comparingByKey())).skip(skip).limit(limit).map(Entry::getKey).collect(Collectors.toList());
+	}
+
+	private double score(String value) {
+		switch (value) {
+			case "-inf" : {
+				return Double.NEGATIVE_INFINITY;
+			}
+			case "+inf" :
+			case "inf" : {
+				return Double.POSITIVE_INFINITY;
+			}
+			default : {
+				return Double.parseDouble(value);
+			}
+		}
+	}
+
+	private boolean exists(String key) {
+		return hashes.containsKey(key) || zsets.containsKey(key) || strings.containsKey(key);
+	}
+
+	private boolean delete(String key) {
+		expires.remove(key);
+		return hashes.remove(key) != null | zsets.remove(key) != null | strings.remove(key) != null;
+	}
+
+	private void expire(String key) {
+		Long expireAt = expires.get(key);
+		if (expireAt != null && expireAt <= System.currentTimeMillis()) {
+			delete(key);
+		}
+	}
+
+	/**
+	 * 与redis一致,空的hash和zset自动删除
+	 */
+	private void cleanUp(String key) {
+		Map<String, String> hash = hashes.get(key);
+		if (hash != null && hash.isEmpty()) {
+			delete(key);
+		}
+		Map<String, Double> zset = zsets.get(key);
+		if (zset != null && zset.isEmpty()) {
+			delete(key);
+		}
+	}
+
+	private Object eval(LuaValue script, List<String> args) {
+		int keySize = Integer.parseInt(args.get(1));
+		LuaTable keys = new LuaTable();
+		for (int i = 0; i < keySize; i++) {
+			keys.set(i + 1, LuaString.valueOf(bytes(args.get(2 + i))));
+		}
+		LuaTable argv = new LuaTable();
+		for (int i = 2 + keySize; i < args.size(); i++) {
+			argv.set(i - 1 - keySize, LuaString.valueOf(bytes(args.get(i))));
+		}
+		globals.set("KEYS", keys);
+		globals.set("ARGV", argv);
+		try {
+			return fromLua(script.call());
+		} catch (LuaError e) {
+			return new IllegalStateException("ERR Error running script " + e.getMessage());
+		}
+	}
+
+	/**
+	 * redis.call的参数,数字按redis的规则转换为字符串
+	 */
+	private List<String> arguments(Varargs args) {
+		List<String> command = new ArrayList<>(args.narg());
+		for (int i = 1; i <= args.narg(); i++) {
+			LuaValue arg = args.arg(i);
+			if (arg.type() == LuaValue.TNUMBER) {
+				double value = arg.todouble();
+				command.add(value == Math.rint(value) && !Double.isInfinite(value) ? String.valueOf((long) value) : String.valueOf(value));
+			} else if (arg.type() == LuaValue.TSTRING) {
+				command.add(string(arg));
+			} else {
+				throw new LuaError("Lua redis() command arguments must be strings or integers");
+			}
+		}
+		return command;
+	}
+
+	/**
+	 * 命令返回值转换为lua类型,null转换为false,Status转换为{ok=...}
+	 */
+	private LuaValue toLua(Object reply) {
+		if (reply == null) {
+			return LuaValue.FALSE;
+		}
+		if (reply instanceof Long) {
+			return LuaValue.valueOf((Long) reply);
+		}
+		if (reply instanceof Status) {
+			LuaTable table = new LuaTable();
+			table.set("ok", ((Status) reply).text);
+			return table;
+		}
+		if (reply instanceof List) {
+			LuaTable table = new LuaTable();
+			int index = 1;
+			for (Object item : (List<?>) reply) {
+				table.set(index++, toLua(item));
+			}
+			return table;
+		}
+		return LuaString.valueOf(bytes(reply.toString()));
+	}
+
+	/**
+	 * 脚本返回值转换为命令返回值,数字截断为整数,数组遇到nil截止
+	 */
+	private Object fromLua(LuaValue value) {
+		switch (value.type()) {
+			case LuaValue.TNIL : {
+				return null;
+			}
+			case LuaValue.TBOOLEAN : {
+				return value.toboolean() ? 1L : null;
+			}
+			case LuaValue.TNUMBER : {
+				return (long) value.todouble();
+			}
+			case LuaValue.TSTRING : {
+				return string(value);
+			}
+			case LuaValue.TTABLE : {
+				LuaValue error = value.get("err");
+				if (!error.isnil()) {
+					return new IllegalStateException(error.tojstring());
+				}
+				LuaValue ok = value.get("ok");
+				if (!ok.isnil()) {
+					return new Status(ok.tojstring());
+				}
+				List<Object> list = new ArrayList<>();
+				for (int i = 1; !value.get(i).isnil(); i++) {
+					list.add(fromLua(value.get(i)));
+				}
+				return list;
+			}
+			default : {
+				return null;
+			}
+		}
+	}
+
+	private void write(OutputStream out, Object value) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		append(builder, value);
+		out.write(builder.toString().getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	private void append(StringBuilder builder, Object value) {
+		if (value == null) {
+			builder.append("$-1\r\n");
+		} else if (value instanceof Long) {
+			builder.append(':').append(value).append("\r\n");
+		} else if (value instanceof Status) {
+			builder.append('+').append(((Status) value).text).append("\r\n");
+		} else if (value instanceof Exception) {
+			builder.append('-').append(((Exception) value).getMessage().replace("\r", " ").replace("\n", " ")).append("\r\n");
+		} else if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			builder.append('*').append(list.size()).append("\r\n");
+			for (Object item : list) {
+				append(builder, item);
+			}
+		} else {
+			builder.append('$').append(value.toString().length()).append("\r\n").append(value).append("\r\n");
+		}
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	private static String string(LuaValue value) {
+		LuaString string = value.checkstring();
+		return new String(string.m_bytes, string.m_offset, string.m_length, StandardCharsets.ISO_8859_1);
+	}
+
+	private static String sha(String text) {
+		try {
+			StringBuilder builder = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.ISO_8859_1))) {
+				builder.append(String.format("%02x", b));
+			}
+			return builder.toString();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * 状态回复
+	 */
+	private static class Status {
+
+		final String text;
+
+		Status(String text) {
+			this.text = text;
+		}
+
+	}
+
+}
@@ -0,0 +1,124 @@
+package frodez.cache;
+
+import frodez.config.cache.CacheProperties;
+import frodez.dao.model.table.user.Role;
+import frodez.service.cache.impl.user.RoleIndexCache;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RoleCache内存占用与查询耗时对比<br>
+ * 对比对象为按用户id保存Role引用的ConcurrentHashMap(原RoleMapCache的实现方式)。<br>
+ * @author Frodez
+ * @date 2020-01-11
+ */
+public class RoleCacheTest {
+
+	public static void main(String[] args) throws Throwable {
+		verify(200000);
+		for (int i = 0; i < 3; i++) {
+			test(100000, 8);
+			test(1000000, 8);
+		}
+	}
+
+	/**
+	 * 随机操作后与HashMap的结果逐一比较
+	 */
+	public static void verify(int rounds) {
+		RoleIndexCache cache = new RoleIndexCache(new CacheProperties());
+		Map<Long, Role> expected = new HashMap<>();
+		Role[] roles = roles(8);
+		Random random = new Random(1);
+		int mismatches = 0;
+		for (int i = 0; i < rounds; i++) {
+			long userId = random.nextInt(5000);
+			if (random.nextInt(3) == 0) {
+				cache.remove(userId);
+				expected.remove(userId);
+			} else {
+				Role role = roles[random.nextInt(roles.length)];
+				cache.save(userId, role);
+				expected.put(userId, role);
+			}
+		}
+		for (long userId = 0; userId < 5000; userId++) {
+			if (cache.get(userId) != expected.get(userId)) {
+				++mismatches;
+			}
+		}
+		System.out.println("verify size:" + cache.size() + " expected:" + expected.size() + " mismatches:" + mismatches);
+	}
+
+	public static void test(int users, int roleCount) throws Throwable {
+		Role[] roles = roles(roleCount);
+		long[] ids = new long[users];
+		Random random = new Random();
+		for (int i = 0; i < users; i++) {
+			ids[i] = random.nextLong() & Long.MAX_VALUE;
+		}
+
+		long before = usedMemory();
+		Map<Long, Role> map = new ConcurrentHashMap<>();
+		for (int i = 0; i < users; i++) {
+			map.put(ids[i], roles[i % roleCount]);
+		}
+		long mapMemory = usedMemory() - before;
+
+		before = usedMemory();
+		CacheProperties properties = new CacheProperties();
+		properties.getRoleIndexCache().setMaxSize(users);
+		RoleIndexCache cache = new RoleIndexCache(properties);
+		for (int i = 0; i < users; i++) {
+			cache.save(ids[i], roles[i % roleCount]);
+		}
+		long cacheMemory = usedMemory() - before;
+
+		int lookups = 10000000;
+		int[] order = new int[lookups];
+		for (int i = 0; i < lookups; i++) {
+			order[i] = random.nextInt(users);
+		}
+		long sink = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < lookups; i++) {
+			sink += map.get(ids[order[i]]).getId();
+		}
+		long mapTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < lookups; i++) {
+			sink += cache.get(ids[order[i]]).getId();
+		}
+		long cacheTime = System.nanoTime() - start;
+
+		System.out.println("users:" + users + " sink:" + sink);
+		System.out.println("ConcurrentHashMap memory:" + mapMemory / users + " bytes/user, lookup:" + (double) mapTime / lookups
+			+ " ns/op");
+		System.out.println("RoleIndexCache memory:" + cacheMemory / users + " bytes/user, lookup:" + (double) cacheTime / lookups
+			+ " ns/op");
+		//保持引用,防止测量内存前被回收
+		System.out.println(map.size() + cache.size());
+	}
+
+	private static Role[] roles(int count) {
+		Role[] roles = new Role[count];
+		for (int i = 0; i < count; i++) {
+			roles[i] = new Role();
+			roles[i].setId(i + 1L);
+			roles[i].setName("role" + i);
+		}
+		return roles;
+	}
+
+	private static long usedMemory() throws Throwable {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
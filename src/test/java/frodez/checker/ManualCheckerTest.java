@@ -0,0 +1,80 @@
+package frodez.checker;
+
+import frodez.config.aop.request.checker.facade.ManualChecker;
+import frodez.config.aop.request.checker.facade.ManualChecker.Handle;
+import frodez.config.aop.request.checker.impl.ManualLocalChecker;
+import frodez.config.aop.request.checker.impl.RequestKey;
+import frodez.config.cache.CacheProperties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ManualChecker并发压力测试<br>
+ * 多个线程争用少量key,在持有锁期间检查同一key是否同时被多个线程持有。<br>
+ * @author Frodez
+ * @date 2020-01-09
+ */
+public class ManualCheckerTest {
+
+	public static void main(String[] args) throws Throwable {
+		for (int i = 0; i < 3; i++) {
+			test(Runtime.getRuntime().availableProcessors() * 2, 16, 200000);
+		}
+	}
+
+	public static void test(int threads, int keyCount, int rounds) throws Throwable {
+		ManualChecker checker = new ManualLocalChecker(new CacheProperties());
+		RequestKey[] keys = new RequestKey[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			keys[i] = new RequestKey(i, i * 31L, i * 17L);
+		}
+		AtomicIntegerArray holders = new AtomicIntegerArray(keyCount);
+		AtomicInteger doubleAdmissions = new AtomicInteger();
+		LongAdder admitted = new LongAdder();
+		LongAdder rejected = new LongAdder();
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch end = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			int seed = t;
+			new Thread(() -> {
+				try {
+					start.await();
+					for (int i = 0; i < rounds; i++) {
+						int index = (i * 31 + seed) % keyCount;
+						try (Handle handle = checker.tryLock(keys[index])) {
+							if (handle == null) {
+								rejected.increment();
+								continue;
+							}
+							admitted.increment();
+							if (holders.incrementAndGet(index) != 1) {
+								doubleAdmissions.incrementAndGet();
+							}
+							Thread.onSpinWait();
+							holders.decrementAndGet(index);
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					end.countDown();
+				}
+			}).start();
+		}
+		long time = System.nanoTime();
+		start.countDown();
+		end.await();
+		time = System.nanoTime() - time;
+		long total = (long) threads * rounds;
+		System.out.println("threads:" + threads + ", keys:" + keyCount + ", operations:" + total);
+		System.out.println("admitted:" + admitted.sum() + ", rejected:" + rejected.sum() + ", double admissions:" + doubleAdmissions
+			.get());
+		System.out.println("duration:" + time / 1000000 + "ms, throughput:" + total * 1000000000L / time + " ops/s");
+		if (doubleAdmissions.get() != 0) {
+			throw new IllegalStateException("存在重复获取锁的情况!");
+		}
+	}
+
+}
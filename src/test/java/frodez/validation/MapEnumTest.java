@@ -0,0 +1,153 @@
+package frodez.validation;
+
+import frodez.config.aop.validation.annotation.common.MapEnum;
+import frodez.constant.enums.task.TaskStatus;
+import frodez.constant.enums.user.UserStatus;
+import frodez.util.common.PrimitiveUtil;
+import frodez.util.common.StrUtil;
+import frodez.util.reflect.ReflectUtil;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import lombok.Data;
+import lombok.Getter;
+
+/**
+ * MapEnum验证性能对比<br>
+ * 对比原来每次反射调用验证方法的方式与initialize时生成的查找表。<br>
+ * 同时检查两者对所有byte值和稀疏的int值给出的结果一致,以及验证失败时的信息一致。<br>
+ * @author Frodez
+ * @date 2020-01-13
+ */
+public class MapEnumTest {
+
+	public static void main(String[] args) throws Throwable {
+		Validator engine = Validation.buildDefaultValidatorFactory().getValidator();
+		MapEnum.Validator taskStatus = validator("taskStatus");
+		MapEnum.Validator sparse = validator("sparse");
+		for (int i = Byte.MIN_VALUE; i <= Byte.MAX_VALUE; ++i) {
+			byte value = (byte) i;
+			check(engine.validateValue(TestBean.class, "taskStatus", value).isEmpty() == (TaskStatus.of(value) != null), "TaskStatus结果不一致:" + i);
+			check(engine.validateValue(TestBean.class, "userStatus", value).isEmpty() == (UserStatus.of(value) != null), "UserStatus结果不一致:" + i);
+		}
+		for (int i : new int[] { -5, -4, 0, 1000, 1001, 70000, Integer.MAX_VALUE, Integer.MIN_VALUE }) {
+			check(engine.validateValue(TestBean.class, "sparse", i).isEmpty() == (SparseCode.of(i) != null), "SparseCode结果不一致:" + i);
+		}
+		TestBean bean = new TestBean();
+		bean.setTaskStatus((byte) 100);
+		bean.setSparse(3);
+		Set<ConstraintViolation<TestBean>> violations = engine.validate(bean);
+		Set<String> messages = violations.stream().map(ConstraintViolation::getMessage).collect(Collectors.toSet());
+		check(messages.contains(StrUtil.concat("100不符合要求,有效值为", TaskStatus.getDescs().toString())), "错误信息不一致:" + messages);
+		check(messages.contains(StrUtil.concat("3不符合要求,有效值为", SparseCode.getDescs().toString())), "错误信息不一致:" + messages);
+
+		Object[] bytes = new Object[] { (byte) 1, (byte) 2, (byte) 1, (byte) 2 };
+		Object[] ints = new Object[] { 1000, 70000, -5, 1000 };
+		int rounds = 10000000;
+		for (int i = 0; i < 5; i++) {
+			long reflectByte = run((value) -> legacy(TaskStatus.class, "of", Byte.class, value), bytes, rounds);
+			long tableByte = run((value) -> taskStatus.isValid(value, null), bytes, rounds);
+			long reflectInt = run((value) -> legacy(SparseCode.class, "of", Integer.class, value), ints, rounds);
+			long tableInt = run((value) -> sparse.isValid(value, null), ints, rounds);
+			System.out.println(String.format("第%d轮 Byte 反射:%dns/次 查找表:%dns/次; Integer 反射:%dns/次 查找表:%dns/次", i + 1, reflectByte / rounds,
+				tableByte / rounds, reflectInt / rounds, tableInt / rounds));
+		}
+	}
+
+	/**
+	 * 原来的验证方式
+	 */
+	private static boolean legacy(Class<?> klass, String method, Class<?> paramType, Object value) {
+		try {
+			Object[] params = new Object[] { PrimitiveUtil.cast(value, paramType) };
+			return ReflectUtil.getFastMethod(klass, method, paramType).invoke(null, params) != null;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static long run(Function<Object, Boolean> function, Object[] values, int rounds) {
+		int valid = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			if (function.apply(values[i & 3])) {
+				++valid;
+			}
+		}
+		long time = System.nanoTime() - start;
+		check(valid == rounds, "验证未通过");
+		return time;
+	}
+
+	private static MapEnum.Validator validator(String field) throws Exception {
+		MapEnum.Validator validator = new MapEnum.Validator();
+		validator.initialize(TestBean.class.getDeclaredField(field).getAnnotation(MapEnum.class));
+		return validator;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	@Data
+	public static class TestBean {
+
+		@MapEnum(TaskStatus.class)
+		private Byte taskStatus;
+
+		@MapEnum(UserStatus.class)
+		private Byte userStatus;
+
+		@MapEnum(value = SparseCode.class, paramType = Integer.class)
+		private Integer sparse;
+
+	}
+
+	/**
+	 * 取值稀疏的枚举,用于测试完美哈希
+	 */
+	public enum SparseCode {
+
+		A(1000, "A"), B(70000, "B"), C(-5, "C");
+
+		@Getter
+		private Integer val;
+
+		@Getter
+		private String desc;
+
+		@Getter
+		private static List<Integer> vals;
+
+		@Getter
+		private static List<String> descs;
+
+		private static Map<Integer, SparseCode> enumMap;
+
+		static {
+			vals = Arrays.stream(values()).map(SparseCode::getVal).collect(Collectors.toUnmodifiableList());
+			descs = Arrays.stream(values()).map((iter) -> StrUtil.concat(iter.val.toString(), ":", iter.desc)).collect(Collectors
+				.toUnmodifiableList());
+			enumMap = Arrays.stream(values()).collect(Collectors.toMap(SparseCode::getVal, Function.identity()));
+		}
+
+		SparseCode(Integer val, String desc) {
+			this.val = val;
+			this.desc = desc;
+		}
+
+		public static SparseCode of(Integer value) {
+			return enumMap.get(value);
+		}
+
+	}
+
+}
@@ -0,0 +1,200 @@
+package frodez.validation;
+
+import frodez.config.validator.ValidationUtil;
+import frodez.dao.param.config.UpdateGlobalData;
+import frodez.dao.param.task.AddTask;
+import frodez.dao.param.user.UpdateUser;
+import frodez.util.beans.param.QueryPage;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.Validation;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Positive;
+import org.hibernate.validator.HibernateValidator;
+
+/**
+ * 预编译参数验证计划性能对比<br>
+ * 对比hibernate-validator直接验证方法参数与使用预编译验证计划的耗时。<br>
+ * 同时检查两种方式对合法参数和非法参数给出的结果完全一致。<br>
+ * @author Frodez
+ * @date 2020-01-13
+ */
+public class ValidationPlanTest {
+
+	public static void main(String[] args) throws Throwable {
+		set("engine", Validation.byProvider(HibernateValidator.class).configure().failFast(true).buildValidatorFactory().getValidator());
+		set("failFast", true);
+		TestService service = new TestService();
+		Case[] cases = new Case[] { new Case("getUsers", new QueryPage(1, 20)), new Case("addTask", addTask()), new Case("updateUser",
+			updateUser()), new Case("setGlobalData", Arrays.asList(globalData(), globalData())), new Case("getByName", 1L, "frodez_01") };
+		for (Case item : cases) {
+			item.method = TestService.class.getMethod(item.name, item.method(TestService.class).getParameterTypes());
+			ValidationUtil.compile(item.method, TestService.class);
+		}
+		verify(service, cases);
+		int rounds = 200000;
+		for (int i = 0; i < 5; i++) {
+			StringBuilder builder = new StringBuilder(String.format("第%d轮", i + 1));
+			for (Case item : cases) {
+				set("compiled", false);
+				long hibernateTime = run(service, item, rounds);
+				set("compiled", true);
+				long compiledTime = run(service, item, rounds);
+				builder.append(String.format(" %s hibernate:%dns/次 预编译:%dns/次;", item.name, hibernateTime / rounds, compiledTime / rounds));
+			}
+			System.out.println(builder.toString());
+		}
+	}
+
+	private static void verify(TestService service, Case[] cases) throws Exception {
+		for (Case item : cases) {
+			check(compare(service, item.method, item.args) == null, item.name + "合法参数未通过");
+		}
+		Method getUsers = cases[0].method;
+		compare(service, getUsers, new Object[] { null });
+		compare(service, getUsers, new Object[] { new QueryPage(-1, 20) });
+		compare(service, getUsers, new Object[] { new QueryPage(1, 100000) });
+		compare(service, getUsers, new Object[] { new QueryPage(null, 20) });
+		Method addTask = cases[1].method;
+		AddTask task = addTask();
+		task.setTarget(" ");
+		compare(service, addTask, new Object[] { task });
+		task = addTask();
+		task.setStartNow((byte) 100);
+		compare(service, addTask, new Object[] { task });
+		Method updateUser = cases[2].method;
+		compare(service, updateUser, new Object[] { new UpdateUser() });
+		Method setGlobalData = cases[3].method;
+		UpdateGlobalData data = globalData();
+		data.setType((byte) 5);
+		compare(service, setGlobalData, new Object[] { Arrays.asList(globalData(), data) });
+		compare(service, setGlobalData, new Object[] { Arrays.asList() });
+		compare(service, setGlobalData, new Object[] { Arrays.asList(globalData(), null) });
+		Method getByName = cases[4].method;
+		compare(service, getByName, new Object[] { 0L, "frodez_01" });
+		compare(service, getByName, new Object[] { 1L, "frodez-01" });
+		compare(service, getByName, new Object[] { 1L, null });
+	}
+
+	private static String compare(TestService service, Method method, Object[] args) throws Exception {
+		set("compiled", false);
+		String expected = ValidationUtil.validateParam(service, method, args);
+		set("compiled", true);
+		String actual = ValidationUtil.validateParam(service, method, args);
+		check(expected == null ? actual == null : expected.equals(actual), method.getName() + "验证结果不一致:" + expected + " | " + actual);
+		return actual;
+	}
+
+	private static long run(TestService service, Case item, int rounds) {
+		int failed = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < rounds; i++) {
+			if (ValidationUtil.validateParam(service, item.method, item.args) != null) {
+				++failed;
+			}
+		}
+		long time = System.nanoTime() - start;
+		check(failed == 0, item.name + "验证未通过");
+		return time;
+	}
+
+	private static AddTask addTask() {
+		AddTask task = new AddTask();
+		task.setTarget("frodez.service.task.impl.TestTask");
+		task.setDescription("测试任务");
+		task.setCronExp("0 0/5 * * * ?");
+		task.setStartNow((byte) 1);
+		return task;
+	}
+
+	private static UpdateUser updateUser() {
+		UpdateUser user = new UpdateUser();
+		user.setId(1L);
+		user.setNickname("frodez");
+		user.setEmail("frodez@example.com");
+		return user;
+	}
+
+	private static UpdateGlobalData globalData() {
+		UpdateGlobalData data = new UpdateGlobalData();
+		data.setName("name");
+		data.setType((byte) 1);
+		data.setContent("content");
+		return data;
+	}
+
+	private static void set(String name, Object value) throws Exception {
+		Field field = ValidationUtil.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(null, value);
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalStateException(message);
+		}
+	}
+
+	private static class Case {
+
+		String name;
+
+		Object[] args;
+
+		Method method;
+
+		Case(String name, Object... args) {
+			this.name = name;
+			this.args = args;
+		}
+
+		Method method(Class<?> klass) {
+			for (Method item : klass.getMethods()) {
+				if (item.getName().equals(name)) {
+					return item;
+				}
+			}
+			throw new IllegalArgumentException(name);
+		}
+
+	}
+
+	public interface ITestService {
+
+		void getUsers(@Valid @NotNull QueryPage query);
+
+		void updateUser(@Valid @NotNull UpdateUser param);
+
+		void setGlobalData(@NotEmpty List<@Valid UpdateGlobalData> param);
+
+	}
+
+	public static class TestService implements ITestService {
+
+		@Override
+		public void getUsers(QueryPage query) {
+		}
+
+		public void addTask(@Valid @NotNull AddTask param) {
+		}
+
+		@Override
+		public void updateUser(UpdateUser param) {
+		}
+
+		@Override
+		public void setGlobalData(List<UpdateGlobalData> param) {
+		}
+
+		public void getByName(@Positive Long id, @NotBlank @Pattern(regexp = "^[a-zA-Z0-9_]{4,32}$") String name) {
+		}
+
+	}
+
+}